@@ -0,0 +1,66 @@
+package com.memorygame.server;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Chấm một câu trả lời như GameSession.processRoundResults, theo độ dài cụm từ:
+ *   exact   ExactAnswerScorer (so sánh chuỗi)
+ *   fuzzy   FuzzyAnswerScorer: chuẩn hóa tiếng Việt + Myers bit-parallel (cụm từ tới 64 ký tự) hoặc
+ *           bảng một hàng (dài hơn)
+ * Câu trả lời có dấu khác, viết hoa khác và một lỗi gõ nên không đi đường tắt equals(). Chạy với
+ * -prof gc để kiểm tra fuzzy không cấp phát (gc.alloc.rate.norm ~ 0 B/op).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AnswerScoringBenchmark {
+    private static final String WORDS = "Những con mèo đen chạy qua đường phố Hà Nội trong đêm mưa lạnh ";
+
+    @Param({"8", "24", "64", "120"})
+    public int length;
+
+    private final AnswerScorer exact = new ExactAnswerScorer();
+    private final AnswerScorer fuzzy = new FuzzyAnswerScorer(60);
+    private String phrase;
+    private String answer;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < length) {
+            builder.append(WORDS);
+        }
+        phrase = builder.substring(0, length).trim();
+        // Bỏ dấu, viết hoa chữ đầu và sai một ký tự ở giữa
+        char[] typed = new char[phrase.length()];
+        int typedLength = FuzzyAnswerScorer.normalize(phrase, typed);
+        typed[0] = Character.toUpperCase(typed[0]);
+        typed[typedLength / 2] = typed[typedLength / 2] == 'x' ? 'y' : 'x';
+        answer = new String(typed, 0, typedLength);
+    }
+
+    @Benchmark
+    public int exact() {
+        return exact.credit(phrase, answer);
+    }
+
+    @Benchmark
+    public int fuzzy() {
+        return fuzzy.credit(phrase, answer);
+    }
+}
@@ -0,0 +1,56 @@
+package com.memorygame.server;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Dùng chung cho các benchmark: kết nối giả bỏ qua mọi byte gửi đi và tắt log ra console
+ * để System.out không lấn át phần đang đo.
+ */
+final class BenchSupport {
+    private BenchSupport() {
+    }
+
+    static final class NullConnection implements Connection {
+        @Override
+        public void write(ByteBuffer data, boolean droppable) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public int getQueuedFrames() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String getRemoteAddress() {
+            return "bench";
+        }
+    }
+
+    static void silenceConsole() {
+        PrintStream nullStream = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(nullStream);
+        System.setErr(nullStream);
+    }
+
+    // Server chưa start(): không mở cổng, không có kho tài khoản nên LOGIN luôn thành công
+    static Server newServer() {
+        System.setProperty("memorygame.matchLog", "");
+        return new Server();
+    }
+
+    static ClientHandler login(Server server, String username) {
+        ClientHandler handler = new ClientHandler(new NullConnection(), server);
+        handler.onLine(MessageProtocol.LOGIN + "|" + username + "|bench");
+        return handler;
+    }
+}
@@ -0,0 +1,171 @@
+package com.memorygame.server;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Chi phí xử lý câu trả lời của một GameSession. Server không có kho cụm từ nên cụm từ luôn là
+ * "test" và mọi câu trả lời đều đúng: khi cả hai đã trả lời, session chấm điểm và gửi UPDATE_SCORE,
+ * rồi benchmark bắt đầu round mới ngay thay vì chờ 2 giây.
+ *
+ * inlineRound: session chạy trên chính thread đo (executor gọi thẳng), tức chi phí logic của một
+ * round khi không có khóa lẫn hàng đợi. contendedAnswers: hai thread (hai người chơi) cùng gửi câu
+ * trả lời vào shard thật của session; số đo là tốc độ shard tiêu thụ, gồm cả chi phí chuyển giao
+ * giữa thread. Producer dừng chờ khi hàng đợi của shard quá dài để bộ nhớ không tăng mãi.
+ * roomRound: như inlineRound với phòng nhiều người, chi phí một round phải tăng tuyến tính theo
+ * số người.
+ *
+ * displayTime rất lớn để HIDE_PHRASE không bao giờ tới trong lúc đo; timer của round cũ bị hủy khi
+ * sang round mới nên TimingWheel không tích tụ tác vụ.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameSessionBenchmark {
+    private static final int MAX_QUEUED_TASKS = 4096;
+
+    @State(Scope.Thread)
+    public static class InlineState {
+        Server server;
+        GameSession session;
+        ClientHandler player1;
+        ClientHandler player2;
+
+        @Setup(Level.Trial)
+        public void startServer() {
+            BenchSupport.silenceConsole();
+            server = BenchSupport.newServer();
+            server.getScheduler().start();
+            player1 = BenchSupport.login(server, "p1");
+            player2 = BenchSupport.login(server, "p2");
+        }
+
+        @Setup(Level.Iteration)
+        public void newSession() {
+            session = new GameSession(player1, player2, Integer.MAX_VALUE,
+                    (int) TimeUnit.HOURS.toMillis(1), 10_000, server, Runnable::run);
+            session.start();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RoomState {
+        @Param({"2", "16", "64"})
+        public int players;
+
+        Server server;
+        GameSession session;
+        ClientHandler[] members;
+
+        @Setup(Level.Trial)
+        public void startServer() {
+            BenchSupport.silenceConsole();
+            server = BenchSupport.newServer();
+            server.getScheduler().start();
+            members = new ClientHandler[players];
+            for (int i = 0; i < players; i++) {
+                members[i] = BenchSupport.login(server, "room" + i);
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void newSession() {
+            session = new GameSession(members, Integer.MAX_VALUE,
+                    (int) TimeUnit.HOURS.toMillis(1), 10_000, server, Runnable::run);
+            session.start();
+        }
+    }
+
+    @State(Scope.Group)
+    public static class ShardState {
+        Server server;
+        SessionEngine.Shard shard;
+        GameSession session;
+        ClientHandler player1;
+        ClientHandler player2;
+        // Chỉ đọc/ghi trên thread của shard
+        boolean restartPending;
+        Runnable restartIfProcessed;
+
+        @Setup(Level.Trial)
+        public void startServer() {
+            BenchSupport.silenceConsole();
+            server = BenchSupport.newServer();
+            server.getScheduler().start();
+            server.getSessionEngine().start();
+            player1 = BenchSupport.login(server, "p1");
+            player2 = BenchSupport.login(server, "p2");
+        }
+
+        @Setup(Level.Iteration)
+        public void newSession() {
+            shard = server.getSessionEngine().nextShard();
+            session = new GameSession(player1, player2, Integer.MAX_VALUE,
+                    (int) TimeUnit.HOURS.toMillis(1), 10_000, server, shard);
+            restartPending = false;
+            restartIfProcessed = () -> {
+                if (session.isRoundProcessed() && !restartPending) {
+                    restartPending = true;
+                    session.start();
+                    shard.execute(() -> restartPending = false);
+                }
+            };
+            session.start();
+        }
+
+        void answer(ClientHandler player) {
+            while (server.getSessionEngine().getQueuedTasks() > MAX_QUEUED_TASKS) {
+                Thread.onSpinWait();
+            }
+            session.setPlayerAnswer(player, "test");
+            shard.execute(restartIfProcessed);
+        }
+    }
+
+    @Benchmark
+    @Group("contendedAnswers")
+    @GroupThreads(1)
+    public void player1(ShardState state) {
+        state.answer(state.player1);
+    }
+
+    @Benchmark
+    @Group("contendedAnswers")
+    @GroupThreads(1)
+    public void player2(ShardState state) {
+        state.answer(state.player2);
+    }
+
+    // Một thread trả lời cho cả hai người rồi sang round mới, không qua hàng đợi
+    @Benchmark
+    public void inlineRound(InlineState state) {
+        state.session.setPlayerAnswer(state.player1, "test");
+        state.session.setPlayerAnswer(state.player2, "test");
+        state.session.start();
+    }
+
+    // Mọi người trong phòng trả lời rồi sang round mới
+    @Benchmark
+    public void roomRound(RoomState state) {
+        for (ClientHandler member : state.members) {
+            state.session.setPlayerAnswer(member, "test");
+        }
+        state.session.start();
+    }
+}
@@ -0,0 +1,65 @@
+package com.memorygame.server;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Tạo và mã hóa các tin nhắn gửi nhiều nhất trong một trận: NEW_ROUND và UPDATE_SCORE.
+ * broadcast* mô phỏng GameSession.broadcast cho hai người chơi (mã hóa một lần, hai view).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageEncodingBenchmark {
+    private final String phrase = "con mèo đen trèo cây cau";
+    private int round = 3;
+    private int p1Score = 1250;
+    private int p2Score = 980;
+
+    @Benchmark
+    public Object newRoundText() {
+        return Message.of(MessageProtocol.NEW_ROUND, round, phrase).encode(false);
+    }
+
+    @Benchmark
+    public Object newRoundBinary() {
+        return Message.of(MessageProtocol.NEW_ROUND, round, phrase).encode(true);
+    }
+
+    @Benchmark
+    public Object updateScoreText() {
+        return Message.of(MessageProtocol.UPDATE_SCORE, p1Score, p2Score).encode(false);
+    }
+
+    @Benchmark
+    public Object updateScoreBinary() {
+        return Message.of(MessageProtocol.UPDATE_SCORE, p1Score, p2Score).encode(true);
+    }
+
+    @Benchmark
+    public void broadcastNewRoundText(Blackhole bh) {
+        Message message = Message.of(MessageProtocol.NEW_ROUND, round, phrase);
+        bh.consume(message.encode(false));
+        bh.consume(message.encode(false));
+    }
+
+    @Benchmark
+    public void broadcastUpdateScoreBinary(Blackhole bh) {
+        Message message = Message.of(MessageProtocol.UPDATE_SCORE, p1Score, p2Score);
+        bh.consume(message.encode(true));
+        bh.consume(message.encode(true));
+    }
+}
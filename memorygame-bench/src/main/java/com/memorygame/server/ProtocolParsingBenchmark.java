@@ -0,0 +1,125 @@
+package com.memorygame.server;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Phân tích tin nhắn client gửi lên, cho mọi lệnh của MessageProtocol:
+ *   parseText    tách trường như ClientHandler.handleMessage (splitFields + parseInt)
+ *   parseBinary  đọc cùng lệnh đó ở dạng frame nhị phân
+ *   dispatch     đường đi đầy đủ qua ClientHandler.onLine tới Server, với những lệnh
+ *                lặp lại được (PRACTICE_REQUEST tạo trận mới nên chỉ đo phần phân tích)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProtocolParsingBenchmark {
+
+    // Tin nhắn mẫu của từng lệnh; Integer là trường số, String là trường chuỗi
+    static Object[] sampleFields(String command) {
+        switch (command) {
+            case MessageProtocol.LOGIN:
+                return new Object[] {"tuan", "123"};
+            case MessageProtocol.CHALLENGE_REQUEST:
+                return new Object[] {"hung", 5, 3000, 10000};
+            case MessageProtocol.CHALLENGE_RESPONSE:
+                return new Object[] {MessageProtocol.REJECT, "hung"};
+            case MessageProtocol.SUBMIT_ANSWER:
+                return new Object[] {"con mèo đen"};
+            case MessageProtocol.PRACTICE_REQUEST:
+            case MessageProtocol.MATCHMAKE:
+                return new Object[] {5, 3000, 10000};
+            default:
+                return new Object[0];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ParseState {
+        @Param({"LOGIN", "CHALLENGE_REQUEST", "CHALLENGE_RESPONSE", "SUBMIT_ANSWER", "PRACTICE_REQUEST",
+                "MATCHMAKE", "MATCHMAKE_CANCEL"})
+        public String command;
+
+        String line;
+        boolean[] numeric;
+        ByteBuffer frame;
+
+        @Setup
+        public void setup() {
+            Object[] fields = sampleFields(command);
+            Message message = Message.of(command, fields);
+            line = message.toText();
+            numeric = new boolean[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                numeric[i] = fields[i] instanceof Integer;
+            }
+            // readString đọc thẳng mảng của heap buffer nên không dùng bản chỉ đọc của Message.encode
+            frame = BinaryProtocol.encode(message);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class DispatchState {
+        @Param({"LOGIN", "CHALLENGE_REQUEST", "CHALLENGE_RESPONSE", "SUBMIT_ANSWER", "MATCHMAKE_CANCEL"})
+        public String command;
+
+        ClientHandler handler;
+        String line;
+
+        @Setup
+        public void setup() {
+            BenchSupport.silenceConsole();
+            Server server = BenchSupport.newServer();
+            BenchSupport.login(server, "hung");
+            handler = BenchSupport.login(server, "tuan");
+            line = Message.of(command, sampleFields(command)).toText();
+        }
+    }
+
+    @Benchmark
+    public void parseText(ParseState state, Blackhole bh) {
+        String[] parts = ClientHandler.splitFields(state.line);
+        bh.consume(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            if (state.numeric[i - 1]) {
+                bh.consume(Integer.parseInt(parts[i]));
+            } else {
+                bh.consume(parts[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void parseBinary(ParseState state, Blackhole bh) {
+        ByteBuffer frame = state.frame.duplicate();
+        BinaryProtocol.readVarint(frame); // độ dài frame
+        bh.consume(frame.get());
+        for (boolean numeric : state.numeric) {
+            if (numeric) {
+                bh.consume(BinaryProtocol.readVarint(frame));
+            } else {
+                bh.consume(BinaryProtocol.readString(frame));
+            }
+        }
+    }
+
+    @Benchmark
+    public void dispatch(DispatchState state) {
+        state.handler.onLine(state.line);
+    }
+}
@@ -0,0 +1,65 @@
+package com.memorygame.server;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tra cứu trong các map của Server khi có nhiều client online (mặc định 100k), từ 4 thread:
+ *   challengeRoundTrip  CHALLENGE_REQUEST tới một đối thủ ngẫu nhiên rồi đối thủ từ chối
+ *                       (onlineClients.get, pendingChallenges.put/remove)
+ *   answerOutsideGame   SUBMIT_ANSWER khi không ở trong trận (playerToSessionMap.get bị trượt)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(4)
+@State(Scope.Benchmark)
+public class ServerLookupBenchmark {
+    @Param({"100000"})
+    public int onlineClients;
+
+    Server server;
+    ClientHandler[] clients;
+    String[] usernames;
+
+    @Setup
+    public void setup() {
+        BenchSupport.silenceConsole();
+        server = BenchSupport.newServer();
+        clients = new ClientHandler[onlineClients];
+        usernames = new String[onlineClients];
+        for (int i = 0; i < onlineClients; i++) {
+            usernames[i] = "user" + i;
+            clients[i] = BenchSupport.login(server, usernames[i]);
+        }
+    }
+
+    @Benchmark
+    public void challengeRoundTrip() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String challenger = usernames[random.nextInt(onlineClients)];
+        String opponent = usernames[random.nextInt(onlineClients)];
+        server.handleChallengeRequest(challenger, opponent, 3, 3000, 10000);
+        server.handleChallengeResponse(opponent, MessageProtocol.REJECT, challenger);
+    }
+
+    @Benchmark
+    public void answerOutsideGame() {
+        server.handlePlayerAnswer(clients[ThreadLocalRandom.current().nextInt(onlineClients)], "test");
+    }
+}
@@ -10,6 +10,15 @@ public class Client {
     private static final int SERVER_PORT = 12345;
 
     public static void main(String[] args) {
+        // "load": chạy LoadGenerator không giao diện thay cho console
+        if (args.length > 0 && "load".equals(args[0])) {
+            try {
+                LoadGenerator.main(new String[0]);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
         try (Socket socket = new Socket(SERVER_ADDRESS, SERVER_PORT);
              PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
              BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
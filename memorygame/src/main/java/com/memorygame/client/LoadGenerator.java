@@ -0,0 +1,568 @@
+package com.memorygame.client;
+
+import com.memorygame.server.LatencyHistogram;
+import com.memorygame.server.MessageProtocol;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+
+/**
+ * Client không giao diện để tạo tải: mở N kết nối tới server trên localhost, đăng nhập, chơi
+ * thách đấu (từng cặp mời/chấp nhận) và luyện tập, trả lời NEW_ROUND đúng hoặc sai sau một thời gian
+ * phản xạ ngẫu nhiên, rồi in báo cáo độ trễ. Tất cả kết nối chạy trên một Selector duy nhất.
+ *
+ * Cấu hình bằng system property -Dmemorygame.load.xxx=... (xem fromSystemProperties), ví dụ:
+ *   java -Dmemorygame.load.clients=2000 com.memorygame.client.LoadGenerator
+ *
+ * Các số đo:
+ *   login          kết nối xong -> LOGIN_SUCCESS
+ *   practice/duel  SUBMIT_ANSWER -> UPDATE_SCORE (trận thách đấu tính từ câu trả lời sau cùng của cặp)
+ *   hide late      thời điểm HIDE_PHRASE đến so với NEW_ROUND + displayTime
+ *   hide skew      chênh lệch thời điểm hai người trong cùng trận nhận HIDE_PHRASE
+ *
+ * Ở chế độ cụm, client nhận LOGIN_REDIRECT thì kết nối lại tới node được chỉ và đăng nhập lại
+ * (thời gian đăng nhập tính cả bước chuyển hướng).
+ *
+ * Mỗi client cũng theo dõi version của danh sách online (ONLINE_LIST/ONLINE_DELTA) và xin lại
+ * snapshot khi thấy thiếu delta; báo cáo đếm số snapshot, delta và lần resync.
+ */
+public class LoadGenerator {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    // Cấu hình
+    private final String host;
+    private final int port;
+    private final int clients;
+    private final int games;
+    private final int rounds;
+    private final int displayTime;
+    private final int waitTime;
+    private final double practiceRatio;
+    private final double correctRatio;
+    private final double reactionMedianMillis;
+    private final double reactionSigma;
+    private final boolean reconnectStorm;
+    private final long timeoutMillis;
+    private final String reportPath;
+
+    private final Random random = new Random();
+    private final Selector selector;
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private final PriorityQueue<Scheduled> timers = new PriorityQueue<>();
+    private final List<Player> players = new ArrayList<>();
+
+    private final LatencyHistogram loginLatency = new LatencyHistogram();
+    private final LatencyHistogram reconnectLatency = new LatencyHistogram();
+    private final LatencyHistogram practiceLatency = new LatencyHistogram();
+    private final LatencyHistogram duelLatency = new LatencyHistogram();
+    private final LatencyHistogram hideLateness = new LatencyHistogram();
+    private final LatencyHistogram hideSkew = new LatencyHistogram();
+
+    private int loggedIn;
+    private int loginFailures;
+    private int finishedPlayers;
+    private int gamesStarted;
+    private int gamesCompleted;
+    private int forfeits;
+    private int correctAnswers;
+    private int wrongAnswers;
+    private int connectFailures;
+    private int disconnects;
+    private int redirects;
+    private int presenceSnapshots;
+    private int presenceDeltas;
+    private int presenceResyncs;
+    private boolean reconnecting;
+
+    public LoadGenerator(String host, int port, int clients, int games, int rounds, int displayTime, int waitTime,
+                         double practiceRatio, double correctRatio, double reactionMedianMillis, double reactionSigma,
+                         boolean reconnectStorm, long timeoutMillis, String reportPath) throws IOException {
+        this.host = host;
+        this.port = port;
+        this.clients = clients;
+        this.games = games;
+        this.rounds = rounds;
+        this.displayTime = displayTime;
+        this.waitTime = waitTime;
+        this.practiceRatio = practiceRatio;
+        this.correctRatio = correctRatio;
+        this.reactionMedianMillis = reactionMedianMillis;
+        this.reactionSigma = reactionSigma;
+        this.reconnectStorm = reconnectStorm;
+        this.timeoutMillis = timeoutMillis;
+        this.reportPath = reportPath;
+        this.selector = Selector.open();
+    }
+
+    public static LoadGenerator fromSystemProperties() throws IOException {
+        return new LoadGenerator(
+                System.getProperty("memorygame.load.host", "127.0.0.1"),
+                Integer.getInteger("memorygame.load.port", 12345),
+                Integer.getInteger("memorygame.load.clients", 1000),
+                Integer.getInteger("memorygame.load.games", 1),
+                Integer.getInteger("memorygame.load.rounds", 3),
+                Integer.getInteger("memorygame.load.displayTime", 1000),
+                Integer.getInteger("memorygame.load.waitTime", 5000),
+                Double.parseDouble(System.getProperty("memorygame.load.practiceRatio", "0.2")),
+                Double.parseDouble(System.getProperty("memorygame.load.correctRatio", "0.8")),
+                Double.parseDouble(System.getProperty("memorygame.load.reactionMedianMillis", "800")),
+                Double.parseDouble(System.getProperty("memorygame.load.reactionSigma", "0.5")),
+                Boolean.getBoolean("memorygame.load.reconnectStorm"),
+                Long.getLong("memorygame.load.timeoutSeconds", 300) * 1000,
+                System.getProperty("memorygame.load.report"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        LoadGenerator generator = fromSystemProperties();
+        generator.run();
+        generator.printReport();
+    }
+
+    public void run() throws IOException {
+        // Cặp (2k, 2k+1) chơi thách đấu, phần còn lại luyện tập; người lẻ cuối cùng luyện tập
+        int practicePlayers = (int) Math.round(clients * practiceRatio);
+        int duelPlayers = (clients - practicePlayers) / 2 * 2;
+        for (int i = 0; i < clients; i++) {
+            players.add(new Player(i, i >= duelPlayers));
+        }
+        for (int i = 0; i + 1 < duelPlayers; i += 2) {
+            Duel duel = new Duel();
+            players.get(i).duel = duel;
+            players.get(i + 1).duel = duel;
+            players.get(i).opponent = players.get(i + 1);
+            players.get(i + 1).opponent = players.get(i);
+        }
+
+        long start = System.currentTimeMillis();
+        System.out.println("Opening " + clients + " connections to " + host + ":" + port + "...");
+        for (Player player : players) {
+            player.connect();
+        }
+        loop(start, () -> finishedPlayers >= clients);
+        System.out.printf("Games finished after %.1f s.%n", (System.currentTimeMillis() - start) / 1000.0);
+
+        if (reconnectStorm) {
+            // Đóng tất cả rồi kết nối lại cùng lúc, chỉ đo thời gian đăng nhập
+            reconnecting = true;
+            loggedIn = 0;
+            for (Player player : players) {
+                player.close();
+            }
+            long stormStart = System.currentTimeMillis();
+            for (Player player : players) {
+                player.connect();
+            }
+            loop(stormStart, () -> loggedIn + loginFailures >= clients);
+            System.out.printf("Reconnect storm finished after %.1f s.%n", (System.currentTimeMillis() - stormStart) / 1000.0);
+        }
+
+        for (Player player : players) {
+            player.close();
+        }
+        selector.close();
+    }
+
+    private interface Condition {
+        boolean done();
+    }
+
+    private void loop(long start, Condition condition) throws IOException {
+        while (!condition.done()) {
+            long now = System.currentTimeMillis();
+            if (now - start > timeoutMillis) {
+                System.out.println("Timed out with " + (clients - finishedPlayers) + " players unfinished.");
+                return;
+            }
+            Scheduled next;
+            while ((next = timers.peek()) != null && next.at <= now) {
+                timers.poll().task.run();
+            }
+            long wait = next == null ? 100 : Math.max(1, next.at - now);
+            selector.select(Math.min(wait, 100));
+            for (SelectionKey key : selector.selectedKeys()) {
+                Player player = (Player) key.attachment();
+                try {
+                    if (key.isConnectable()) {
+                        player.finishConnect();
+                    } else {
+                        if (key.isWritable()) player.flush();
+                        if (key.isValid() && key.isReadable()) player.read();
+                    }
+                } catch (IOException e) {
+                    player.fail(e);
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+    }
+
+    private void schedule(long delayMillis, Runnable task) {
+        timers.add(new Scheduled(System.currentTimeMillis() + delayMillis, task));
+    }
+
+    // Thời gian phản xạ phân phối log-normal: trung vị reactionMedianMillis, độ lệch reactionSigma
+    private long sampleReactionMillis() {
+        return Math.round(reactionMedianMillis * Math.exp(reactionSigma * random.nextGaussian()));
+    }
+
+    public void printReport() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("clients=" + clients + " loggedIn=" + (reconnecting ? clients - loginFailures : loggedIn)
+                + " loginFailures=" + loginFailures + " connectFailures=" + connectFailures
+                + " disconnects=" + disconnects + " redirects=" + redirects);
+        lines.add("gamesStarted=" + gamesStarted + " gamesCompleted=" + gamesCompleted + " forfeits=" + forfeits
+                + " correctAnswers=" + correctAnswers + " wrongAnswers=" + wrongAnswers);
+        lines.add("presence snapshots=" + presenceSnapshots + " deltas=" + presenceDeltas
+                + " resyncs=" + presenceResyncs);
+        lines.add("login " + loginLatency.summary());
+        if (reconnectStorm) {
+            lines.add("reconnect " + reconnectLatency.summary());
+        }
+        lines.add("practice submit->score " + practiceLatency.summary());
+        lines.add("duel submit->score " + duelLatency.summary());
+        lines.add("hide late " + hideLateness.summary());
+        lines.add("hide skew " + hideSkew.summary());
+
+        System.out.println("==== Load report ====");
+        for (String line : lines) {
+            System.out.println(line);
+        }
+        if (reportPath != null) {
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(reportPath), StandardCharsets.UTF_8))) {
+                lines.forEach(out::println);
+            }
+        }
+    }
+
+    private static final class Scheduled implements Comparable<Scheduled> {
+        final long at;
+        final Runnable task;
+
+        Scheduled(long at, Runnable task) {
+            this.at = at;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Scheduled other) {
+            return Long.compare(at, other.at);
+        }
+    }
+
+    // Trạng thái chung của hai người trong một trận thách đấu
+    private static final class Duel {
+        long lastSubmitAt;
+        long firstHideAt;
+        int hideRound;
+        int submitted;
+    }
+
+    private final class Player {
+        final int id;
+        final String username;
+        final boolean practice;
+        Duel duel;
+        Player opponent;
+
+        // Node giữ user này; đổi khi nhận LOGIN_REDIRECT
+        String serverHost = host;
+        int serverPort = port;
+        SocketChannel channel;
+        SelectionKey key;
+        final Queue<ByteBuffer> outbound = new ArrayDeque<>();
+        byte[] partial = new byte[256];
+        int partialLength;
+
+        long connectedAt;
+        boolean online;
+        // Version danh sách online đã áp dụng, -1 khi chưa có snapshot hoặc đang chờ snapshot mới
+        int presenceVersion = -1;
+        boolean resyncPending;
+        int gamesLeft;
+        boolean inGame;
+        boolean finished;
+        int round;
+        String phrase;
+        long newRoundAt;
+        long submitAt;
+
+        Player(int id, boolean practice) {
+            this.id = id;
+            this.username = "load" + id;
+            this.practice = practice;
+            this.gamesLeft = games;
+        }
+
+        void connect() {
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.connect(new InetSocketAddress(serverHost, serverPort));
+                key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+                connectedAt = System.currentTimeMillis();
+                partialLength = 0;
+                outbound.clear();
+                presenceVersion = -1;
+                resyncPending = false;
+            } catch (IOException e) {
+                connectFailures++;
+                markFinished();
+            }
+        }
+
+        void finishConnect() throws IOException {
+            channel.finishConnect();
+            key.interestOps(SelectionKey.OP_READ);
+            send(MessageProtocol.LOGIN + "|" + username + "|load");
+        }
+
+        void send(String line) {
+            outbound.add(ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8)));
+            try {
+                flush();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        void flush() throws IOException {
+            ByteBuffer buffer;
+            while ((buffer = outbound.peek()) != null) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                outbound.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        void read() throws IOException {
+            readBuffer.clear();
+            int n = channel.read(readBuffer);
+            if (n < 0) {
+                throw new IOException("Connection closed by server");
+            }
+            readBuffer.flip();
+            while (readBuffer.hasRemaining()) {
+                byte b = readBuffer.get();
+                if (b == '\n') {
+                    onLine(new String(partial, 0, partialLength, StandardCharsets.UTF_8));
+                    partialLength = 0;
+                } else {
+                    if (partialLength == partial.length) {
+                        byte[] grown = new byte[partial.length * 2];
+                        System.arraycopy(partial, 0, grown, 0, partialLength);
+                        partial = grown;
+                    }
+                    partial[partialLength++] = b;
+                }
+            }
+        }
+
+        void onLine(String line) {
+            long now = System.currentTimeMillis();
+            // ONLINE_LIST/ONLINE_DELTA có thể rất dài, chỉ cần vài trường đầu
+            String[] parts = line.split("\\|", 5);
+            switch (parts[0]) {
+                case MessageProtocol.LOGIN_SUCCESS:
+                    (reconnecting ? reconnectLatency : loginLatency).recordMicros((now - connectedAt) * 1000);
+                    loggedIn++;
+                    online = true;
+                    if (!reconnecting) {
+                        onLoggedIn();
+                    }
+                    break;
+
+                case MessageProtocol.LOGIN_REDIRECT: {
+                    long startedAt = connectedAt;
+                    redirects++;
+                    close();
+                    serverHost = parts[1];
+                    serverPort = Integer.parseInt(parts[2]);
+                    connect();
+                    connectedAt = startedAt;
+                    break;
+                }
+
+                case MessageProtocol.LOGIN_FAIL:
+                    loginFailures++;
+                    markFinished();
+                    break;
+
+                case MessageProtocol.INVITATION:
+                    send(MessageProtocol.CHALLENGE_RESPONSE + "|" + MessageProtocol.ACCEPT + "|" + parts[1]);
+                    break;
+
+                case MessageProtocol.CHALLENGE_REJECTED:
+                    // Đối thủ chưa sẵn sàng, thử lại sau
+                    inGame = false;
+                    schedule(500, this::startGame);
+                    break;
+
+                case MessageProtocol.NEW_ROUND:
+                    if (!inGame) {
+                        inGame = true;
+                        if (practice || id % 2 == 0) gamesStarted++;
+                    }
+                    round = Integer.parseInt(parts[1]);
+                    phrase = parts[2];
+                    newRoundAt = now;
+                    submitAt = 0;
+                    if (duel != null) duel.submitted = 0;
+                    break;
+
+                case MessageProtocol.HIDE_PHRASE:
+                    onHidePhrase(now);
+                    break;
+
+                case MessageProtocol.UPDATE_SCORE:
+                    if (submitAt != 0) {
+                        if (practice) {
+                            practiceLatency.recordMicros((now - submitAt) * 1000);
+                        } else if (duel.submitted == 2 && id % 2 == 0) {
+                            duelLatency.recordMicros((now - duel.lastSubmitAt) * 1000);
+                        }
+                    }
+                    submitAt = 0;
+                    break;
+
+                case MessageProtocol.GAME_RESULT:
+                    onGameResult(parts[1]);
+                    break;
+
+                case MessageProtocol.ONLINE_LIST:
+                    // version|trang|số trang: chỉ nhận version khi đã đủ trang cuối
+                    if (Integer.parseInt(parts[2]) == Integer.parseInt(parts[3]) - 1) {
+                        presenceVersion = Integer.parseInt(parts[1]);
+                        resyncPending = false;
+                        presenceSnapshots++;
+                    }
+                    break;
+
+                case MessageProtocol.ONLINE_DELTA:
+                    onPresenceDelta(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                    break;
+
+                default:
+                    break;
+            }
+        }
+
+        void onPresenceDelta(int fromVersion, int toVersion) {
+            if (resyncPending || presenceVersion < 0) return;
+            if (fromVersion != presenceVersion) {
+                // Thiếu delta: bỏ danh sách hiện có, chờ snapshot mới
+                presenceResyncs++;
+                resyncPending = true;
+                send(MessageProtocol.ONLINE_LIST_REQUEST);
+                return;
+            }
+            presenceVersion = toVersion;
+            presenceDeltas++;
+        }
+
+        void onLoggedIn() {
+            // Người mời đợi một chút để đối thủ kịp đăng nhập
+            if (practice) {
+                startGame();
+            } else if (id % 2 == 0) {
+                schedule(200, this::startGame);
+            }
+        }
+
+        void startGame() {
+            if (practice) {
+                send(MessageProtocol.PRACTICE_REQUEST + "|" + rounds + "|" + displayTime + "|" + waitTime);
+            } else if (id % 2 == 0) {
+                if (!opponent.online) {
+                    // Đối thủ chưa đăng nhập xong (có thể đang chuyển sang node khác của cụm)
+                    schedule(200, this::startGame);
+                    return;
+                }
+                send(MessageProtocol.CHALLENGE_REQUEST + "|" + opponent.username + "|" + rounds + "|"
+                        + displayTime + "|" + waitTime);
+            }
+        }
+
+        void onHidePhrase(long now) {
+            hideLateness.recordMicros(Math.abs(now - newRoundAt - displayTime) * 1000);
+            if (duel != null) {
+                if (duel.hideRound != round) {
+                    duel.hideRound = round;
+                    duel.firstHideAt = now;
+                } else {
+                    hideSkew.recordMicros((now - duel.firstHideAt) * 1000);
+                }
+            }
+            int answeredRound = round;
+            schedule(sampleReactionMillis(), () -> submitAnswer(answeredRound));
+        }
+
+        void submitAnswer(int answeredRound) {
+            if (!inGame || round != answeredRound || channel == null || !channel.isOpen()) return;
+            boolean correct = random.nextDouble() < correctRatio;
+            if (correct) correctAnswers++; else wrongAnswers++;
+            submitAt = System.currentTimeMillis();
+            if (duel != null) {
+                duel.lastSubmitAt = submitAt;
+                duel.submitted++;
+            }
+            send(MessageProtocol.SUBMIT_ANSWER + "|" + (correct ? phrase : phrase + "x"));
+        }
+
+        void onGameResult(String result) {
+            inGame = false;
+            if (practice || id % 2 == 0) gamesCompleted++;
+            if (MessageProtocol.WIN_FORFEIT.equals(result)) forfeits++;
+            gamesLeft--;
+            if (gamesLeft > 0) {
+                schedule(100, this::startGame);
+            } else {
+                markFinished();
+            }
+        }
+
+        void markFinished() {
+            if (!finished) {
+                finished = true;
+                finishedPlayers++;
+            }
+        }
+
+        void fail(IOException e) {
+            disconnects++;
+            close();
+            markFinished();
+            if (reconnecting) loginFailures++;
+        }
+
+        void close() {
+            online = false;
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // bỏ qua
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.memorygame.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cổng admin chỉ lắng nghe trên loopback: mỗi kết nối nhận báo cáo của Metrics.report() rồi bị đóng,
+ * ví dụ "nc 127.0.0.1 12346". Chạy trên một daemon thread riêng, không đụng tới transport chính.
+ */
+public class AdminEndpoint {
+    private final Server server;
+    private final int port;
+
+    public AdminEndpoint(Server server, int port) {
+        this.server = server;
+        this.port = port;
+    }
+
+    public void start() throws IOException {
+        ServerSocket serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        Thread thread = new Thread(() -> acceptLoop(serverSocket), "admin-endpoint");
+        thread.setDaemon(true);
+        thread.start();
+        Log.info("Admin endpoint is listening on 127.0.0.1:{}", port);
+    }
+
+    private void acceptLoop(ServerSocket serverSocket) {
+        while (true) {
+            try (Socket socket = serverSocket.accept()) {
+                OutputStream out = socket.getOutputStream();
+                StringBuilder sb = new StringBuilder();
+                for (String line : Metrics.report(server)) {
+                    sb.append(line).append('\n');
+                }
+                out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            } catch (IOException e) {
+                Log.warn("Admin endpoint error: {}", e.getMessage());
+            }
+        }
+    }
+}
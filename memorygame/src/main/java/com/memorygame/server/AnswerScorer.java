@@ -0,0 +1,24 @@
+package com.memorygame.server;
+
+/**
+ * Chấm một câu trả lời so với cụm từ của round. GameSession nhân điểm của round (theo độ dài cụm
+ * từ và thời gian còn lại) với credit / FULL_CREDIT. Được gọi trên thread của shard cho từng ghế
+ * nên cài đặt phải an toàn khi nhiều shard gọi cùng lúc và không cấp phát cho mỗi lần chấm.
+ */
+public interface AnswerScorer {
+    int FULL_CREDIT = 1000;
+
+    // Từ 0 (sai hẳn) tới FULL_CREDIT (đúng); answer khác null
+    int credit(String phrase, String answer);
+
+    // Ngược với toString() của các cài đặt: "EXACT" hoặc "FUZZY:<phần trăm>"
+    static AnswerScorer parse(String spec) {
+        if (spec.startsWith("FUZZY:")) {
+            return new FuzzyAnswerScorer(Integer.parseInt(spec.substring("FUZZY:".length())));
+        }
+        if ("EXACT".equals(spec)) {
+            return new ExactAnswerScorer();
+        }
+        throw new IllegalArgumentException("Unknown answer scorer " + spec);
+    }
+}
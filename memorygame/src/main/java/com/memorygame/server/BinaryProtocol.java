@@ -0,0 +1,213 @@
+package com.memorygame.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Giao thức nhị phân, chọn lúc LOGIN (LOGIN|user|pass|BINARY). Sau LOGIN_SUCCESS (gửi dạng văn bản)
+ * cả hai chiều chuyển sang frame:
+ *
+ *   varint độ dài | 1 byte opcode | các trường
+ *
+ * Trường số là varint (không âm), trường chuỗi là varint độ dài + UTF-8. Kiểu các trường của mỗi
+ * opcode cố định theo SCHEMAS: 'I' là số, 'S' là chuỗi, '*' ở cuối nghĩa là lặp lại kiểu trước đó
+ * đến hết frame.
+ */
+public final class BinaryProtocol {
+    public static final int MAX_FRAME_LENGTH = 64 * 1024;
+
+    // Client to Server
+    public static final byte LOGIN = 0x01;
+    public static final byte PRACTICE_REQUEST = 0x02;
+    public static final byte CHALLENGE_REQUEST = 0x03;
+    public static final byte CHALLENGE_RESPONSE = 0x04;
+    public static final byte SUBMIT_ANSWER = 0x05;
+    public static final byte LOGOUT = 0x06;
+    public static final byte MATCHMAKE = 0x07;
+    public static final byte MATCHMAKE_CANCEL = 0x08;
+    public static final byte STATS = 0x09;
+    public static final byte ONLINE_LIST_REQUEST = 0x0A;
+    public static final byte ROOM_CREATE = 0x0B;
+    public static final byte ROOM_JOIN = 0x0C;
+    public static final byte ROOM_LEAVE = 0x0D;
+    public static final byte ROOM_START = 0x0E;
+    public static final byte SPECTATE = 0x0F;
+    public static final byte SPECTATE_STOP = 0x10;
+    public static final byte RESUME = 0x11;
+
+    // Server to Client
+    public static final byte LOGIN_SUCCESS = 0x41;
+    public static final byte LOGIN_FAIL = 0x42;
+    public static final byte ONLINE_LIST = 0x43;
+    public static final byte INVITATION = 0x44;
+    public static final byte GAME_START = 0x45;
+    public static final byte NEW_ROUND = 0x46;
+    public static final byte HIDE_PHRASE = 0x47;
+    public static final byte UPDATE_SCORE = 0x48;
+    public static final byte GAME_RESULT = 0x49;
+    public static final byte CHALLENGE_REJECTED = 0x4A;
+    public static final byte MATCHMAKE_QUEUED = 0x4B;
+    public static final byte MATCH_FOUND = 0x4C;
+    public static final byte STATS_REPORT = 0x4D;
+    public static final byte ONLINE_DELTA = 0x4E;
+    public static final byte ROOM_STATE = 0x4F;
+    public static final byte ROOM_CLOSED = 0x50;
+    public static final byte SPECTATE_START = 0x51;
+    public static final byte SPECTATE_END = 0x52;
+    public static final byte LOGIN_REDIRECT = 0x53;
+    public static final byte RESUME_STATE = 0x54;
+
+    private static final String[] COMMANDS = new String[128];
+    private static final String[] SCHEMAS = new String[128];
+    private static final Map<String, Byte> OPCODES = new HashMap<>();
+
+    static {
+        define(LOGIN, MessageProtocol.LOGIN, "SS");
+        define(PRACTICE_REQUEST, MessageProtocol.PRACTICE_REQUEST, "III");
+        define(CHALLENGE_REQUEST, MessageProtocol.CHALLENGE_REQUEST, "SIII");
+        define(CHALLENGE_RESPONSE, MessageProtocol.CHALLENGE_RESPONSE, "SS");
+        define(SUBMIT_ANSWER, MessageProtocol.SUBMIT_ANSWER, "S");
+        define(LOGOUT, MessageProtocol.LOGOUT, "");
+        define(MATCHMAKE, MessageProtocol.MATCHMAKE, "III");
+        define(MATCHMAKE_CANCEL, MessageProtocol.MATCHMAKE_CANCEL, "");
+        define(STATS, MessageProtocol.STATS, "");
+        define(ONLINE_LIST_REQUEST, MessageProtocol.ONLINE_LIST_REQUEST, "");
+        define(ROOM_CREATE, MessageProtocol.ROOM_CREATE, "IIII");
+        define(ROOM_JOIN, MessageProtocol.ROOM_JOIN, "I");
+        define(ROOM_LEAVE, MessageProtocol.ROOM_LEAVE, "");
+        define(ROOM_START, MessageProtocol.ROOM_START, "");
+        define(SPECTATE, MessageProtocol.SPECTATE, "S");
+        define(SPECTATE_STOP, MessageProtocol.SPECTATE_STOP, "");
+        define(RESUME, MessageProtocol.RESUME, "SS");
+
+        define(LOGIN_SUCCESS, MessageProtocol.LOGIN_SUCCESS, "S");
+        define(LOGIN_FAIL, MessageProtocol.LOGIN_FAIL, "");
+        define(ONLINE_LIST, MessageProtocol.ONLINE_LIST, "IIIS*");
+        define(INVITATION, MessageProtocol.INVITATION, "S");
+        define(GAME_START, MessageProtocol.GAME_START, "");
+        define(NEW_ROUND, MessageProtocol.NEW_ROUND, "IS");
+        define(HIDE_PHRASE, MessageProtocol.HIDE_PHRASE, "");
+        define(UPDATE_SCORE, MessageProtocol.UPDATE_SCORE, "I*");
+        define(GAME_RESULT, MessageProtocol.GAME_RESULT, "S");
+        define(CHALLENGE_REJECTED, MessageProtocol.CHALLENGE_REJECTED, "S");
+        define(MATCHMAKE_QUEUED, MessageProtocol.MATCHMAKE_QUEUED, "I");
+        define(MATCH_FOUND, MessageProtocol.MATCH_FOUND, "SI");
+        define(STATS_REPORT, MessageProtocol.STATS_REPORT, "S*");
+        define(ONLINE_DELTA, MessageProtocol.ONLINE_DELTA, "IIS*");
+        define(ROOM_STATE, MessageProtocol.ROOM_STATE, "IIS*");
+        define(ROOM_CLOSED, MessageProtocol.ROOM_CLOSED, "I");
+        define(SPECTATE_START, MessageProtocol.SPECTATE_START, "S*");
+        define(SPECTATE_END, MessageProtocol.SPECTATE_END, "");
+        define(LOGIN_REDIRECT, MessageProtocol.LOGIN_REDIRECT, "SI");
+        define(RESUME_STATE, MessageProtocol.RESUME_STATE, "IISSIIII*");
+    }
+
+    private BinaryProtocol() {
+    }
+
+    private static void define(byte opcode, String command, String schema) {
+        COMMANDS[opcode] = command;
+        SCHEMAS[opcode] = schema;
+        OPCODES.put(command, opcode);
+    }
+
+    public static byte opcodeOf(String command) {
+        Byte opcode = OPCODES.get(command);
+        if (opcode == null) {
+            throw new IllegalArgumentException("No opcode for command " + command);
+        }
+        return opcode;
+    }
+
+    public static String commandOf(byte opcode) {
+        return opcode >= 0 ? COMMANDS[opcode] : null;
+    }
+
+    // Kiểu của trường thứ index theo schema, hoặc 0 nếu schema không cho phép trường đó
+    static char fieldType(String schema, int index) {
+        if (index < schema.length() && schema.charAt(index) != '*') {
+            return schema.charAt(index);
+        }
+        if (schema.endsWith("*") && schema.length() >= 2) {
+            return schema.charAt(schema.length() - 2);
+        }
+        return 0;
+    }
+
+    // Mã hóa thành một frame hoàn chỉnh (gồm cả tiền tố độ dài)
+    public static ByteBuffer encode(Message message) {
+        byte opcode = opcodeOf(message.getCommand());
+        String schema = SCHEMAS[opcode];
+
+        int fieldCount = message.getFieldCount();
+        byte[][] strings = new byte[fieldCount][];
+        int bodyLength = 1;
+        for (int i = 0; i < fieldCount; i++) {
+            char type = fieldType(schema, i);
+            if (type == 'I') {
+                bodyLength += varintSize(message.getInt(i));
+            } else if (type == 'S') {
+                strings[i] = String.valueOf(message.getField(i)).getBytes(StandardCharsets.UTF_8);
+                bodyLength += varintSize(strings[i].length) + strings[i].length;
+            } else {
+                throw new IllegalArgumentException("Too many fields for " + message.getCommand());
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(varintSize(bodyLength) + bodyLength);
+        writeVarint(buffer, bodyLength);
+        buffer.put(opcode);
+        for (int i = 0; i < fieldCount; i++) {
+            if (strings[i] == null) {
+                writeVarint(buffer, message.getInt(i));
+            } else {
+                writeVarint(buffer, strings[i].length);
+                buffer.put(strings[i]);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    public static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    public static void writeVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    // Đọc chuỗi UTF-8 trực tiếp từ buffer (frame luôn nằm trong heap buffer)
+    public static String readString(ByteBuffer buffer) {
+        int length = readVarint(buffer);
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("String length exceeds frame");
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
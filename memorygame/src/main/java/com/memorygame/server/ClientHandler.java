@@ -2,95 +2,420 @@ package com.memorygame.server;
 
 import java.io.*;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ClientHandler implements Runnable, Player {
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    // Tin nhắn sai định dạng có thể đến hàng loạt từ một client lỗi
+    private static final Log.Sampler BAD_INPUT = new Log.Sampler("bad client input", 20);
 
-public class ClientHandler implements Runnable {
     private Socket clientSocket;
-    private PrintWriter out;
-    private BufferedReader in;
-    private String username;
+    private Connection connection;
+    // Được gán từ thread của pool băm mật khẩu khi LOGIN thành công
+    private volatile String username;
     private Server server;
+    // Giao thức được chọn lúc LOGIN: false = văn bản, true = frame nhị phân
+    private volatile boolean binary;
+    // Ghế trong GameSession hiện tại, do session gán lúc tạo
+    private volatile int seat = -1;
+    // Giới hạn tốc độ và hạn LOGIN/idle của kết nối; chế độ blocking mở trong run()
+    private InboundLimiter.Guard guard;
+    // Đăng ký sau LOGIN (thread của pool băm) và đóng kết nối loại trừ nhau, xem completeLogin()
+    private final Object loginLock = new Object();
+    private boolean closed;
+    // Đang chờ pool băm xác thực; chỉ thread đọc đặt, callback xóa khi thất bại
+    private volatile boolean loginPending;
 
+    // Chế độ blocking: handler tự đọc socket trong run()
     public ClientHandler(Socket socket, Server server) {
         this.clientSocket = socket;
         this.server = server;
     }
 
+    // Chế độ NIO: transport đọc dữ liệu và gọi onLine()/onFrame()/onDisconnect()
+    public ClientHandler(Connection connection, Server server) {
+        this.connection = connection;
+        this.server = server;
+        this.guard = server.getInboundLimiter().open(this, connection);
+    }
+
     @Override
     public void run() {
         try {
-            out = new PrintWriter(clientSocket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
+            connection = new SocketConnection(clientSocket, server.getOutboundWriter(), server.getOutboundLimiter());
+            guard = server.getInboundLimiter().open(this, connection);
+            InputStream in = clientSocket.getInputStream();
+            InboundDecoder decoder = new InboundDecoder(this, server.getInboundLimiter());
+            byte[] readBuffer = new byte[READ_BUFFER_SIZE];
 
-            String inputLine;
+            int n;
             // Vòng lặp vô tận để lắng nghe tin nhắn từ client
-            while ((inputLine = in.readLine()) != null) {
-                System.out.println("Received from client " + username + ": " + inputLine);
-                handleMessage(inputLine);
+            while ((n = in.read(readBuffer)) != -1) {
+                if (!decoder.feed(ByteBuffer.wrap(readBuffer, 0, n))) {
+                    Log.warn("Client {} violated the protocol. Closing connection.", username);
+                    break;
+                }
             }
         } catch (IOException e) {
-            System.out.println("Client " + username + " disconnected.");
+            Log.debug("Client {} disconnected.", username);
+        } catch (RuntimeException e) {
+            Log.error("Error handling message from {}", username, e);
         } finally {
             // Xử lý khi client ngắt kết nối
-            server.removeClient(this);
+            onDisconnect();
             try {
                 clientSocket.close();
             } catch (IOException e) {
-                e.printStackTrace();
+                Log.warn("Could not close socket of {}: {}", username, e.getMessage());
             }
         }
     }
 
+    void onLine(String inputLine) {
+        Log.trace("Received from client {}: {}", username, inputLine);
+        handleMessage(inputLine);
+    }
+
+    void onDisconnect() {
+        synchronized (loginLock) {
+            closed = true;
+        }
+        if (guard != null) {
+            guard.close();
+        }
+        server.removeClient(this);
+    }
+
+    boolean isBinary() {
+        return binary;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    // Đóng kết nối từ phía server; onDisconnect() chạy như khi client tự ngắt. Chưa mở kết nối
+    // (chế độ blocking trước run()) thì không làm gì
+    @Override
+    public void closeConnection() {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    // Đang chơi (ở node này hoặc node khác) hoặc đang xem một trận; InboundLimiter không đóng kết nối
+    // idle của những client này
+    boolean isInGame() {
+        String user = username;
+        return user != null && (server.isPlaying(user) || server.isSpectating(user));
+    }
+
+    // Tách theo SEPARATOR bằng indexOf, tránh String.split() (biên dịch regex mỗi lần)
+    static String[] splitFields(String message) {
+        List<String> parts = new ArrayList<>(5);
+        int start = 0;
+        int end;
+        while ((end = message.indexOf(MessageProtocol.SEPARATOR, start)) >= 0) {
+            parts.add(message.substring(start, end));
+            start = end + MessageProtocol.SEPARATOR.length();
+        }
+        parts.add(message.substring(start));
+        return parts.toArray(new String[0]);
+    }
+
     private void handleMessage(String message) {
-        String[] parts = message.split("\\" + MessageProtocol.SEPARATOR);
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        String[] parts = splitFields(message);
         String command = parts[0];
+        // Tin nhắn vượt giới hạn bị bỏ trước khi tới Server
+        if (guard != null && !guard.allow(InboundLimiter.commandClass(command))) {
+            return;
+        }
+        // Chưa đăng nhập thì chỉ nhận LOGIN/RESUME
+        if (username == null && !MessageProtocol.LOGIN.equals(command) && !MessageProtocol.RESUME.equals(command)) {
+            if (BAD_INPUT.allow()) Log.warn("Ignoring {} before login from {}", command, connection.getRemoteAddress());
+            return;
+        }
 
-        switch (command) {
-            case MessageProtocol.LOGIN:
-                // server.authenticateUser() luôn trả về true (để test)
-                boolean isAuthenticated = server.authenticateUser(parts[1], parts[2]);
-                if (isAuthenticated) {
-                    this.username = parts[1];
-                    server.addClient(this);
-                    sendMessage(MessageProtocol.LOGIN_SUCCESS);
-                } else {
-                    sendMessage(MessageProtocol.LOGIN_FAIL);
-                }
+        try {
+            switch (command) {
+                case MessageProtocol.LOGIN:
+                    // parts[3] (tùy chọn): giao thức muốn dùng sau khi đăng nhập
+                    boolean wantsBinary = parts.length > 3 && MessageProtocol.PROTOCOL_BINARY.equals(parts[3]);
+                    handleLogin(parts[1], parts[2], wantsBinary);
+                    break;
+
+                case MessageProtocol.RESUME:
+                    // parts[1]: user, parts[2]: resume token của lần LOGIN_SUCCESS trước, parts[3] (tùy chọn): giao thức
+                    handleResume(parts[1], parts[2],
+                            parts.length > 3 && MessageProtocol.PROTOCOL_BINARY.equals(parts[3]));
+                    break;
+
+                case MessageProtocol.CHALLENGE_REQUEST:
+                    // parts[1]: đối thủ, parts[2]: số round, parts[3]: thời gian hiển thị từ, parts[4]: thời gian chờ
+                    server.handleChallengeRequest(this.username, parts[1],
+                            Integer.parseInt(parts[2]), Integer.parseInt(parts[3]), Integer.parseInt(parts[4]));
+                    break;
+
+                case MessageProtocol.CHALLENGE_RESPONSE:
+                    // parts[1]: "ACCEPT" hoặc "REJECT", parts[2]: người thách đấu
+                    server.handleChallengeResponse(this.username, parts[1], parts[2]);
+                    break;
+
+                case MessageProtocol.SUBMIT_ANSWER:
+                    // parts[1]: câu trả lời
+                    server.handlePlayerAnswer(this, parts[1]);
+                    break;
+
+                case MessageProtocol.PRACTICE_REQUEST:
+                    // parts[1]: số round, parts[2]: thời gian hiển thị từ, parts[3]: thời gian chờ
+                    server.handlePracticeRequest(this,
+                            Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+                    break;
+
+                case MessageProtocol.MATCHMAKE:
+                    // parts[1]: số round, parts[2]: thời gian hiển thị từ, parts[3]: thời gian chờ
+                    server.handleMatchmakeRequest(this,
+                            Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+                    break;
+
+                case MessageProtocol.MATCHMAKE_CANCEL:
+                    server.handleMatchmakeCancel(this);
+                    break;
+
+                case MessageProtocol.STATS:
+                    server.handleStatsRequest(this);
+                    break;
+
+                case MessageProtocol.ONLINE_LIST_REQUEST:
+                    server.handleOnlineListRequest(this);
+                    break;
+
+                case MessageProtocol.ROOM_CREATE:
+                    // parts[1]: số round, parts[2]: thời gian hiển thị từ, parts[3]: thời gian chờ, parts[4]: số người tối đa
+                    server.handleRoomCreate(this, Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                            Integer.parseInt(parts[3]), Integer.parseInt(parts[4]));
+                    break;
+
+                case MessageProtocol.ROOM_JOIN:
+                    // parts[1]: id phòng
+                    server.handleRoomJoin(this, Integer.parseInt(parts[1]));
+                    break;
+
+                case MessageProtocol.ROOM_LEAVE:
+                    server.handleRoomLeave(this);
+                    break;
+
+                case MessageProtocol.ROOM_START:
+                    server.handleRoomStart(this);
+                    break;
+
+                case MessageProtocol.SPECTATE:
+                    // parts[1]: người chơi muốn xem
+                    server.handleSpectate(this, parts[1]);
+                    break;
+
+                case MessageProtocol.SPECTATE_STOP:
+                    server.handleSpectateStop(this);
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            if (BAD_INPUT.allow()) Log.warn("Invalid parameters from {}: {}", username, message);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            if (BAD_INPUT.allow()) Log.warn("Missing parameters from {}: {}", username, message);
+        }
+        if (Metrics.ENABLED) {
+            Metrics.recordCommand(command, System.nanoTime() - start);
+        }
+    }
+
+    // Frame nhị phân: opcode rồi các trường theo BinaryProtocol, số đọc thẳng từ varint
+    void onFrame(ByteBuffer frame) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        byte opcode = frame.get();
+        if (guard != null && !guard.allow(InboundLimiter.commandClass(opcode))) {
+            return;
+        }
+        if (username == null) {
+            return;
+        }
+        handleFrame(opcode, frame);
+        if (Metrics.ENABLED) {
+            Metrics.recordCommand(BinaryProtocol.commandOf(opcode), System.nanoTime() - start);
+        }
+    }
+
+    private void handleFrame(byte opcode, ByteBuffer frame) {
+        switch (opcode) {
+            case BinaryProtocol.CHALLENGE_REQUEST: {
+                String opponent = BinaryProtocol.readString(frame);
+                int rounds = BinaryProtocol.readVarint(frame);
+                int displayTime = BinaryProtocol.readVarint(frame);
+                int waitTime = BinaryProtocol.readVarint(frame);
+                server.handleChallengeRequest(this.username, opponent, rounds, displayTime, waitTime);
+                break;
+            }
+            case BinaryProtocol.CHALLENGE_RESPONSE: {
+                String response = BinaryProtocol.readString(frame);
+                String challenger = BinaryProtocol.readString(frame);
+                server.handleChallengeResponse(this.username, response, challenger);
+                break;
+            }
+            case BinaryProtocol.SUBMIT_ANSWER:
+                server.handlePlayerAnswer(this, BinaryProtocol.readString(frame));
                 break;
 
-            case MessageProtocol.CHALLENGE_REQUEST:
-                // parts[1]: đối thủ, parts[2]: số round, parts[3]: thời gian hiển thị từ, parts[4]: thời gian chờ
-                server.handleChallengeRequest(this.username, parts[1], parts[2], parts[3], parts[4]);
+            case BinaryProtocol.PRACTICE_REQUEST: {
+                int rounds = BinaryProtocol.readVarint(frame);
+                int displayTime = BinaryProtocol.readVarint(frame);
+                int waitTime = BinaryProtocol.readVarint(frame);
+                server.handlePracticeRequest(this, rounds, displayTime, waitTime);
+                break;
+            }
+            case BinaryProtocol.MATCHMAKE: {
+                int rounds = BinaryProtocol.readVarint(frame);
+                int displayTime = BinaryProtocol.readVarint(frame);
+                int waitTime = BinaryProtocol.readVarint(frame);
+                server.handleMatchmakeRequest(this, rounds, displayTime, waitTime);
+                break;
+            }
+            case BinaryProtocol.MATCHMAKE_CANCEL:
+                server.handleMatchmakeCancel(this);
                 break;
 
-            case MessageProtocol.CHALLENGE_RESPONSE:
-                // parts[1]: "ACCEPT" hoặc "REJECT", parts[2]: người thách đấu
-                server.handleChallengeResponse(this.username, parts[1], parts[2]);
+            case BinaryProtocol.STATS:
+                server.handleStatsRequest(this);
                 break;
 
-            case MessageProtocol.SUBMIT_ANSWER:
-                // parts[1]: câu trả lời
-                server.handlePlayerAnswer(this, parts[1]);
+            case BinaryProtocol.ONLINE_LIST_REQUEST:
+                server.handleOnlineListRequest(this);
                 break;
 
-            case MessageProtocol.PRACTICE_REQUEST:
-                // parts[1]: số round, parts[2]: thời gian hiển thị từ, parts[3]: thời gian chờ
-                try {
-                    int rounds = Integer.parseInt(parts[1]);
-                    int displayTime = Integer.parseInt(parts[2]);
-                    int waitTime = Integer.parseInt(parts[3]);
-                    server.handlePracticeRequest(this, rounds, displayTime, waitTime);
-                } catch (NumberFormatException e) {
-                    System.err.println("Invalid practice parameters: " + message);
-                }
+            case BinaryProtocol.ROOM_CREATE: {
+                int rounds = BinaryProtocol.readVarint(frame);
+                int displayTime = BinaryProtocol.readVarint(frame);
+                int waitTime = BinaryProtocol.readVarint(frame);
+                int maxPlayers = BinaryProtocol.readVarint(frame);
+                server.handleRoomCreate(this, rounds, displayTime, waitTime, maxPlayers);
                 break;
+            }
+            case BinaryProtocol.ROOM_JOIN:
+                server.handleRoomJoin(this, BinaryProtocol.readVarint(frame));
+                break;
+
+            case BinaryProtocol.ROOM_LEAVE:
+                server.handleRoomLeave(this);
+                break;
+
+            case BinaryProtocol.ROOM_START:
+                server.handleRoomStart(this);
+                break;
+
+            case BinaryProtocol.SPECTATE:
+                server.handleSpectate(this, BinaryProtocol.readString(frame));
+                break;
+
+            case BinaryProtocol.SPECTATE_STOP:
+                server.handleSpectateStop(this);
+                break;
+
+            default:
+                if (BAD_INPUT.allow()) Log.warn("Unknown opcode {} from {}", opcode, username);
         }
     }
 
-    // Gửi tin nhắn đến client này
-    public void sendMessage(String message) {
-        out.println(message);
+    // Kết quả xác thực có thể đến từ thread khác (pool băm mật khẩu), không chặn thread đọc
+    private void handleLogin(String user, String password, boolean wantsBinary) {
+        if (!canLogin()) return;
+        // Chế độ cụm: user thuộc node khác thì chỉ trả địa chỉ node đó, không xác thực ở đây
+        ClusterNode home = server.getHomeNode(user);
+        if (home != null) {
+            sendMessage(Message.of(MessageProtocol.LOGIN_REDIRECT, home.getHost(), home.getClientPort()));
+            return;
+        }
+        loginPending = true;
+        server.authenticateUser(user, password, isAuthenticated -> {
+            if (!isAuthenticated || !completeLogin(user, wantsBinary)) {
+                loginPending = false;
+                sendMessage(Message.of(MessageProtocol.LOGIN_FAIL));
+            }
+        });
+    }
+
+    // Một kết nối chỉ đăng nhập một lần; LOGIN/RESUME lặp lại bị từ chối, phiên hiện tại giữ nguyên
+    private boolean canLogin() {
+        if (username == null && !loginPending) return true;
+        if (BAD_INPUT.allow()) Log.warn("Rejecting repeated login on connection of {}", username);
+        sendMessage(Message.of(MessageProtocol.LOGIN_FAIL));
+        return false;
+    }
+
+    /**
+     * Gắn user vào kết nối và đưa vào danh sách online. Với LOGIN việc này chạy trên thread của pool
+     * băm, có thể sau khi client đã ngắt: giữ loginLock để onDisconnect() hoặc chạy trước (không
+     * đăng ký nữa) hoặc chạy sau và thấy handler đã đăng ký để gỡ ra, không để lại người chơi ma.
+     *
+     * @return false nếu kết nối đã đóng
+     */
+    private boolean completeLogin(String user, boolean wantsBinary) {
+        synchronized (loginLock) {
+            if (closed) return false;
+            this.username = user;
+            // Đổi giao thức trước khi gửi LOGIN_SUCCESS (luôn dạng văn bản): client chỉ gửi frame nhị
+            // phân sau khi nhận nó, nên thread đọc đã thấy binary mới (volatile) khi frame đến
+            this.binary = wantsBinary;
+            connection.write(Message.of(MessageProtocol.LOGIN_SUCCESS, server.issueResumeToken(user)).encode(false),
+                    false);
+            server.addClient(this);
+            return true;
+        }
+    }
+
+    // Kết nối lại sau khi mất mạng: token thay mật khẩu, không cần pool băm mật khẩu
+    private void handleResume(String user, String token, boolean wantsBinary) {
+        if (!canLogin()) return;
+        ClusterNode home = server.getHomeNode(user);
+        if (home != null) {
+            sendMessage(Message.of(MessageProtocol.LOGIN_REDIRECT, home.getHost(), home.getClientPort()));
+            return;
+        }
+        if (!server.checkResumeToken(user, token)) {
+            sendMessage(Message.of(MessageProtocol.LOGIN_FAIL));
+            return;
+        }
+        if (!completeLogin(user, wantsBinary)) return;
+        // RESUME_STATE đi sau LOGIN_SUCCESS, theo giao thức vừa chọn
+        server.resumeSession(this);
+    }
+
+    // Gửi tin nhắn đến client này; không chờ socket, xem Connection.write()
+    @Override
+    public void sendMessage(Message message) {
+        connection.write(message.encode(binary), message.isDroppable());
+    }
+
+    // Khán giả: mọi sự kiện đều bỏ được, SpectatorFeed tự nhảy tới round hiện tại
+    void sendDroppable(Message message) {
+        connection.write(message.encode(binary), true);
+    }
+
+    public int getOutboundQueueDepth() {
+        return connection == null ? 0 : connection.getQueuedFrames();
+    }
+
+    @Override
+    public int getSeat() {
+        return seat;
+    }
+
+    @Override
+    public void setSeat(int seat) {
+        this.seat = seat;
     }
 
+    @Override
     public String getUsername() {
         return username;
     }
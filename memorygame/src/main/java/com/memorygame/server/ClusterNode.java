@@ -0,0 +1,63 @@
+package com.memorygame.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Một node trong cụm: id, địa chỉ client kết nối tới (dùng cho LOGIN_REDIRECT) và cổng liên node.
+ */
+public final class ClusterNode {
+    private final String id;
+    private final String host;
+    private final int clientPort;
+    private final int clusterPort;
+
+    public ClusterNode(String id, String host, int clientPort, int clusterPort) {
+        this.id = id;
+        this.host = host;
+        this.clientPort = clientPort;
+        this.clusterPort = clusterPort;
+    }
+
+    /**
+     * Danh sách node dạng "id=host:clientPort:clusterPort,...", ví dụ
+     * "a=10.0.0.1:12345:13345,b=10.0.0.2:12345:13345".
+     */
+    public static List<ClusterNode> parseList(String spec) {
+        List<ClusterNode> nodes = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) continue;
+            int eq = entry.indexOf('=');
+            String[] address = entry.substring(eq + 1).split(":");
+            if (eq <= 0 || address.length != 3) {
+                throw new IllegalArgumentException("Invalid cluster node: " + entry);
+            }
+            nodes.add(new ClusterNode(entry.substring(0, eq), address[0],
+                    Integer.parseInt(address[1]), Integer.parseInt(address[2])));
+        }
+        return Collections.unmodifiableList(nodes);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getClientPort() {
+        return clientPort;
+    }
+
+    public int getClusterPort() {
+        return clusterPort;
+    }
+
+    @Override
+    public String toString() {
+        return id + "=" + host + ":" + clientPort + ":" + clusterPort;
+    }
+}
@@ -0,0 +1,307 @@
+package com.memorygame.server;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chế độ cụm: mỗi username thuộc đúng một node theo ConsistentHashRing và chỉ đăng nhập ở node đó
+ * (node khác trả LOGIN_REDIRECT). Lời mời và phản hồi thách đấu giữa hai node được chuyển qua
+ * ClusterTransport; trận chạy trên node của người mời, người chơi ở node kia được đại diện bằng
+ * RemotePlayer:
+ *
+ *   INVITE    người mời -> node người được mời   node đó giữ lời mời, gửi INVITATION
+ *   ACCEPTED  node người nhận -> node người mời  node người nhận giữ chỗ người nhận; node người mời
+ *                                               tạo GameSession, hoặc nếu một người đã bận thì trả
+ *                                               CHALLENGE_REJECTED và ENDED để bỏ giữ chỗ
+ *   BOUND     node chủ trận -> node người chơi   từ đây SUBMIT_ANSWER được chuyển về node chủ trận
+ *   DELIVER   tin nhắn của trận cho người chơi ở node khác
+ *   ANSWER / LEFT   câu trả lời, ngắt kết nối của người chơi ở xa
+ *   RESUMED   người chơi ở xa kết nối lại trong thời gian ân hạn, node chủ trận gửi RESUME_STATE
+ *   ENDED     trận đã kết thúc
+ *
+ * Danh sách online, ghép trận, phòng và khán giả vẫn chỉ trong phạm vi một node.
+ */
+public class ClusterService implements ClusterTransport.Receiver {
+    static final String INVITE = "INVITE"; // người mời|người được mời|số round|thời gian hiển thị|thời gian chờ
+    static final String ACCEPTED = "ACCEPTED"; // người mời|người nhận|số round|thời gian hiển thị|thời gian chờ
+    static final String BOUND = "BOUND"; // user
+    static final String DELIVER = "DELIVER"; // user|lệnh|các trường của tin nhắn
+    static final String ANSWER = "ANSWER"; // user|câu trả lời
+    static final String LEFT = "LEFT"; // user
+    static final String RESUMED = "RESUMED"; // user
+    static final String ENDED = "ENDED"; // user
+
+    // Giữ chỗ sau ACCEPTED tối đa chừng này nếu node người mời không trả lời
+    private static final long PENDING_BIND_MILLIS = 10_000;
+
+    // Tin nhắn liên node sai định dạng (khác phiên bản) có thể đến hàng loạt
+    private static final Log.Sampler BAD_MESSAGE = new Log.Sampler("bad cluster message", 5);
+
+    private final Server server;
+    private final String localNodeId;
+    private final Map<String, ClusterNode> nodes = new LinkedHashMap<>();
+    private final ConsistentHashRing ring;
+    private final ClusterTransport transport;
+    // User ở node này đang chơi trận chạy trên node khác: user -> node chủ trận
+    private final Map<String, String> remoteSessions = new ConcurrentHashMap<>();
+    // User ở node này đã chấp nhận lời mời từ node khác và đang chờ BOUND; được tính như đang chơi
+    private final Map<String, PendingBind> pendingBinds = new ConcurrentHashMap<>();
+    // User ở node khác đang chơi trận chạy ở đây
+    private final Map<String, RemotePlayer> remotePlayers = new ConcurrentHashMap<>();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong receivedCount = new AtomicLong();
+
+    public ClusterService(Server server, String localNodeId, List<ClusterNode> nodeList, int virtualNodes,
+            ClusterTransport transport) {
+        this.server = server;
+        this.localNodeId = localNodeId;
+        for (ClusterNode node : nodeList) {
+            nodes.put(node.getId(), node);
+        }
+        if (!nodes.containsKey(localNodeId)) {
+            throw new IllegalArgumentException("Node " + localNodeId + " is not in the cluster node list");
+        }
+        this.ring = new ConsistentHashRing(nodes.keySet(), virtualNodes);
+        this.transport = transport;
+    }
+
+    public void start() throws IOException {
+        transport.start(this);
+        Log.info("Cluster node {} started with {} nodes.", localNodeId, nodes.size());
+    }
+
+    public boolean isLocal(String username) {
+        return localNodeId.equals(ring.nodeFor(username));
+    }
+
+    public String nodeOf(String username) {
+        return ring.nodeFor(username);
+    }
+
+    // Node client của username phải kết nối tới; null nếu là node này
+    public ClusterNode redirectFor(String username) {
+        String nodeId = ring.nodeFor(username);
+        return localNodeId.equals(nodeId) ? null : nodes.get(nodeId);
+    }
+
+    // Kể cả khi mới chấp nhận lời mời và đang chờ node chủ trận BOUND
+    public boolean isInRemoteGame(String username) {
+        if (remoteSessions.containsKey(username)) return true;
+        PendingBind pending = pendingBinds.get(username);
+        return pending != null && pending.expiresAt > System.currentTimeMillis();
+    }
+
+    void sendInvite(String challenger, String opponent, int rounds, int displayTime, int waitTime) {
+        send(nodeOf(opponent), Message.of(INVITE, challenger, opponent, rounds, displayTime, waitTime));
+    }
+
+    // Gọi dưới lock tạo trận của Server: responder bị tính là đang chơi từ lúc này tới BOUND hoặc ENDED
+    void sendAccepted(String challenger, String responder, int rounds, int displayTime, int waitTime) {
+        String owner = nodeOf(challenger);
+        pendingBinds.put(responder, new PendingBind(owner, System.currentTimeMillis() + PENDING_BIND_MILLIS));
+        send(owner, Message.of(ACCEPTED, challenger, responder, rounds, displayTime, waitTime));
+    }
+
+    // Node người mời không tạo được trận: báo người nhận và bỏ giữ chỗ ở node của họ
+    void rejectAccepted(String challenger, String responder, String responderNode) {
+        deliver(responderNode, responder, Message.of(MessageProtocol.CHALLENGE_REJECTED, challenger));
+        send(responderNode, Message.of(ENDED, responder));
+    }
+
+    // Gửi tin nhắn cho user đang đăng nhập ở nodeId
+    void deliver(String nodeId, String username, Message message) {
+        Object[] fields = new Object[message.getFieldCount() + 2];
+        fields[0] = username;
+        fields[1] = message.getCommand();
+        for (int i = 0; i < message.getFieldCount(); i++) {
+            fields[i + 2] = message.getField(i);
+        }
+        send(nodeId, Message.of(DELIVER, fields));
+    }
+
+    // Tạo đại diện cho người chơi ở node khác; BOUND đi trước mọi tin nhắn của trận trên cùng kênh
+    RemotePlayer bindRemotePlayer(String username, String nodeId) {
+        RemotePlayer player = new RemotePlayer(username, nodeId, this);
+        remotePlayers.put(username, player);
+        send(nodeId, Message.of(BOUND, username));
+        return player;
+    }
+
+    // Gọi khi trận chạy ở đây kết thúc
+    void releaseRemotePlayer(RemotePlayer player) {
+        if (remotePlayers.remove(player.getUsername(), player)) {
+            send(player.getNodeId(), Message.of(ENDED, player.getUsername()));
+        }
+    }
+
+    // Câu trả lời của user ở node này cho trận chạy ở node khác; false nếu user không có trận ở xa
+    boolean forwardAnswer(String username, String answer) {
+        String owner = remoteSessions.get(username);
+        if (owner == null) return false;
+        send(owner, Message.of(ANSWER, username, answer));
+        return true;
+    }
+
+    // User ở node này ngắt kết nối: node chủ trận giữ ghế chờ RESUME hoặc xử lý như bỏ cuộc.
+    // Vẫn giữ remoteSessions tới khi ENDED để RESUME biết trận ở đâu
+    void onLocalDisconnect(String username) {
+        String owner = remoteSessions.get(username);
+        if (owner != null) {
+            send(owner, Message.of(LEFT, username));
+        }
+    }
+
+    // User ở node này RESUME; false nếu user không có trận ở xa
+    boolean resume(String username) {
+        String owner = remoteSessions.get(username);
+        if (owner == null) return false;
+        send(owner, Message.of(RESUMED, username));
+        return true;
+    }
+
+    private void send(String nodeId, Message message) {
+        sentCount.incrementAndGet();
+        transport.send(nodeId, message);
+    }
+
+    @Override
+    public void onMessage(String fromNode, Message message) {
+        receivedCount.incrementAndGet();
+        try {
+            dispatch(fromNode, message);
+        } catch (RuntimeException e) {
+            if (BAD_MESSAGE.allow()) {
+                Log.warn("Invalid cluster message {} from {}: {}", message, fromNode, e.getMessage());
+            }
+        }
+    }
+
+    private void dispatch(String fromNode, Message message) {
+        String username = (String) message.getField(0);
+        switch (message.getCommand()) {
+            case INVITE:
+                server.offerChallenge((String) message.getField(0), (String) message.getField(1),
+                        (Integer) message.getField(2), (Integer) message.getField(3), (Integer) message.getField(4));
+                break;
+
+            case ACCEPTED:
+                server.startCrossNodeGame((String) message.getField(0), (String) message.getField(1), fromNode,
+                        (Integer) message.getField(2), (Integer) message.getField(3), (Integer) message.getField(4));
+                break;
+
+            case BOUND: {
+                PendingBind pending = pendingBinds.remove(username);
+                boolean expected = pending != null && pending.nodeId.equals(fromNode);
+                if (!expected && server.isBusy(username)) {
+                    // Hết hạn giữ chỗ và user đã vào trận khác: node chủ trận xử lý như người chơi bỏ đi
+                    Log.debug("Ignoring BOUND for busy user {} from {}", username, fromNode);
+                    send(fromNode, Message.of(LEFT, username));
+                    break;
+                }
+                remoteSessions.put(username, fromNode);
+                server.getPresence().setInGame(username, true);
+                // User có thể đã ngắt kết nối trước khi BOUND tới
+                if (server.getOnlineClient(username) == null) {
+                    onLocalDisconnect(username);
+                }
+                break;
+            }
+
+            case DELIVER: {
+                ClientHandler client = server.getOnlineClient(username);
+                if (client != null) {
+                    Object[] fields = new Object[message.getFieldCount() - 2];
+                    for (int i = 0; i < fields.length; i++) {
+                        fields[i] = message.getField(i + 2);
+                    }
+                    client.sendMessage(Message.of((String) message.getField(1), fields));
+                }
+                break;
+            }
+            case ANSWER: {
+                RemotePlayer player = remotePlayers.get(username);
+                GameSession session = server.getSession(username);
+                if (player != null && session != null) {
+                    session.setPlayerAnswer(player, (String) message.getField(1));
+                }
+                break;
+            }
+            case LEFT: {
+                RemotePlayer player = remotePlayers.get(username);
+                GameSession session = server.getSession(username);
+                if (player != null && session != null) {
+                    server.leaveSession(session, player);
+                }
+                break;
+            }
+            case RESUMED: {
+                RemotePlayer player = remotePlayers.get(username);
+                GameSession session = server.getSession(username);
+                if (player != null && session != null) {
+                    session.resume(player);
+                }
+                break;
+            }
+            case ENDED: {
+                PendingBind pending = pendingBinds.get(username);
+                if (pending != null && pending.nodeId.equals(fromNode)) {
+                    pendingBinds.remove(username, pending);
+                }
+                if (remoteSessions.remove(username, fromNode)) {
+                    server.getPresence().setInGame(username, false);
+                    if (server.getOnlineClient(username) == null) {
+                        server.discardResumeToken(username);
+                    }
+                }
+                break;
+            }
+
+            default:
+                if (BAD_MESSAGE.allow()) Log.warn("Unknown cluster command {} from {}", message.getCommand(), fromNode);
+        }
+    }
+
+    private static final class PendingBind {
+        final String nodeId;
+        final long expiresAt;
+
+        PendingBind(String nodeId, long expiresAt) {
+            this.nodeId = nodeId;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public void stop() {
+        transport.close();
+    }
+
+    public String getLocalNodeId() {
+        return localNodeId;
+    }
+
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    // Người chơi ở node khác trong các trận chạy ở đây
+    public int getRemotePlayerCount() {
+        return remotePlayers.size();
+    }
+
+    // Người chơi ở đây đang chơi trận chạy ở node khác
+    public int getRemoteSessionCount() {
+        return remoteSessions.size();
+    }
+}
@@ -0,0 +1,23 @@
+package com.memorygame.server;
+
+import java.io.IOException;
+
+/**
+ * Kênh giữa các node của cụm. ClusterService chỉ làm việc với interface này nên cùng logic định
+ * tuyến chạy được với nhiều node trong một JVM (InMemoryClusterTransport) lẫn qua mạng
+ * (TcpClusterTransport).
+ */
+public interface ClusterTransport {
+
+    interface Receiver {
+        // Tin nhắn từ cùng một node đến theo đúng thứ tự gửi, trên một thread mỗi lúc
+        void onMessage(String fromNode, Message message);
+    }
+
+    void start(Receiver receiver) throws IOException;
+
+    // Không chờ mạng; node đích không tới được thì tin nhắn bị bỏ
+    void send(String nodeId, Message message);
+
+    void close();
+}
@@ -0,0 +1,28 @@
+package com.memorygame.server;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Phía transport của một kết nối client. ClientHandler chỉ làm việc với interface này
+ * nên cùng một logic xử lý tin nhắn chạy được trên cả socket blocking lẫn NIO.
+ *
+ * write()/flush() không bao giờ chờ socket: việc ghi do thread riêng của kết nối đảm nhận, hàng đợi
+ * gửi có giới hạn (OutboundLimiter) nên client chậm không làm chậm người gọi.
+ */
+public interface Connection {
+    /**
+     * Xếp frame đã mã hóa vào hàng đợi gửi; buffer không bị sửa nên có thể dùng chung giữa nhiều
+     * kết nối. Hàng đợi đầy thì frame droppable bị bỏ hoặc client bị ngắt, tùy OutboundLimiter.
+     */
+    void write(ByteBuffer data, boolean droppable);
+
+    // Ghi mọi frame đang chờ bằng một lần ghi gộp (gathering write)
+    void flush();
+
+    // Số frame đang chờ gửi
+    int getQueuedFrames();
+
+    void close();
+
+    String getRemoteAddress();
+}
@@ -0,0 +1,67 @@
+package com.memorygame.server;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Vòng băm nhất quán: mỗi node có virtualNodes điểm trên vòng 64 bit, user thuộc node có điểm đầu
+ * tiên không nhỏ hơn hash của tên. Thêm/bớt một node chỉ chuyển khoảng 1/N số user sang node khác.
+ *
+ * Bất biến sau khi tạo; tra cứu là một lần tìm nhị phân trên mảng long, không cấp phát.
+ */
+public final class ConsistentHashRing {
+    private final long[] points;
+    private final String[] owners;
+
+    public ConsistentHashRing(Collection<String> nodeIds, int virtualNodes) {
+        if (nodeIds.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one node and one virtual node per node");
+        }
+        int size = nodeIds.size() * virtualNodes;
+        long[] hashes = new long[size];
+        String[] names = new String[size];
+        int i = 0;
+        for (String nodeId : nodeIds) {
+            for (int v = 0; v < virtualNodes; v++) {
+                hashes[i] = hash(nodeId + "#" + v);
+                names[i] = nodeId;
+                i++;
+            }
+        }
+        // Sắp xếp theo hash, giữ cặp (điểm, node)
+        Integer[] order = new Integer[size];
+        for (int k = 0; k < size; k++) {
+            order[k] = k;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+        this.points = new long[size];
+        this.owners = new String[size];
+        for (int k = 0; k < size; k++) {
+            points[k] = hashes[order[k]];
+            owners[k] = names[order[k]];
+        }
+    }
+
+    public String nodeFor(String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    // FNV-1a trên các ký tự rồi trộn bit (fmix64 của MurmurHash3) cho phân bố đều
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,321 @@
+package com.memorygame.server;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.KeySpec;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Kho tài khoản. Mật khẩu lưu dạng PBKDF2-HMAC-SHA256 có salt, mỗi dòng trong file:
+ *
+ *   username:iterations:saltBase64:hashBase64
+ *
+ * Băm PBKDF2 rất chậm (cố ý) nên chạy trên một pool riêng có giới hạn, không chạy trên thread
+ * đọc kết nối. Sau khi xác thực thành công, một digest SHA-256 nhanh được giữ trong cache ngắn hạn
+ * để client kết nối lại hàng loạt không phải băm lại. Đăng nhập sai nhiều lần liên tiếp sẽ bị khóa
+ * tạm thời theo từng user (thời gian khóa tăng dần) mà không tốn CPU băm.
+ */
+public class CredentialStore {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int DEFAULT_ITERATIONS = 100_000;
+    private static final int KEY_BITS = 256;
+    private static final int SALT_BYTES = 16;
+
+    private static final int FREE_FAILURES = 5;
+    private static final long MAX_LOCKOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final class UserRecord {
+        final int iterations;
+        final byte[] salt;
+        final byte[] hash;
+
+        UserRecord(int iterations, byte[] salt, byte[] hash) {
+            this.iterations = iterations;
+            this.salt = salt;
+            this.hash = hash;
+        }
+    }
+
+    private static final class CachedVerification {
+        final byte[] digest;
+        final long expiresAt;
+
+        CachedVerification(byte[] digest, long expiresAt) {
+            this.digest = digest;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class FailureState {
+        int failures;
+        long lockedUntil;
+    }
+
+    // load() dựng map mới rồi thay cả map, nên user bị xóa khỏi file biến mất cùng lúc
+    private volatile Map<String, UserRecord> users = new ConcurrentHashMap<>();
+    private final Map<String, CachedVerification> verifiedCache = new ConcurrentHashMap<>();
+    private final Map<String, FailureState> failures = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor hashPool;
+    private final long cacheTtlMillis;
+    // Dùng khi user không tồn tại để thời gian phản hồi không để lộ user nào có thật
+    private final UserRecord dummyRecord;
+
+    private final LatencyHistogram loginLatency = new LatencyHistogram();
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+    private final AtomicLong cacheHitCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public CredentialStore(int hashThreads, int hashQueueCapacity, long cacheTtlMillis) {
+        this.hashPool = new ThreadPoolExecutor(hashThreads, hashThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(hashQueueCapacity), TaskExecutors.namedThreads("password-hash"));
+        this.cacheTtlMillis = cacheTtlMillis;
+        byte[] salt = new byte[SALT_BYTES];
+        this.dummyRecord = new UserRecord(DEFAULT_ITERATIONS, salt, new byte[KEY_BITS / 8]);
+    }
+
+    // Nạp toàn bộ file vào bộ nhớ; gọi lại để nạp bản mới thay hẳn bản cũ và xóa cache xác thực
+    public int load(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Map<String, UserRecord> loadedUsers = new ConcurrentHashMap<>();
+        int loaded = 0;
+        Base64.Decoder decoder = Base64.getDecoder();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] parts = line.split(":");
+            if (parts.length != 4) {
+                Log.warn("Skipping malformed user entry on line {}: {}", i + 1, parts[0]);
+                continue;
+            }
+            // Một dòng hỏng không được làm server không khởi động được
+            try {
+                int iterations = Integer.parseInt(parts[1]);
+                if (iterations <= 0) {
+                    throw new IllegalArgumentException("iterations must be positive");
+                }
+                loadedUsers.put(parts[0], new UserRecord(iterations, decoder.decode(parts[2]), decoder.decode(parts[3])));
+                loaded++;
+            } catch (IllegalArgumentException e) {
+                Log.warn("Skipping malformed user entry on line {} ({}): {}", i + 1, parts[0], e.getMessage());
+            }
+        }
+        users = loadedUsers;
+        // Xác thực đang chạy dở có thể vẫn ghi vào cache theo bản cũ, nhưng cache chỉ được dùng khi
+        // user còn trong map mới và salt khớp
+        verifiedCache.clear();
+        return loaded;
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    /**
+     * Xác thực bất đồng bộ. callback được gọi đúng một lần, trên thread của pool băm hoặc ngay trên
+     * thread gọi nếu kết quả có sẵn (cache, đang bị khóa, pool đầy).
+     */
+    public void authenticate(String username, String password, Consumer<Boolean> callback) {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+
+        FailureState failure = failures.get(username);
+        if (failure != null && isLocked(failure, now)) {
+            throttledCount.incrementAndGet();
+            complete(start, false, callback);
+            return;
+        }
+
+        UserRecord record = users.get(username);
+        CachedVerification cached = verifiedCache.get(username);
+        if (record != null && cached != null && cached.expiresAt > now) {
+            if (MessageDigest.isEqual(cached.digest, fastDigest(record.salt, password))) {
+                cacheHitCount.incrementAndGet();
+                successCount.incrementAndGet();
+                complete(start, true, callback);
+                return;
+            }
+        }
+
+        try {
+            hashPool.execute(() -> {
+                boolean ok = verify(record, password);
+                if (ok) {
+                    failures.remove(username);
+                    verifiedCache.put(username, new CachedVerification(
+                            fastDigest(record.salt, password), System.currentTimeMillis() + cacheTtlMillis));
+                    successCount.incrementAndGet();
+                } else {
+                    recordFailure(username);
+                }
+                complete(start, ok, callback);
+            });
+        } catch (RejectedExecutionException e) {
+            // Pool quá tải: từ chối ngay thay vì xếp hàng vô hạn
+            rejectedCount.incrementAndGet();
+            complete(start, false, callback);
+        }
+    }
+
+    private void complete(long start, boolean ok, Consumer<Boolean> callback) {
+        loginLatency.recordNanos(System.nanoTime() - start);
+        callback.accept(ok);
+    }
+
+    private boolean verify(UserRecord record, String password) {
+        UserRecord target = record != null ? record : dummyRecord;
+        byte[] hash = pbkdf2(password, target.salt, target.iterations);
+        return record != null && MessageDigest.isEqual(hash, record.hash);
+    }
+
+    private boolean isLocked(FailureState state, long now) {
+        synchronized (state) {
+            return state.lockedUntil > now;
+        }
+    }
+
+    private void recordFailure(String username) {
+        failureCount.incrementAndGet();
+        FailureState state = failures.computeIfAbsent(username, k -> new FailureState());
+        synchronized (state) {
+            state.failures++;
+            if (state.failures >= FREE_FAILURES) {
+                int extra = Math.min(state.failures - FREE_FAILURES, 20);
+                long lockout = Math.min(1000L << extra, MAX_LOCKOUT_MILLIS);
+                state.lockedUntil = System.currentTimeMillis() + lockout;
+            }
+        }
+    }
+
+    public void shutdown() {
+        hashPool.shutdown();
+    }
+
+    public LatencyHistogram getLoginLatency() {
+        return loginLatency;
+    }
+
+    public long getSuccessCount() {
+        return successCount.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    public long getCacheHitCount() {
+        return cacheHitCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public int getHashQueueDepth() {
+        return hashPool.getQueue().size();
+    }
+
+    static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        try {
+            KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_BITS);
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static byte[] fastDigest(byte[] salt, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String createEntry(String username, String password, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        new SecureRandom().nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return username + ":" + iterations + ":" + encoder.encodeToString(salt) + ":" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * add <file> <user> <password>     thêm tài khoản vào file
+     * storm <users> <clients> <threads> mô phỏng cơn bão kết nối lại và in p50/p99 thời gian đăng nhập
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 4 && "add".equals(args[0])) {
+            if (args[2].contains(":")) {
+                System.out.println("Username must not contain ':'");
+                return;
+            }
+            try (BufferedWriter out = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                out.write(createEntry(args[2], args[3], DEFAULT_ITERATIONS));
+                out.newLine();
+            }
+            System.out.println("Added user " + args[2]);
+        } else if (args.length == 4 && "storm".equals(args[0])) {
+            simulateReconnectStorm(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        } else {
+            System.out.println("Usage: CredentialStore add <file> <user> <password>");
+            System.out.println("       CredentialStore storm <users> <clients> <hashThreads>");
+        }
+    }
+
+    // Lượt 1: mọi client đăng nhập lần đầu (băm thật); lượt 2: tất cả kết nối lại cùng lúc (cache)
+    private static void simulateReconnectStorm(int userCount, int clients, int hashThreads) throws Exception {
+        CredentialStore store = new CredentialStore(hashThreads, clients, TimeUnit.MINUTES.toMillis(5));
+        // Ít vòng lặp hơn thực tế để mô phỏng chạy nhanh; tỷ lệ giữa hai lượt vẫn giữ nguyên
+        int iterations = 10_000;
+        for (int i = 0; i < userCount; i++) {
+            byte[] salt = new byte[SALT_BYTES];
+            new SecureRandom().nextBytes(salt);
+            store.users.put("user" + i, new UserRecord(iterations, salt, pbkdf2("pass" + i, salt, iterations)));
+        }
+        for (String wave : new String[] {"initial login", "reconnect storm"}) {
+            store.loginLatency.reset();
+            CountDownLatch done = new CountDownLatch(clients);
+            long start = System.nanoTime();
+            for (int i = 0; i < clients; i++) {
+                int user = i % userCount;
+                store.authenticate("user" + user, "pass" + user, ok -> done.countDown());
+            }
+            done.await();
+            System.out.printf("%s: %d clients in %d ms, %s (cache hits so far %d, rejected %d)%n",
+                    wave, clients, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    store.loginLatency.summary(), store.getCacheHitCount(), store.getRejectedCount());
+        }
+        store.shutdown();
+    }
+}
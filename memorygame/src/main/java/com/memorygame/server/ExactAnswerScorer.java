@@ -0,0 +1,17 @@
+package com.memorygame.server;
+
+/**
+ * Chỉ tính điểm khi câu trả lời trùng từng ký tự với cụm từ (cách chấm ban đầu).
+ */
+public final class ExactAnswerScorer implements AnswerScorer {
+
+    @Override
+    public int credit(String phrase, String answer) {
+        return answer.equals(phrase) ? FULL_CREDIT : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "EXACT";
+    }
+}
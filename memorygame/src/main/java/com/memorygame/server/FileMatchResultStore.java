@@ -0,0 +1,168 @@
+package com.memorygame.server;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Lưu kết quả trận vào một file chỉ ghi nối (append-only). Mỗi bản ghi:
+ *
+ *   int độ dài payload | int CRC32 của payload | payload
+ *
+ * Khi khởi động, recover() đọc lại các bản ghi có CRC đúng và cắt bỏ phần đuôi ghi dở
+ * (server dừng giữa lúc ghi và fsync), để các batch sau nối tiếp vào chỗ hợp lệ cuối cùng.
+ */
+public class FileMatchResultStore implements MatchResultStore {
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private final Path file;
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+    private final CRC32 crc = new CRC32();
+
+    public FileMatchResultStore(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public int recover(Consumer<MatchResult> consumer) throws IOException {
+        long validLength = 0;
+        int recovered = 0;
+        if (Files.exists(file)) {
+            try (InputStream stream = Files.newInputStream(file);
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16))) {
+                byte[] payload = new byte[256];
+                while (true) {
+                    int length;
+                    int checksum;
+                    try {
+                        length = in.readInt();
+                        checksum = in.readInt();
+                        if (length <= 0 || length > MAX_RECORD_LENGTH) break;
+                        if (payload.length < length) payload = new byte[length];
+                        in.readFully(payload, 0, length);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    crc.reset();
+                    crc.update(payload, 0, length);
+                    if ((int) crc.getValue() != checksum) break;
+
+                    consumer.accept(decode(ByteBuffer.wrap(payload, 0, length)));
+                    validLength += 8 + length;
+                    recovered++;
+                }
+            }
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (channel.size() > validLength) {
+            Log.warn("Match log {}: truncating {}", file, (channel.size() - validLength)
+                    + " bytes of incomplete tail");
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+        return recovered;
+    }
+
+    @Override
+    public void append(List<MatchResult> batch) throws IOException {
+        buffer.clear();
+        for (MatchResult result : batch) {
+            encode(result);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void sync() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void encode(MatchResult result) {
+        byte[] player1 = bytes(result.getPlayer1());
+        byte[] player2 = bytes(result.getPlayer2());
+        byte[] winner = bytes(result.getWinner());
+        int length = 8 + 2 + player1.length + 2 + player2.length + 4 + 4 + 4 + 2 + winner.length + 1;
+        ensureCapacity(8 + length);
+
+        int start = buffer.position();
+        buffer.putInt(length);
+        buffer.putInt(0); // CRC điền sau
+        buffer.putLong(result.getEndedAt());
+        putString(player1);
+        putString(player2);
+        buffer.putInt(result.getPlayer1Score());
+        buffer.putInt(result.getPlayer2Score());
+        buffer.putInt(result.getRoundsPlayed());
+        putString(winner);
+        buffer.put((byte) (result.isForfeit() ? 1 : 0));
+
+        crc.reset();
+        crc.update(buffer.array(), start + 8, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private static MatchResult decode(ByteBuffer in) {
+        long endedAt = in.getLong();
+        String player1 = getString(in);
+        String player2 = getString(in);
+        int player1Score = in.getInt();
+        int player2Score = in.getInt();
+        int roundsPlayed = in.getInt();
+        String winner = getString(in);
+        boolean forfeit = in.get() != 0;
+        return new MatchResult(endedAt, player1, player2, player1Score, player2Score, roundsPlayed,
+                winner.isEmpty() ? null : winner, forfeit);
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void putString(byte[] value) {
+        buffer.putShort((short) value.length);
+        buffer.put(value);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (buffer.remaining() < extra) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + extra));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.memorygame.server;
+
+import java.text.Normalizer;
+
+/**
+ * Chấm gần đúng: cả cụm từ lẫn câu trả lời được chuẩn hóa (chữ thường, bỏ dấu tiếng Việt, đ -> d,
+ * gộp khoảng trắng), rồi credit = 1 - khoảng cách Levenshtein / độ dài chuỗi dài hơn. Dưới
+ * minCredit thì tính là sai để gõ bừa không được điểm.
+ *
+ * Khoảng cách tính bằng thuật toán bit-parallel của Myers (dạng toàn cục của Hyyrö): cột của bảng
+ * quy hoạch động nằm trong một long nên mỗi ký tự của chuỗi kia chỉ tốn vài phép toán bit. Cần
+ * chuỗi ngắn hơn tối đa 64 ký tự sau chuẩn hóa; dài hơn thì dùng bảng một hàng. Mảng tạm nằm
+ * trong ThreadLocal (mỗi shard một bộ, chỉ tăng kích thước khi gặp chuỗi dài hơn) nên chấm không
+ * cấp phát.
+ */
+public final class FuzzyAnswerScorer implements AnswerScorer {
+    private static final int WORD_BITS = 64;
+    // Bảng chuẩn hóa cho U+0000..U+1EFF (Latin, gồm mọi chữ có dấu của tiếng Việt); 0 = bỏ ký tự
+    private static final int FOLD_LIMIT = 0x1F00;
+    private static final char[] FOLD = new char[FOLD_LIMIT];
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    static {
+        for (int c = 0; c < FOLD_LIMIT; c++) {
+            FOLD[c] = foldSlow((char) c);
+        }
+    }
+
+    private final int minSimilarity;
+    private final int minCredit;
+
+    // minSimilarity: phần trăm giống nhau tối thiểu để được điểm
+    public FuzzyAnswerScorer(int minSimilarity) {
+        this.minSimilarity = Math.max(0, Math.min(100, minSimilarity));
+        this.minCredit = this.minSimilarity * FULL_CREDIT / 100;
+    }
+
+    @Override
+    public int credit(String phrase, String answer) {
+        if (answer.equals(phrase)) return FULL_CREDIT;
+        Scratch scratch = SCRATCH.get();
+        int m = normalize(phrase, scratch.phrase(phrase.length()));
+        int n = normalize(answer, scratch.answer(answer.length()));
+        int longer = Math.max(m, n);
+        if (longer == 0) return FULL_CREDIT;
+        // Khoảng cách không nhỏ hơn chênh lệch độ dài: câu trả lời quá dài/ngắn thì khỏi tính
+        if (creditFor(Math.abs(m - n), longer) < minCredit) return 0;
+
+        int distance;
+        if (m <= WORD_BITS && m > 0) {
+            distance = myers(scratch.phrase, m, scratch.answer, n, scratch);
+        } else if (n <= WORD_BITS && n > 0) {
+            distance = myers(scratch.answer, n, scratch.phrase, m, scratch);
+        } else if (m == 0 || n == 0) {
+            distance = longer;
+        } else {
+            distance = levenshtein(scratch.phrase, m, scratch.answer, n, scratch);
+        }
+        int credit = creditFor(distance, longer);
+        return credit >= minCredit ? credit : 0;
+    }
+
+    // Ghi vào journal để JournalReplay chấm lại đúng như lúc chơi
+    @Override
+    public String toString() {
+        return "FUZZY:" + minSimilarity;
+    }
+
+    private static int creditFor(int distance, int longer) {
+        return FULL_CREDIT - (int) ((long) distance * FULL_CREDIT / longer);
+    }
+
+    /**
+     * Khoảng cách Levenshtein giữa pattern (1..64 ký tự) và text. Bit i của vp/vn là độ chênh +1/-1
+     * giữa ô i và ô i-1 trong cột hiện tại; score theo dõi ô cuối cột.
+     */
+    static int myers(char[] pattern, int m, char[] text, int n, Scratch scratch) {
+        scratch.buildMasks(pattern, m);
+        long last = 1L << (m - 1);
+        long vp = m == WORD_BITS ? -1L : (1L << m) - 1;
+        long vn = 0;
+        int score = m;
+        for (int j = 0; j < n; j++) {
+            long eq = scratch.mask(text[j]);
+            long xv = eq | vn;
+            long xh = (((eq & vp) + vp) ^ vp) | eq;
+            long hp = vn | ~(xh | vp);
+            long hn = vp & xh;
+            if ((hp & last) != 0) {
+                score++;
+            } else if ((hn & last) != 0) {
+                score--;
+            }
+            // Hàng 0 của bảng toàn cục tăng 1 mỗi cột nên dịch vào bit 1
+            hp = (hp << 1) | 1;
+            hn <<= 1;
+            vp = hn | ~(xv | hp);
+            vn = hp & xv;
+        }
+        scratch.clearMasks(pattern, m);
+        return score;
+    }
+
+    // Bảng quy hoạch động một hàng, chỉ dùng khi cả hai chuỗi dài hơn 64 ký tự
+    static int levenshtein(char[] a, int m, char[] b, int n, Scratch scratch) {
+        int[] row = scratch.row(m + 1);
+        for (int i = 0; i <= m; i++) {
+            row[i] = i;
+        }
+        for (int j = 0; j < n; j++) {
+            int diagonal = row[0];
+            row[0] = j + 1;
+            char c = b[j];
+            for (int i = 1; i <= m; i++) {
+                int above = row[i];
+                int cost = a[i - 1] == c ? diagonal : diagonal + 1;
+                row[i] = Math.min(cost, Math.min(above, row[i - 1]) + 1);
+                diagonal = above;
+            }
+        }
+        return row[m];
+    }
+
+    // Chuẩn hóa s vào out, trả về độ dài; out phải dài ít nhất s.length()
+    static int normalize(String s, char[] out) {
+        int length = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            char folded = c < FOLD_LIMIT ? FOLD[c] : Character.toLowerCase(c);
+            if (folded == 0) continue;
+            if (folded == ' ') {
+                pendingSpace = length > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                out[length++] = ' ';
+                pendingSpace = false;
+            }
+            out[length++] = folded;
+        }
+        return length;
+    }
+
+    // Chỉ chạy lúc nạp lớp để dựng FOLD
+    private static char foldSlow(char c) {
+        if (c >= 0x0300 && c <= 0x036F) return 0; // dấu rời (chuỗi đã ở dạng NFD)
+        if (Character.isWhitespace(c) || Character.isSpaceChar(c)) return ' ';
+        if (Character.isISOControl(c)) return 0;
+        char base = c;
+        String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        if (decomposed.length() > 1 && decomposed.charAt(0) < 0x0300) {
+            base = decomposed.charAt(0);
+        }
+        base = Character.toLowerCase(base);
+        return base == 'đ' ? 'd' : base;
+    }
+
+    // Mảng tạm của một thread
+    static final class Scratch {
+        char[] phrase = new char[WORD_BITS];
+        char[] answer = new char[WORD_BITS];
+        int[] row = new int[0];
+        // Bit i bật nếu ký tự thứ i của pattern là ký tự này; ngoài ASCII thì tra tuyến tính
+        private final long[] asciiMasks = new long[128];
+        private final char[] otherChars = new char[WORD_BITS];
+        private final long[] otherMasks = new long[WORD_BITS];
+        private int otherCount;
+
+        char[] phrase(int capacity) {
+            if (phrase.length < capacity) phrase = new char[capacity];
+            return phrase;
+        }
+
+        char[] answer(int capacity) {
+            if (answer.length < capacity) answer = new char[capacity];
+            return answer;
+        }
+
+        int[] row(int capacity) {
+            if (row.length < capacity) row = new int[capacity];
+            return row;
+        }
+
+        void buildMasks(char[] pattern, int m) {
+            for (int i = 0; i < m; i++) {
+                char c = pattern[i];
+                long bit = 1L << i;
+                if (c < 128) {
+                    asciiMasks[c] |= bit;
+                    continue;
+                }
+                int k = 0;
+                while (k < otherCount && otherChars[k] != c) k++;
+                if (k == otherCount) {
+                    otherChars[otherCount++] = c;
+                }
+                otherMasks[k] |= bit;
+            }
+        }
+
+        long mask(char c) {
+            if (c < 128) return asciiMasks[c];
+            for (int k = 0; k < otherCount; k++) {
+                if (otherChars[k] == c) return otherMasks[k];
+            }
+            return 0;
+        }
+
+        void clearMasks(char[] pattern, int m) {
+            for (int i = 0; i < m; i++) {
+                if (pattern[i] < 128) asciiMasks[pattern[i]] = 0;
+            }
+            for (int k = 0; k < otherCount; k++) {
+                otherMasks[k] = 0;
+            }
+            otherCount = 0;
+        }
+    }
+}
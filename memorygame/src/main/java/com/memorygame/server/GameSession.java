@@ -1,157 +1,289 @@
 package com.memorygame.server;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class GameSession implements Runnable {
-    private ClientHandler player1;
-    private ClientHandler player2;
+/**
+ * Một trận: luyện tập (1 người), thách đấu (2 người) hoặc phòng (tới MAX_PLAYERS người). Người chơi
+ * được đánh số theo ghế; điểm, câu trả lời và thời điểm trả lời là các mảng theo ghế, mỗi round
+ * chấm điểm mọi ghế trong một lượt duyệt.
+ *
+ * Session được ghim vào một shard của SessionEngine: mọi phương thức public chỉ gửi sự kiện vào
+ * hàng đợi của shard, còn trạng thái bên dưới chỉ được đọc/ghi trên thread của shard nên không
+ * cần khóa.
+ *
+ * Người chơi mất kết nối không bị xử thua ngay: ghế của họ bị treo (suspend) trong thời gian ân hạn,
+ * trận vẫn chạy tiếp cho người khác. Kết nối lại bằng RESUME trong thời gian đó thì Player mới thay
+ * vào ghế cũ và nhận RESUME_STATE; hết hạn thì xử lý như rời trận. Mỗi ghế bị treo chỉ tốn một
+ * Timeout trên TimingWheel chung, không có thread riêng.
+ *
+ * Mọi sự kiện của trận (cụm từ, lúc ẩn, câu trả lời và lúc nhận, điểm) được ghi vào SessionJournal
+ * để JournalReplay dựng lại và chấm lại trận.
+ */
+public class GameSession {
+    public static final int MAX_PLAYERS = 64;
+
+    // Không có trường nào nên mã hóa một lần dùng cho mọi session
+    private static final Message HIDE_PHRASE_MESSAGE = Message.of(MessageProtocol.HIDE_PHRASE);
+
+    // Mọi session: số lần treo ghế, kết nối lại kịp và hết thời gian ân hạn
+    private static final AtomicLong SUSPENDED = new AtomicLong();
+    private static final AtomicLong RESUMED = new AtomicLong();
+    private static final AtomicLong EXPIRED = new AtomicLong();
+
+    // Một lần treo ghế; so sánh tham chiếu để bỏ qua hạn của lần treo cũ
+    private static final class Suspension {
+        TimingWheel.Timeout timeout;
+    }
+
+    private final Player[] players;
+    // Chế độ luyện tập: một người, điểm không phụ thuộc thời gian
+    private final boolean practice;
     private int totalRounds;
     private int currentRound = 0;
-    private int p1Score = 0;
-    private int p2Score = 0;
+    private final int[] scores;
     private int displayTime;
     private int waitTime;
 
     private String currentPhrase;
-    private String p1Answer = null;
-    private String p2Answer = null;
+    // Các cụm từ đã dùng trong trận này
+    private final PhraseSelector phraseSelector;
+    private final String[] answers;
+    private final long[] answerTimes;
+    // Ghế của người đã rời trận (chỉ ở phòng nhiều người, trận đôi xử thua luôn)
+    private final boolean[] left;
+    private int answeredCount;
+    private int activeCount;
     private long roundStartTime;
 
     private Server server;
 
-    private long p1AnswerTime = -1;
-    private long p2AnswerTime = -1;
-    
-    private Timer roundTimer;
+    // Các pha của round (hiện từ, ẩn từ, hết giờ, sang round mới) chạy trên TimingWheel chung của server
+    private TimingWheel.Timeout roundTimer;
+    // Pha hiện tại (Metrics.PHASE_*: việc sẽ làm khi hết pha) và thời điểm hết pha, cho RESUME_STATE
+    private String phase;
+    private long phaseDeadline;
+    // Theo ghế, chỉ cấp phát khi có người mất kết nối
+    private Suspension[] suspensions;
+    // null khi tắt journal
+    private final SessionJournal journal;
+    private final long journalId;
     private boolean roundProcessed = false;
     private boolean gameEnded = false;
 
-    public GameSession(ClientHandler player1, ClientHandler player2, int rounds, int displayTime, int waitTime, Server server) {
-        this.player1 = player1;
-        this.player2 = player2;
+    // Shard sở hữu session, mọi sự kiện chạy tuần tự trên đó
+    private final Executor shard;
+    // Sự kiện của trận cho khán giả
+    private final SpectatorFeed spectatorFeed;
+
+    // player2 == null: chế độ luyện tập
+    public GameSession(Player player1, Player player2, int rounds, int displayTime, int waitTime, Server server) {
+        this(player1, player2, rounds, displayTime, waitTime, server, server.getSessionEngine().nextShard());
+    }
+
+    GameSession(Player player1, Player player2, int rounds, int displayTime, int waitTime,
+            Server server, Executor shard) {
+        this(player2 == null ? new Player[] {player1} : new Player[] {player1, player2},
+                rounds, displayTime, waitTime, server, shard);
+    }
+
+    public GameSession(Player[] players, int rounds, int displayTime, int waitTime, Server server) {
+        this(players, rounds, displayTime, waitTime, server, server.getSessionEngine().nextShard());
+    }
+
+    GameSession(Player[] players, int rounds, int displayTime, int waitTime, Server server, Executor shard) {
+        if (players.length < 1 || players.length > MAX_PLAYERS) {
+            throw new IllegalArgumentException("A session needs 1 to " + MAX_PLAYERS + " players");
+        }
+        this.players = players.clone();
+        this.practice = players.length == 1;
+        this.scores = new int[players.length];
+        this.answers = new String[players.length];
+        this.answerTimes = new long[players.length];
+        this.left = new boolean[players.length];
+        this.activeCount = players.length;
         this.totalRounds = rounds;
         this.displayTime = displayTime;
         this.waitTime = waitTime;
         this.server = server;
+        this.phraseSelector = new PhraseSelector(rounds);
+        this.shard = shard;
+        String[] names = new String[players.length];
+        for (int seat = 0; seat < players.length; seat++) {
+            players[seat].setSeat(seat);
+            names[seat] = players[seat].getUsername();
+        }
+        this.spectatorFeed = server.newSpectatorFeed(names);
+        this.journal = server.getJournal();
+        this.journalId = journal == null ? 0 : journal.nextSessionId();
     }
 
-    @Override
-    public void run() {
-        startNewRound();
+    // Bắt đầu round đầu tiên trên shard của session
+    public void start() {
+        shard.execute(() -> {
+            if (journal != null) {
+                journal(JournalRecord.START, System.currentTimeMillis(), -1, totalRounds, waitTime,
+                        server.getAnswerScorer().toString());
+                for (int seat = 0; seat < players.length; seat++) {
+                    journal(JournalRecord.SEAT, System.currentTimeMillis(), seat, 0, 0, players[seat].getUsername());
+                }
+            }
+            startNewRound();
+        });
+    }
+
+    // Chỉ gọi trên shard; không chặn, xem SessionJournal
+    private void journal(byte type, long timestamp, int seat, int value, int aux, String text) {
+        if (journal != null) {
+            journal.append(new JournalRecord(type, journalId, timestamp, seat, currentRound, value, aux, text));
+        }
     }
 
     private void startNewRound() {
         if (gameEnded) return;
+        if (roundTimer != null) {
+            roundTimer.cancel();
+        }
         if (currentRound >= totalRounds) {
             endGame();
             return;
         }
         currentRound++;
-        p1Answer = null;
-        p2Answer = null;
-        p1AnswerTime = -1;
-        p2AnswerTime = -1;
+        Arrays.fill(answers, null);
+        answeredCount = 0;
         roundProcessed = false;
 
-        currentPhrase = server.getRandomPhrase();
-        String newRoundMessage = MessageProtocol.NEW_ROUND + MessageProtocol.SEPARATOR + currentRound + MessageProtocol.SEPARATOR + currentPhrase;
-        player1.sendMessage(newRoundMessage);
-        if (player2 != null) {
-            player2.sendMessage(newRoundMessage);
-        }
+        currentPhrase = server.getRandomPhrase(phraseSelector, currentRound, totalRounds);
+        journal(JournalRecord.ROUND, System.currentTimeMillis(), -1, 0, 0, currentPhrase);
+        broadcast(Message.of(MessageProtocol.NEW_ROUND, currentRound, currentPhrase));
 
-        if (roundTimer != null) {
-            roundTimer.cancel();
-        }
-        roundTimer = new Timer();
-        
-        roundTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                player1.sendMessage(MessageProtocol.HIDE_PHRASE);
-                if (player2 != null) {
-                    player2.sendMessage(MessageProtocol.HIDE_PHRASE);
-                }
-                roundStartTime = System.currentTimeMillis();
-
-                roundTimer.schedule(new TimerTask() {
-                    @Override
-                    public void run() {
-                        processRoundResults();
-                    }
-                }, waitTime);
+        roundTimer = schedulePhase(Metrics.PHASE_HIDE, this::hidePhrase, displayTime);
+    }
+
+    /**
+     * Thread của TimingWheel chỉ chuyển pha sang shard. Pha đã rời wheel thì không hủy được nữa,
+     * nên pha chỉ chạy nếu session vẫn ở round lúc đặt lịch. Khi bật Metrics, ghi lại độ trễ giữa
+     * hạn của pha và lúc pha thực sự chạy trên shard.
+     */
+    private TimingWheel.Timeout schedulePhase(String phase, Runnable task, long delayMillis) {
+        int round = currentRound;
+        this.phase = phase;
+        this.phaseDeadline = System.currentTimeMillis() + delayMillis;
+        long deadline = Metrics.ENABLED ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis) : 0;
+        return server.getScheduler().schedule(() -> shard.execute(() -> {
+            if (Metrics.ENABLED) {
+                Metrics.recordPhaseLag(phase, System.nanoTime() - deadline);
+            }
+            if (round == currentRound) {
+                task.run();
             }
-        }, displayTime);
+        }), delayMillis);
     }
 
-    private boolean allPlayersAnswered() {
-        if (player2 == null) {
-            // Chế độ luyện tập: chỉ cần p1 trả lời
-            return p1Answer != null;
-        } else {
-            // Chế độ thách đấu: cần cả 2
-            return p1Answer != null && p2Answer != null;
+    private void hidePhrase() {
+        if (roundProcessed || gameEnded) return;
+        broadcast(HIDE_PHRASE_MESSAGE);
+        roundStartTime = System.currentTimeMillis();
+        journal(JournalRecord.HIDE, roundStartTime, -1, 0, 0, null);
+        roundTimer = schedulePhase(Metrics.PHASE_TIMEOUT, this::processRoundResults, waitTime);
+    }
+
+    /**
+     * Gửi cùng một tin nhắn cho mọi người chơi còn trong session. Message tự giữ bản mã hóa nên mỗi
+     * giao thức chỉ mã hóa một lần; mỗi kết nối chỉ xếp hàng view của buffer dùng chung. Khán giả
+     * nhận cùng Message qua SpectatorFeed, việc gửi cho họ không chạy trên shard.
+     */
+    public void broadcast(Message message) {
+        for (int seat = 0; seat < players.length; seat++) {
+            // Ghế đang treo: kết nối cũ đã mất, RESUME_STATE sẽ gửi lại trạng thái
+            if (!left[seat] && (suspensions == null || suspensions[seat] == null)) {
+                players[seat].sendMessage(message);
+            }
         }
+        spectatorFeed.publish(message);
     }
 
-    public synchronized void setPlayerAnswer(ClientHandler player, String answer) {
-        if (roundProcessed || gameEnded) return;
+    public SpectatorFeed getSpectatorFeed() {
+        return spectatorFeed;
+    }
+
+    // Round hiện tại đã chấm điểm xong (đang chờ sang round mới); chỉ gọi trên thread của shard
+    boolean isRoundProcessed() {
+        return roundProcessed;
+    }
 
+    public int getPlayerCount() {
+        return players.length;
+    }
+
+    // Thời điểm nộp lấy lúc nhận, không tính thời gian chờ trong hàng đợi của shard
+    public void setPlayerAnswer(Player player, String answer) {
         long submissionTime = System.currentTimeMillis();
+        shard.execute(() -> onAnswer(player, answer, submissionTime));
+    }
 
-        if (player.getUsername().equals(player1.getUsername()) && p1Answer == null) {
-            p1Answer = answer;
-            p1AnswerTime = submissionTime;
-        } else if (player2 != null && player.getUsername().equals(player2.getUsername()) && p2Answer == null) {
-            p2Answer = answer;
-            p2AnswerTime = submissionTime;
-        }
+    private void onAnswer(Player player, String answer, long submissionTime) {
+        if (roundProcessed || gameEnded) return;
+
+        int seat = seatOf(player);
+        if (seat < 0 || left[seat] || answers[seat] != null) return;
+        answers[seat] = answer;
+        answerTimes[seat] = submissionTime;
+        answeredCount++;
+        journal(JournalRecord.ANSWER, submissionTime, seat, 0, 0, answer);
 
-        if (allPlayersAnswered()) {
+        if (answeredCount >= activeCount) {
             processRoundResults();
         }
     }
 
-    private synchronized void processRoundResults() {
+    // Ghế do session gán khi tạo; kiểm tra lại vì handler có thể đã sang session khác
+    private int seatOf(Player player) {
+        int seat = player.getSeat();
+        return seat >= 0 && seat < players.length && players[seat] == player ? seat : -1;
+    }
+
+    private void processRoundResults() {
         if (roundProcessed || gameEnded) return;
         roundProcessed = true;
         roundTimer.cancel();
 
-        if (p1Answer != null && p1Answer.equals(currentPhrase)) {
-            if (player2 == null) { // Chế độ luyện tập
-                p1Score += currentPhrase.length(); 
-            } else { // Chế độ thách đấu
-                long timeElapsed = p1AnswerTime - roundStartTime;
-                long timeLeft = (waitTime - timeElapsed) / 1000;
-                p1Score += calculatePoints(currentPhrase, timeLeft);
+        AnswerScorer scorer = server.getAnswerScorer();
+        for (int seat = 0; seat < players.length; seat++) {
+            String answer = answers[seat];
+            int credit = answer == null ? 0 : scorer.credit(currentPhrase, answer);
+            if (credit > 0) {
+                scores[seat] += roundPoints(practice, currentPhrase, credit, answerTimes[seat] - roundStartTime, waitTime);
             }
+            journal(JournalRecord.SCORE, System.currentTimeMillis(), seat, scores[seat], credit, null);
         }
 
-        if (player2 != null && p2Answer != null && p2Answer.equals(currentPhrase)) {
-            long timeElapsed = p2AnswerTime - roundStartTime;
-            long timeLeft = (waitTime - timeElapsed) / 1000;
-            p2Score += calculatePoints(currentPhrase, timeLeft);
-        }
+        // Điểm theo thứ tự ghế, một tin nhắn dùng chung cho cả phòng
+        broadcast(Message.ofInts(MessageProtocol.UPDATE_SCORE, scores));
+
+        // Trễ 2 giây để sang round tiếp theo, vẫn giữ handle để hủy được khi game kết thúc
+        roundTimer = schedulePhase(Metrics.PHASE_NEXT_ROUND, this::startNewRound, 2000);
+    }
 
-        if (player2 != null) {
-            String scoreUpdate = MessageProtocol.UPDATE_SCORE + MessageProtocol.SEPARATOR + p1Score + MessageProtocol.SEPARATOR + p2Score;
-            player1.sendMessage(scoreUpdate);
-            player2.sendMessage(scoreUpdate);
+    /**
+     * Điểm một câu trả lời đúng credit / FULL_CREDIT, trả lời sau elapsedMillis kể từ lúc ẩn cụm
+     * từ. JournalReplay dùng lại để tính lại điểm từ journal.
+     */
+    static int roundPoints(boolean practice, String phrase, int credit, long elapsedMillis, int waitTime) {
+        int points;
+        if (practice) {
+            points = phrase.length();
         } else {
-            String scoreUpdate = MessageProtocol.UPDATE_SCORE + MessageProtocol.SEPARATOR + p1Score;
-            player1.sendMessage(scoreUpdate);
+            long timeLeft = (waitTime - elapsedMillis) / 1000;
+            points = calculatePoints(phrase, timeLeft);
         }
-
-        new Timer().schedule(new TimerTask() {
-            @Override
-            public void run() {
-                startNewRound();
-            }
-        }, 2000); // Trễ 2 giây để sang round tiếp theo
+        // Đúng một phần thì được phần điểm tương ứng
+        return (int) ((long) points * credit / AnswerScorer.FULL_CREDIT);
     }
 
-    private int calculatePoints(String phrase, long timeLeft) {
+    private static int calculatePoints(String phrase, long timeLeft) {
         if (timeLeft <= 0) return 0;
         return phrase.length() * (int) timeLeft;
     }
@@ -163,47 +295,218 @@ public class GameSession implements Runnable {
         if (roundTimer != null) {
             roundTimer.cancel();
         }
-        
-        if (player2 != null) {
-            // Chế độ thách đấu: So sánh điểm và gửi kết quả
-            String p1Result, p2Result;
-            if (p1Score > p2Score) {
-                p1Result = MessageProtocol.WIN; p2Result = MessageProtocol.LOSE;
-            } else if (p1Score < p2Score) {
-                p1Result = MessageProtocol.LOSE; p2Result = MessageProtocol.WIN;
-            } else {
-                p1Result = MessageProtocol.DRAW; p2Result = MessageProtocol.DRAW;
+        cancelSuspensions();
+        journal(JournalRecord.END, System.currentTimeMillis(), -1, 0, 0, null);
+
+        if (practice) {
+            // Chế độ luyện tập: Chỉ gửi thông báo hoàn thành, không lưu kết quả
+            Message complete = Message.of(MessageProtocol.GAME_RESULT, MessageProtocol.PRACTICE_COMPLETE);
+            players[0].sendMessage(complete);
+            spectatorFeed.publish(complete);
+        } else {
+            // Điểm cao nhất thắng; nhiều người cùng cao nhất thì những người đó hòa
+            int best = Integer.MIN_VALUE;
+            int bestCount = 0;
+            for (int seat = 0; seat < players.length; seat++) {
+                if (left[seat]) continue;
+                if (scores[seat] > best) {
+                    best = scores[seat];
+                    bestCount = 1;
+                } else if (scores[seat] == best) {
+                    bestCount++;
+                }
+            }
+            Message win = Message.of(MessageProtocol.GAME_RESULT, MessageProtocol.WIN);
+            Message lose = Message.of(MessageProtocol.GAME_RESULT, MessageProtocol.LOSE);
+            Message draw = Message.of(MessageProtocol.GAME_RESULT, MessageProtocol.DRAW);
+            String winnerName = null;
+            for (int seat = 0; seat < players.length; seat++) {
+                if (left[seat]) continue;
+                players[seat].sendMessage(scores[seat] < best ? lose : bestCount == 1 ? win : draw);
+                if (scores[seat] == best) winnerName = players[seat].getUsername();
+            }
+            spectatorFeed.publish(Message.of(MessageProtocol.GAME_RESULT,
+                    bestCount == 1 ? winnerName : MessageProtocol.DRAW));
+
+            if (players.length == 2) {
+                String winner = scores[0] > scores[1] ? players[0].getUsername()
+                        : scores[0] < scores[1] ? players[1].getUsername() : null;
+                recordDuelResult(winner, false);
+            }
+        }
+
+        spectatorFeed.close();
+        server.endGameSession(this, players);
+    }
+
+    // Xếp hạng Elo và match log chỉ dành cho trận đôi
+    private void recordDuelResult(String winner, boolean forfeit) {
+        server.recordMatchResult(new MatchResult(System.currentTimeMillis(), players[0].getUsername(),
+                players[1].getUsername(), scores[0], scores[1], currentRound, winner, forfeit));
+    }
+
+    public void handleDisconnect(Player disconnectedPlayer) {
+        shard.execute(() -> onDisconnect(disconnectedPlayer));
+    }
+
+    private void onDisconnect(Player disconnectedPlayer) {
+        if (gameEnded) return;
+        int seat = seatOf(disconnectedPlayer);
+        if (seat < 0 || left[seat]) return;
+        journal(JournalRecord.LEFT, System.currentTimeMillis(), seat, 0, 0, null);
+
+        if (practice) {
+            Log.debug("Player {} disconnected from practice mode.", disconnectedPlayer.getUsername());
+            finishEarly();
+        } else if (activeCount == 2) {
+            // Còn hai người: người ở lại thắng do đối thủ bỏ cuộc
+            left[seat] = true;
+            activeCount--;
+            int winnerSeat = 0;
+            while (left[winnerSeat]) winnerSeat++;
+            Player winner = players[winnerSeat];
+            Log.info("Player {} disconnected. {} wins by forfeit.", disconnectedPlayer.getUsername(), winner.getUsername());
+            winner.sendMessage(Message.of(MessageProtocol.GAME_RESULT, MessageProtocol.WIN_FORFEIT));
+            spectatorFeed.publish(Message.of(MessageProtocol.GAME_RESULT, winner.getUsername()));
+            if (players.length == 2) {
+                recordDuelResult(winner.getUsername(), true);
             }
-            player1.sendMessage(MessageProtocol.GAME_RESULT + MessageProtocol.SEPARATOR + p1Result);
-            player2.sendMessage(MessageProtocol.GAME_RESULT + MessageProtocol.SEPARATOR + p2Result);
+            finishEarly();
         } else {
-            // Chế độ luyện tập: Chỉ gửi thông báo hoàn thành, không lưu kết quả
-            player1.sendMessage(MessageProtocol.GAME_RESULT + MessageProtocol.SEPARATOR + MessageProtocol.PRACTICE_COMPLETE);
+            // Phòng nhiều người: bỏ ghế này, các ghế còn lại chơi tiếp
+            left[seat] = true;
+            activeCount--;
+            // Câu trả lời của ghế đã rời không được chấm điểm
+            if (answers[seat] != null) {
+                answers[seat] = null;
+                answeredCount--;
+            }
+            Log.debug("Player {} left a {}-player room.", disconnectedPlayer.getUsername(), players.length);
+            if (!roundProcessed && answeredCount >= activeCount && answeredCount > 0) {
+                processRoundResults();
+            }
         }
+    }
 
-        server.endGameSession(this, player1, player2);
+    /**
+     * Người chơi mất kết nối: giữ ghế graceMillis để RESUME, hết hạn thì xử lý như handleDisconnect.
+     */
+    public void suspend(Player player, long graceMillis) {
+        shard.execute(() -> onSuspend(player, graceMillis));
     }
 
-    public synchronized void handleDisconnect(ClientHandler disconnectedPlayer) {
+    private void onSuspend(Player player, long graceMillis) {
         if (gameEnded) return;
+        int seat = seatOf(player);
+        if (seat < 0 || left[seat]) return;
+        if (suspensions == null) {
+            suspensions = new Suspension[players.length];
+        } else if (suspensions[seat] != null) {
+            return;
+        }
+        Suspension suspension = new Suspension();
+        suspension.timeout = server.getScheduler().schedule(
+                () -> shard.execute(() -> onGraceExpired(seat, suspension)), graceMillis);
+        suspensions[seat] = suspension;
+        SUSPENDED.incrementAndGet();
+        journal(JournalRecord.SUSPEND, System.currentTimeMillis(), seat, 0, 0, null);
+        Log.debug("Player {} lost connection, holding seat for {} ms.", player.getUsername(), graceMillis);
+    }
 
-        gameEnded = true;
-        if (roundTimer != null) {
-            roundTimer.cancel();
+    private void onGraceExpired(int seat, Suspension suspension) {
+        if (gameEnded || suspensions[seat] != suspension) return;
+        suspensions[seat] = null;
+        EXPIRED.incrementAndGet();
+        onDisconnect(players[seat]);
+    }
+
+    /**
+     * Gắn handler mới (RESUME) vào ghế cùng tên rồi gửi trạng thái hiện tại trong một RESUME_STATE.
+     * Ghế chưa bị treo nghĩa là server chưa thấy kết nối cũ đứt (client nối lại nhanh hơn TCP báo
+     * lỗi): kết nối cũ bị đóng để một ghế không có hai handler.
+     */
+    public void resume(Player player) {
+        shard.execute(() -> onResume(player));
+    }
+
+    private void onResume(Player player) {
+        if (gameEnded) return;
+        int seat = -1;
+        for (int i = 0; i < players.length; i++) {
+            if (!left[i] && players[i].getUsername().equals(player.getUsername())) {
+                seat = i;
+                break;
+            }
+        }
+        if (seat < 0) return;
+        if (suspensions != null && suspensions[seat] != null) {
+            suspensions[seat].timeout.cancel();
+            suspensions[seat] = null;
+            RESUMED.incrementAndGet();
+            journal(JournalRecord.RESUME, System.currentTimeMillis(), seat, 0, 0, null);
+        } else if (players[seat] != player) {
+            // removeClient của handler cũ không còn thấy nó trong ghế nên không treo ghế lần nữa
+            Log.debug("Player {} resumed from a new connection, closing the old one.", player.getUsername());
+            players[seat].closeConnection();
         }
+        players[seat] = player;
+        player.setSeat(seat);
+        player.sendMessage(resumeState(seat));
+    }
 
-        if (player2 != null) {
-            // Chế độ thách đấu
-            ClientHandler winner = (disconnectedPlayer.getUsername().equals(player1.getUsername())) 
-                                    ? player2 
-                                    : player1;
-            System.out.println("Player " + disconnectedPlayer.getUsername() + " disconnected. " + winner.getUsername() + " wins by forfeit.");
-            winner.sendMessage(MessageProtocol.GAME_RESULT + MessageProtocol.SEPARATOR + MessageProtocol.WIN_FORFEIT);
+    // RESUME_STATE|round|số round|pha|cụm từ (chỉ khi đang hiện)|ms còn lại của pha|đã trả lời|ghế|điểm...
+    private Message resumeState(int seat) {
+        String phaseName;
+        if (Metrics.PHASE_HIDE.equals(phase) && !roundProcessed) {
+            phaseName = MessageProtocol.PHASE_SHOW;
+        } else if (Metrics.PHASE_TIMEOUT.equals(phase) && !roundProcessed) {
+            phaseName = MessageProtocol.PHASE_ANSWER;
         } else {
-            // Chế độ luyện tập
-            System.out.println("Player " + disconnectedPlayer.getUsername() + " disconnected from practice mode.");
+            phaseName = MessageProtocol.PHASE_RESULT;
+        }
+        Object[] fields = new Object[7 + players.length];
+        fields[0] = currentRound;
+        fields[1] = totalRounds;
+        fields[2] = phaseName;
+        fields[3] = MessageProtocol.PHASE_SHOW.equals(phaseName) ? currentPhrase : "";
+        fields[4] = (int) Math.max(0, phaseDeadline - System.currentTimeMillis());
+        fields[5] = answers[seat] != null ? 1 : 0;
+        fields[6] = seat;
+        for (int i = 0; i < players.length; i++) {
+            fields[7 + i] = scores[i];
+        }
+        return Message.of(MessageProtocol.RESUME_STATE, fields);
+    }
+
+    private void cancelSuspensions() {
+        if (suspensions == null) return;
+        for (Suspension suspension : suspensions) {
+            if (suspension != null) {
+                suspension.timeout.cancel();
+            }
         }
+    }
+
+    public static long getSuspendedCount() {
+        return SUSPENDED.get();
+    }
+
+    public static long getResumedCount() {
+        return RESUMED.get();
+    }
 
-        server.endGameSession(this, player1, player2);
+    public static long getExpiredCount() {
+        return EXPIRED.get();
+    }
+
+    private void finishEarly() {
+        gameEnded = true;
+        if (roundTimer != null) {
+            roundTimer.cancel();
+        }
+        cancelSuspensions();
+        journal(JournalRecord.END, System.currentTimeMillis(), -1, 1, 0, null);
+        spectatorFeed.close();
+        server.endGameSession(this, players);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package com.memorygame.server;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram không khóa cho giá trị nguyên không âm, không gắn đơn vị: mỗi lũy thừa của 2 chia
+ * thành 8 ô con, sai số tương đối tối đa khoảng 12%. record() chỉ là một phép cộng nguyên tử nên
+ * gọi được từ bất kỳ thread nào trên đường xử lý chính. Độ trễ dùng LatencyHistogram.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Đủ cho tới khoảng 2^40
+    private static final int BUCKETS = (40 + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long value) {
+        counts.incrementAndGet(indexOf(Math.max(0, value)));
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BUCKET_BITS
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        int index = (shift + 1) * SUB_BUCKETS + sub;
+        return Math.min(index, BUCKETS - 1);
+    }
+
+    // Giá trị lớn nhất thuộc về ô index
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        int sub = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * @param percentile từ 0 đến 100
+     * @return giá trị mà percentile% số mẫu không vượt quá; 0 nếu chưa có mẫu
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    // "count=.. p50=.. p99=.. p999=.."
+    public String summary() {
+        return "count=" + getCount() + " p50=" + getPercentile(50) + " p99=" + getPercentile(99)
+                + " p999=" + getPercentile(99.9);
+    }
+}
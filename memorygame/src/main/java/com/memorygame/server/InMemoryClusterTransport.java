@@ -0,0 +1,59 @@
+package com.memorygame.server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Các node chạy trong cùng một JVM (test, benchmark): gửi là giao Message cho executor một thread
+ * của node đích, giống một kết nối TCP giữ thứ tự nhưng không mã hóa.
+ */
+public class InMemoryClusterTransport implements ClusterTransport {
+
+    // Các node nhìn thấy nhau; mỗi cụm thử nghiệm một Network
+    public static final class Network {
+        private final Map<String, InMemoryClusterTransport> nodes = new ConcurrentHashMap<>();
+    }
+
+    // Dùng khi chọn memorygame.clusterTransport=MEMORY
+    static final Network DEFAULT = new Network();
+
+    private final Network network;
+    private final String localNodeId;
+    private final ExecutorService inbound;
+    private volatile Receiver receiver;
+
+    public InMemoryClusterTransport(Network network, String localNodeId) {
+        this.network = network;
+        this.localNodeId = localNodeId;
+        this.inbound = Executors.newSingleThreadExecutor(TaskExecutors.namedThreads("cluster-inbound-" + localNodeId));
+    }
+
+    @Override
+    public void start(Receiver receiver) {
+        this.receiver = receiver;
+        network.nodes.put(localNodeId, this);
+    }
+
+    @Override
+    public void send(String nodeId, Message message) {
+        InMemoryClusterTransport target = network.nodes.get(nodeId);
+        if (target == null) {
+            Log.warn("Cluster node {} is not reachable, dropped {}", nodeId, message.getCommand());
+            return;
+        }
+        try {
+            target.inbound.execute(() -> target.receiver.onMessage(localNodeId, message));
+        } catch (RejectedExecutionException e) {
+            // Node đích vừa dừng
+        }
+    }
+
+    @Override
+    public void close() {
+        network.nodes.remove(localNodeId, this);
+        inbound.shutdown();
+    }
+}
@@ -0,0 +1,126 @@
+package com.memorygame.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tách luồng byte của một kết nối thành dòng văn bản hoặc frame nhị phân rồi đưa cho ClientHandler.
+ * Dùng chung cho cả transport blocking và NIO. Chế độ được kiểm tra lại sau mỗi tin nhắn nên
+ * việc chuyển sang nhị phân ngay sau LOGIN không làm mất byte nào đã đọc. Dòng hoặc frame dài hơn
+ * InboundLimiter.getMaxMessageBytes() bị từ chối trước khi kịp làm bộ đệm phình ra.
+ */
+class InboundDecoder {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final ClientHandler handler;
+    private final InboundLimiter limiter;
+    private final int maxLength;
+    // Dòng hoặc frame chưa hoàn chỉnh giữa các lần đọc
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int length;
+
+    // Trạng thái đọc frame nhị phân: -1 nghĩa là đang đọc varint độ dài
+    private int frameLength = -1;
+    private int varintValue;
+    private int varintShift;
+
+    InboundDecoder(ClientHandler handler, InboundLimiter limiter) {
+        this.handler = handler;
+        this.limiter = limiter;
+        this.maxLength = Math.min(limiter.getMaxMessageBytes(), BinaryProtocol.MAX_FRAME_LENGTH);
+    }
+
+    /**
+     * @return false nếu dữ liệu vi phạm giao thức và kết nối cần bị đóng
+     */
+    boolean feed(ByteBuffer in) {
+        while (in.hasRemaining()) {
+            boolean ok = handler.isBinary() ? feedBinary(in) : feedText(in);
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Đọc tối đa một dòng
+    private boolean feedText(ByteBuffer in) {
+        while (in.hasRemaining()) {
+            byte b = in.get();
+            if (b == '\n') {
+                int end = length;
+                if (end > 0 && buffer[end - 1] == '\r') {
+                    end--;
+                }
+                String line = new String(buffer, 0, end, StandardCharsets.UTF_8);
+                length = 0;
+                handler.onLine(line);
+                return true;
+            }
+            if (length >= maxLength) {
+                limiter.recordOversized(handler.getConnection(), length + 1);
+                return false;
+            }
+            append(b);
+        }
+        return true;
+    }
+
+    // Đọc tối đa một frame
+    private boolean feedBinary(ByteBuffer in) {
+        while (frameLength < 0 && in.hasRemaining()) {
+            byte b = in.get();
+            varintValue |= (b & 0x7F) << varintShift;
+            varintShift += 7;
+            if ((b & 0x80) == 0) {
+                if (varintValue <= 0) {
+                    return false;
+                }
+                if (varintValue > maxLength) {
+                    limiter.recordOversized(handler.getConnection(), varintValue);
+                    return false;
+                }
+                frameLength = varintValue;
+                varintValue = 0;
+                varintShift = 0;
+                length = 0;
+            } else if (varintShift >= 35) {
+                return false;
+            }
+        }
+        if (frameLength < 0) {
+            return true;
+        }
+
+        int n = Math.min(frameLength - length, in.remaining());
+        ensureCapacity(length + n);
+        in.get(buffer, length, n);
+        length += n;
+        if (length == frameLength) {
+            ByteBuffer frame = ByteBuffer.wrap(buffer, 0, frameLength);
+            frameLength = -1;
+            length = 0;
+            try {
+                handler.onFrame(frame);
+            } catch (RuntimeException e) {
+                // Frame hỏng (varint sai, chuỗi vượt quá frame...)
+                Log.warn("Malformed frame from {}: {}", handler.getUsername(), e.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void append(byte b) {
+        ensureCapacity(length + 1);
+        buffer[length++] = b;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            byte[] grown = new byte[Math.max(capacity, buffer.length * 2)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.memorygame.server;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Giới hạn phía nhận của mọi kết nối, cặp với OutboundLimiter:
+ *
+ *   - mỗi kết nối có một token bucket cho từng nhóm lệnh (LOGIN, ANSWER, LOBBY, QUERY); hết token
+ *     thì tin nhắn bị bỏ, không trả lời, kết nối vẫn giữ
+ *   - dòng văn bản hoặc frame dài hơn maxMessageBytes thì đóng kết nối (InboundDecoder kiểm tra)
+ *   - chưa LOGIN sau loginTimeoutMillis thì đóng kết nối
+ *   - đã đăng nhập nhưng không gửi gì trong idleTimeoutMillis và không chơi hay xem trận nào thì đóng
+ *
+ * Hạn của mọi kết nối nằm trên TimingWheel chung của server, mỗi kết nối đúng một Timeout: khi bắn,
+ * Guard tự xem hoạt động gần nhất rồi hẹn lại phần thời gian còn thiếu, nên tin nhắn đến chỉ ghi
+ * một mốc thời gian chứ không hủy/hẹn lại timer. Bucket được nạp lười theo thời gian trôi qua,
+ * không có tác vụ định kỳ nào.
+ */
+public final class InboundLimiter {
+    // Nhóm lệnh, xem commandClass()
+    static final int LOGIN = 0;
+    static final int ANSWER = 1;
+    static final int LOBBY = 2;
+    static final int QUERY = 3;
+    static final String[] CLASS_NAMES = {"login", "answer", "lobby", "query"};
+
+    // Token tính theo phần nghìn để nạp lại bằng số nguyên
+    private static final long MILLI = 1000;
+
+    // Client lỗi hoặc kẻ tấn công có thể vượt giới hạn hàng loạt
+    private static final Log.Sampler REJECTED = new Log.Sampler("inbound rate limit", 20);
+    private static final Log.Sampler EVICTED = new Log.Sampler("inbound eviction", 20);
+
+    private final Rate[] rates;
+    private final int maxMessageBytes;
+    private final long loginTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final TimingWheel scheduler;
+    private final Executor closer;
+    private final AtomicLong[] rejected = new AtomicLong[CLASS_NAMES.length];
+    private final AtomicLong oversized = new AtomicLong();
+    private final AtomicLong loginTimeouts = new AtomicLong();
+    private final AtomicLong idleTimeouts = new AtomicLong();
+
+    /**
+     * @param rates mỗi nhóm lệnh một Rate theo thứ tự CLASS_NAMES; null = không giới hạn nhóm đó
+     */
+    public InboundLimiter(Rate[] rates, int maxMessageBytes, long loginTimeoutMillis, long idleTimeoutMillis,
+            TimingWheel scheduler, Executor closer) {
+        this.rates = rates.clone();
+        this.maxMessageBytes = Math.max(64, maxMessageBytes);
+        this.loginTimeoutMillis = loginTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.scheduler = scheduler;
+        this.closer = closer;
+        for (int i = 0; i < rejected.length; i++) {
+            rejected[i] = new AtomicLong();
+        }
+    }
+
+    // Lệnh văn bản không biết được tính như QUERY
+    static int commandClass(String command) {
+        switch (command) {
+            case MessageProtocol.LOGIN:
+            case MessageProtocol.RESUME:
+                return LOGIN;
+            case MessageProtocol.SUBMIT_ANSWER:
+                return ANSWER;
+            case MessageProtocol.CHALLENGE_REQUEST:
+            case MessageProtocol.CHALLENGE_RESPONSE:
+            case MessageProtocol.PRACTICE_REQUEST:
+            case MessageProtocol.MATCHMAKE:
+            case MessageProtocol.MATCHMAKE_CANCEL:
+            case MessageProtocol.ROOM_CREATE:
+            case MessageProtocol.ROOM_JOIN:
+            case MessageProtocol.ROOM_LEAVE:
+            case MessageProtocol.ROOM_START:
+            case MessageProtocol.SPECTATE:
+            case MessageProtocol.SPECTATE_STOP:
+                return LOBBY;
+            default:
+                return QUERY;
+        }
+    }
+
+    static int commandClass(byte opcode) {
+        switch (opcode) {
+            case BinaryProtocol.LOGIN:
+            case BinaryProtocol.RESUME:
+                return LOGIN;
+            case BinaryProtocol.SUBMIT_ANSWER:
+                return ANSWER;
+            case BinaryProtocol.CHALLENGE_REQUEST:
+            case BinaryProtocol.CHALLENGE_RESPONSE:
+            case BinaryProtocol.PRACTICE_REQUEST:
+            case BinaryProtocol.MATCHMAKE:
+            case BinaryProtocol.MATCHMAKE_CANCEL:
+            case BinaryProtocol.ROOM_CREATE:
+            case BinaryProtocol.ROOM_JOIN:
+            case BinaryProtocol.ROOM_LEAVE:
+            case BinaryProtocol.ROOM_START:
+            case BinaryProtocol.SPECTATE:
+            case BinaryProtocol.SPECTATE_STOP:
+                return LOBBY;
+            default:
+                return QUERY;
+        }
+    }
+
+    // Gọi một lần cho mỗi kết nối, trước khi đọc byte đầu tiên
+    Guard open(ClientHandler handler, Connection connection) {
+        Guard guard = new Guard(handler, connection);
+        if (loginTimeoutMillis > 0) {
+            guard.arm(loginTimeoutMillis);
+        } else if (idleTimeoutMillis > 0) {
+            guard.arm(idleTimeoutMillis);
+        }
+        return guard;
+    }
+
+    void recordOversized(Connection connection, int length) {
+        oversized.incrementAndGet();
+        if (EVICTED.allow()) {
+            Log.warn("Closing {}: message of {} bytes exceeds {}", connection.getRemoteAddress(), length,
+                    maxMessageBytes);
+        }
+    }
+
+    private void evict(Connection connection) {
+        try {
+            closer.execute(connection::close);
+        } catch (RejectedExecutionException e) {
+            connection.close();
+        }
+    }
+
+    public int getMaxMessageBytes() {
+        return maxMessageBytes;
+    }
+
+    public long getLoginTimeoutMillis() {
+        return loginTimeoutMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    // commandClass: LOGIN, ANSWER, LOBBY hoặc QUERY
+    public long getRejectedCount(int commandClass) {
+        return rejected[commandClass].get();
+    }
+
+    public long getOversizedCount() {
+        return oversized.get();
+    }
+
+    public long getLoginTimeoutCount() {
+        return loginTimeouts.get();
+    }
+
+    public long getIdleTimeoutCount() {
+        return idleTimeouts.get();
+    }
+
+    /**
+     * Dung lượng bucket (số tin nhắn liền nhau được phép) và số token nạp lại mỗi giây.
+     */
+    public static final class Rate {
+        final long capacity;
+        final long refillPerSecond;
+
+        public Rate(int burst, double perSecond) {
+            this.capacity = Math.max(1, burst) * MILLI;
+            this.refillPerSecond = Math.max(1, Math.round(perSecond * MILLI));
+        }
+
+        // "burst:perSecond", ví dụ "5:2"; chuỗi rỗng hoặc "0" = không giới hạn
+        public static Rate parse(String spec) {
+            spec = spec.trim();
+            if (spec.isEmpty() || "0".equals(spec)) return null;
+            int colon = spec.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Rate limit must be burst:perSecond, got " + spec);
+            }
+            return new Rate(Integer.parseInt(spec.substring(0, colon).trim()),
+                    Double.parseDouble(spec.substring(colon + 1).trim()));
+        }
+
+        @Override
+        public String toString() {
+            return capacity / MILLI + ":" + refillPerSecond / (double) MILLI;
+        }
+    }
+
+    /**
+     * Trạng thái của một kết nối. Bucket chỉ được thread đọc của kết nối dùng (thread blocking hoặc
+     * event loop NIO); mốc hoạt động được Timeout đọc từ thread của wheel.
+     */
+    final class Guard implements Runnable {
+        private final ClientHandler handler;
+        private final Connection connection;
+        private final long[] tokens = new long[CLASS_NAMES.length];
+        private final long[] refilledAt = new long[CLASS_NAMES.length];
+        private final long openedAt = System.nanoTime();
+        private volatile long lastActivity = openedAt;
+        private volatile boolean closed;
+        private volatile TimingWheel.Timeout timeout;
+
+        Guard(ClientHandler handler, Connection connection) {
+            this.handler = handler;
+            this.connection = connection;
+            for (int i = 0; i < rates.length; i++) {
+                if (rates[i] != null) {
+                    tokens[i] = rates[i].capacity;
+                    refilledAt[i] = openedAt;
+                }
+            }
+        }
+
+        // Ghi nhận hoạt động và lấy một token; false = bỏ tin nhắn
+        boolean allow(int commandClass) {
+            return allow(commandClass, System.nanoTime());
+        }
+
+        // now theo System.nanoTime(); test truyền đồng hồ giả
+        boolean allow(int commandClass, long now) {
+            lastActivity = now;
+            Rate rate = rates[commandClass];
+            if (rate == null) return true;
+            long available = tokens[commandClass];
+            if (available < rate.capacity) {
+                long refill = (now - refilledAt[commandClass]) * rate.refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+                if (refill > 0) {
+                    available = Math.min(rate.capacity, available + refill);
+                    refilledAt[commandClass] = now;
+                }
+            } else {
+                refilledAt[commandClass] = now;
+            }
+            if (available < MILLI) {
+                tokens[commandClass] = available;
+                rejected[commandClass].incrementAndGet();
+                if (REJECTED.allow()) {
+                    Log.warn("Rate limited {} from {} ({})", CLASS_NAMES[commandClass],
+                            handler.getUsername(), connection.getRemoteAddress());
+                }
+                return false;
+            }
+            tokens[commandClass] = available - MILLI;
+            return true;
+        }
+
+        // Kết nối đã đóng: gỡ Timeout khỏi wheel
+        void close() {
+            closed = true;
+            TimingWheel.Timeout pending = timeout;
+            if (pending != null) {
+                pending.cancel();
+            }
+        }
+
+        private void arm(long delayMillis) {
+            timeout = scheduler.schedule(this, delayMillis);
+        }
+
+        // Chạy trên thread của wheel: chỉ so mốc thời gian, việc đóng chạy trên executor
+        @Override
+        public void run() {
+            if (closed) return;
+            long now = System.nanoTime();
+            if (handler.getUsername() == null) {
+                if (loginTimeoutMillis <= 0) {
+                    arm(idleTimeoutMillis);
+                    return;
+                }
+                long remaining = loginTimeoutMillis - TimeUnit.NANOSECONDS.toMillis(now - openedAt);
+                if (remaining > 0) {
+                    arm(remaining);
+                    return;
+                }
+                loginTimeouts.incrementAndGet();
+                if (EVICTED.allow()) {
+                    Log.warn("Closing {}: no LOGIN within {} ms", connection.getRemoteAddress(), loginTimeoutMillis);
+                }
+                closed = true;
+                evict(connection);
+                return;
+            }
+            if (idleTimeoutMillis <= 0) return;
+            long remaining = idleTimeoutMillis - TimeUnit.NANOSECONDS.toMillis(now - lastActivity);
+            if (remaining > 0) {
+                arm(remaining);
+                return;
+            }
+            // Người chơi có thể chỉ xem mà không gửi gì, khán giả thì không bao giờ gửi; GameSession tự
+            // xử người bỏ trận, khán giả hết trận thì lại bị tính idle
+            if (handler.isInGame()) {
+                arm(idleTimeoutMillis);
+                return;
+            }
+            idleTimeouts.incrementAndGet();
+            if (EVICTED.allow()) {
+                Log.warn("Closing idle client {} ({}): nothing received for {} ms", handler.getUsername(),
+                        connection.getRemoteAddress(), idleTimeoutMillis);
+            }
+            closed = true;
+            evict(connection);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.memorygame.server;
+
+/**
+ * Một sự kiện của GameSession trong SessionJournal. Mọi loại dùng chung một bố cục cố định; ý
+ * nghĩa của seat/round/value/aux/text tùy theo type:
+ *
+ *   START    value = số round, aux = thời gian chờ (ms), text = cách chấm (AnswerScorer.toString())
+ *   SEAT     seat, text = username
+ *   ROUND    round, text = cụm từ
+ *   HIDE     round; timestamp = roundStartTime của session (mốc tính thời gian trả lời)
+ *   ANSWER   seat, round, text = câu trả lời; timestamp = lúc server nhận
+ *   SCORE    seat, round, value = tổng điểm sau round, aux = credit của câu trả lời
+ *   SUSPEND / RESUME / LEFT   seat, round
+ *   END      round, value = 1 nếu trận kết thúc sớm (bỏ cuộc, hết người)
+ */
+public final class JournalRecord {
+    public static final byte START = 1;
+    public static final byte SEAT = 2;
+    public static final byte ROUND = 3;
+    public static final byte HIDE = 4;
+    public static final byte ANSWER = 5;
+    public static final byte SCORE = 6;
+    public static final byte SUSPEND = 7;
+    public static final byte RESUME = 8;
+    public static final byte LEFT = 9;
+    public static final byte END = 10;
+
+    private final byte type;
+    private final long sessionId;
+    private final long timestamp;
+    private final int seat;
+    private final int round;
+    private final int value;
+    private final int aux;
+    private final String text;
+
+    public JournalRecord(byte type, long sessionId, long timestamp, int seat, int round, int value, int aux,
+            String text) {
+        this.type = type;
+        this.sessionId = sessionId;
+        this.timestamp = timestamp;
+        this.seat = seat;
+        this.round = round;
+        this.value = value;
+        this.aux = aux;
+        this.text = text;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getSeat() {
+        return seat;
+    }
+
+    public int getRound() {
+        return round;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public int getAux() {
+        return aux;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
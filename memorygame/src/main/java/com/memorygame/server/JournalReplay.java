@@ -0,0 +1,184 @@
+package com.memorygame.server;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dựng lại diễn biến trận từ SessionJournal: cụm từ từng round, lúc ẩn, từng câu trả lời và thời
+ * điểm nhận (tính từ lúc ẩn, đúng mốc GameSession dùng để tính điểm), rồi chấm lại bằng cùng
+ * AnswerScorer và GameSession.roundPoints như lúc chơi và so với điểm đã ghi.
+ *
+ *   JournalReplay <thư mục journal>                    liệt kê các trận
+ *   JournalReplay <thư mục journal> <session id|user>  diễn biến của trận đó / các trận của user
+ */
+public final class JournalReplay {
+
+    private static final class Match {
+        final long id;
+        final List<JournalRecord> records = new ArrayList<>();
+        final String[] players = new String[GameSession.MAX_PLAYERS];
+        int playerCount;
+        JournalRecord start;
+        JournalRecord end;
+
+        Match(long id) {
+            this.id = id;
+        }
+
+        void add(JournalRecord record) {
+            records.add(record);
+            if (record.getType() == JournalRecord.START) {
+                start = record;
+            } else if (record.getType() == JournalRecord.SEAT) {
+                players[record.getSeat()] = record.getText();
+                playerCount = Math.max(playerCount, record.getSeat() + 1);
+            } else if (record.getType() == JournalRecord.END) {
+                end = record;
+            }
+        }
+
+        boolean hasPlayer(String username) {
+            for (int seat = 0; seat < playerCount; seat++) {
+                if (username.equals(players[seat])) return true;
+            }
+            return false;
+        }
+
+        String name(int seat) {
+            return seat >= 0 && seat < playerCount && players[seat] != null ? players[seat] : "seat " + seat;
+        }
+    }
+
+    private JournalReplay() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: JournalReplay <journal dir> [session id | username]");
+            return;
+        }
+        Map<Long, Match> matches = new LinkedHashMap<>();
+        SessionJournal.read(Paths.get(args[0]),
+                record -> matches.computeIfAbsent(record.getSessionId(), Match::new).add(record));
+        if (args.length == 1) {
+            for (Match match : matches.values()) {
+                printSummary(match, System.out);
+            }
+            System.out.println(matches.size() + " sessions");
+            return;
+        }
+        int shown = 0;
+        for (Match match : matches.values()) {
+            if (args[1].equals(String.valueOf(match.id)) || match.hasPlayer(args[1])) {
+                replay(match, System.out);
+                shown++;
+            }
+        }
+        if (shown == 0) {
+            System.out.println("No session matches " + args[1]);
+        }
+    }
+
+    private static void printSummary(Match match, PrintStream out) {
+        StringBuilder players = new StringBuilder();
+        for (int seat = 0; seat < match.playerCount; seat++) {
+            if (seat > 0) players.append(',');
+            players.append(match.name(seat));
+        }
+        String state = match.end == null ? "unfinished" : match.end.getValue() == 1 ? "ended early" : "finished";
+        out.println(match.id + " " + Instant.ofEpochMilli(match.records.get(0).getTimestamp()) + " players="
+                + players + " rounds=" + lastRound(match) + " " + state);
+    }
+
+    private static int lastRound(Match match) {
+        int round = 0;
+        for (JournalRecord record : match.records) {
+            round = Math.max(round, record.getRound());
+        }
+        return round;
+    }
+
+    /**
+     * In diễn biến và chấm lại. Mốc tính thời gian trả lời là HIDE gần nhất, kể cả của round trước
+     * (câu trả lời đến trước khi ẩn được GameSession tính theo roundStartTime cũ).
+     */
+    static void replay(Match match, PrintStream out) {
+        if (match.start == null) {
+            out.println("session " + match.id + ": start of the session is not in the journal (segment deleted?)");
+            return;
+        }
+        AnswerScorer scorer = AnswerScorer.parse(match.start.getText());
+        int waitTime = match.start.getAux();
+        boolean practice = match.playerCount == 1;
+        long startTime = match.start.getTimestamp();
+        out.println("session " + match.id + " at " + Instant.ofEpochMilli(startTime) + ": "
+                + match.start.getValue() + " rounds, wait " + waitTime + " ms, scoring " + match.start.getText());
+        for (int seat = 0; seat < match.playerCount; seat++) {
+            out.println("  seat " + seat + ": " + match.name(seat));
+        }
+
+        String phrase = null;
+        long hideTime = 0;
+        String[] answers = new String[match.playerCount];
+        long[] answerTimes = new long[match.playerCount];
+        int[] scores = new int[match.playerCount];
+        int mismatches = 0;
+        for (JournalRecord record : match.records) {
+            String at = String.format("%+8d ms  ", record.getTimestamp() - startTime);
+            int seat = record.getSeat();
+            switch (record.getType()) {
+                case JournalRecord.ROUND:
+                    phrase = record.getText();
+                    Arrays.fill(answers, null);
+                    out.println(at + "round " + record.getRound() + " shows \"" + phrase + "\"");
+                    break;
+                case JournalRecord.HIDE:
+                    hideTime = record.getTimestamp();
+                    out.println(at + "round " + record.getRound() + " phrase hidden, answers open");
+                    break;
+                case JournalRecord.ANSWER:
+                    answers[seat] = record.getText();
+                    answerTimes[seat] = record.getTimestamp();
+                    out.println(at + match.name(seat) + " answered \"" + record.getText() + "\" "
+                            + (record.getTimestamp() - hideTime) + " ms after hide");
+                    break;
+                case JournalRecord.SCORE: {
+                    int credit = answers[seat] == null ? 0 : scorer.credit(phrase, answers[seat]);
+                    if (credit > 0) {
+                        scores[seat] += GameSession.roundPoints(practice, phrase, credit,
+                                answerTimes[seat] - hideTime, waitTime);
+                    }
+                    boolean same = scores[seat] == record.getValue() && credit == record.getAux();
+                    if (!same) mismatches++;
+                    out.println(at + match.name(seat) + " credit " + credit + "/" + AnswerScorer.FULL_CREDIT
+                            + " total " + scores[seat] + (same ? "" : "  MISMATCH: recorded total "
+                            + record.getValue() + ", credit " + record.getAux()));
+                    break;
+                }
+                case JournalRecord.SUSPEND:
+                    out.println(at + match.name(seat) + " lost connection, seat held");
+                    break;
+                case JournalRecord.RESUME:
+                    out.println(at + match.name(seat) + " resumed");
+                    break;
+                case JournalRecord.LEFT:
+                    out.println(at + match.name(seat) + " left the game");
+                    break;
+                case JournalRecord.END:
+                    out.println(at + (record.getValue() == 1 ? "ended early" : "finished"));
+                    break;
+                default:
+                    break;
+            }
+        }
+        out.println(mismatches == 0 ? "recomputed scores match the journal"
+                : mismatches + " score records differ from the recomputed scores");
+    }
+}
@@ -0,0 +1,28 @@
+package com.memorygame.server;
+
+/**
+ * Histogram độ trễ: Histogram với đơn vị micro giây, báo cáo theo mili giây.
+ */
+public class LatencyHistogram extends Histogram {
+    public void recordNanos(long nanos) {
+        record(nanos / 1000);
+    }
+
+    public void recordMicros(long micros) {
+        record(micros);
+    }
+
+    public long getPercentileMicros(double percentile) {
+        return getPercentile(percentile);
+    }
+
+    // "count=.. p50=..ms p99=..ms p999=..ms"
+    @Override
+    public String summary() {
+        return String.format("count=%d p50=%.2fms p99=%.2fms p999=%.2fms",
+                getCount(),
+                getPercentileMicros(50) / 1000.0,
+                getPercentileMicros(99) / 1000.0,
+                getPercentileMicros(99.9) / 1000.0);
+    }
+}
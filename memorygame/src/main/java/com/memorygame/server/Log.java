@@ -0,0 +1,344 @@
+package com.memorygame.server;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Logger bất đồng bộ thay cho System.out (vốn là stream synchronized nên mọi thread kết nối phải
+ * xếp hàng chờ nhau). Thread gọi chỉ giành một ô trong ring buffer cấp phát sẵn bằng CAS, chép
+ * tham chiếu format/tham số vào ô rồi trả về; việc ghép chuỗi và ghi ra stdout do một thread nền
+ * làm theo batch, flush mỗi batch một lần. Chỉ thread nền ghi vào System.out (lấy lúc khởi tạo) nên
+ * lock của stream không bao giờ bị tranh chấp.
+ *
+ * Mức log chọn bằng -Dmemorygame.logLevel (mặc định INFO; TRACE in từng tin nhắn client gửi lên;
+ * giá trị không hợp lệ thì dùng INFO).
+ * Khi buffer đầy, sự kiện bị bỏ và được đếm; thread nền báo số bị bỏ tối đa mỗi giây một lần.
+ * Chuỗi định dạng dùng "{}" làm chỗ giữ tham số. Tham số được định dạng muộn trên thread nền nên
+ * chỉ nên truyền giá trị bất biến (String, số...).
+ */
+public final class Log {
+    public enum Level { TRACE, DEBUG, INFO, WARN, ERROR }
+
+    private static final int BATCH_SIZE = 256;
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static final Level LEVEL = parseLevel(System.getProperty("memorygame.logLevel", "INFO"));
+    private static final Event[] RING;
+    private static final int MASK;
+    // Số thứ tự ô kế tiếp cho producer và ô kế tiếp thread nền sẽ đọc
+    private static final AtomicLong CLAIMED = new AtomicLong();
+    private static volatile long drained;
+    private static final AtomicLong DROPPED = new AtomicLong();
+    // Ghi qua System.out chứ không mở thẳng fd 1, để không vượt mặt stream mà JVM (hoặc test runner)
+    // đã thay vào
+    private static final PrintStream OUT = System.out;
+
+    static {
+        int requested = Integer.getInteger("memorygame.logBufferSize", 16384);
+        int capacity = Integer.highestOneBit(Math.max(requested, 2) - 1) << 1;
+        RING = new Event[capacity];
+        for (int i = 0; i < capacity; i++) {
+            RING[i] = new Event(i - capacity);
+        }
+        MASK = capacity - 1;
+
+        Thread drainer = new Thread(Log::runDrainer, "log-writer");
+        drainer.setDaemon(true);
+        drainer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::drainRemaining, "log-shutdown"));
+    }
+
+    private Log() {
+    }
+
+    // Sai mức log không được làm hỏng việc khởi tạo mọi class có ghi log
+    private static Level parseLevel(String name) {
+        try {
+            return Level.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown memorygame.logLevel '" + name + "', using INFO");
+            return Level.INFO;
+        }
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.compareTo(LEVEL) >= 0;
+    }
+
+    public static boolean isTraceEnabled() {
+        return isEnabled(Level.TRACE);
+    }
+
+    public static void trace(String message) {
+        if (isEnabled(Level.TRACE)) publish(Level.TRACE, message, null, null, null, null);
+    }
+
+    public static void trace(String format, Object arg1) {
+        if (isEnabled(Level.TRACE)) publish(Level.TRACE, format, arg1, null, null, null);
+    }
+
+    public static void trace(String format, Object arg1, Object arg2) {
+        if (isEnabled(Level.TRACE)) publish(Level.TRACE, format, arg1, arg2, null, null);
+    }
+
+    public static void trace(String format, Object arg1, Object arg2, Object arg3) {
+        if (isEnabled(Level.TRACE)) publish(Level.TRACE, format, arg1, arg2, arg3, null);
+    }
+
+    public static void debug(String message) {
+        if (isEnabled(Level.DEBUG)) publish(Level.DEBUG, message, null, null, null, null);
+    }
+
+    public static void debug(String format, Object arg1) {
+        if (isEnabled(Level.DEBUG)) publish(Level.DEBUG, format, arg1, null, null, null);
+    }
+
+    public static void debug(String format, Object arg1, Object arg2) {
+        if (isEnabled(Level.DEBUG)) publish(Level.DEBUG, format, arg1, arg2, null, null);
+    }
+
+    public static void debug(String format, Object arg1, Object arg2, Object arg3) {
+        if (isEnabled(Level.DEBUG)) publish(Level.DEBUG, format, arg1, arg2, arg3, null);
+    }
+
+    public static void info(String message) {
+        if (isEnabled(Level.INFO)) publish(Level.INFO, message, null, null, null, null);
+    }
+
+    public static void info(String format, Object arg1) {
+        if (isEnabled(Level.INFO)) publish(Level.INFO, format, arg1, null, null, null);
+    }
+
+    public static void info(String format, Object arg1, Object arg2) {
+        if (isEnabled(Level.INFO)) publish(Level.INFO, format, arg1, arg2, null, null);
+    }
+
+    public static void info(String format, Object arg1, Object arg2, Object arg3) {
+        if (isEnabled(Level.INFO)) publish(Level.INFO, format, arg1, arg2, arg3, null);
+    }
+
+    public static void warn(String message) {
+        if (isEnabled(Level.WARN)) publish(Level.WARN, message, null, null, null, null);
+    }
+
+    public static void warn(String format, Object arg1) {
+        if (isEnabled(Level.WARN)) publish(Level.WARN, format, arg1, null, null, null);
+    }
+
+    public static void warn(String format, Object arg1, Object arg2) {
+        if (isEnabled(Level.WARN)) publish(Level.WARN, format, arg1, arg2, null, null);
+    }
+
+    public static void warn(String format, Object arg1, Object arg2, Object arg3) {
+        if (isEnabled(Level.WARN)) publish(Level.WARN, format, arg1, arg2, arg3, null);
+    }
+
+    public static void error(String message) {
+        if (isEnabled(Level.ERROR)) publish(Level.ERROR, message, null, null, null, null);
+    }
+
+    public static void error(String format, Object arg1) {
+        if (isEnabled(Level.ERROR)) publish(Level.ERROR, format, arg1, null, null, null);
+    }
+
+    public static void error(String format, Object arg1, Object arg2) {
+        if (isEnabled(Level.ERROR)) publish(Level.ERROR, format, arg1, arg2, null, null);
+    }
+
+    public static void error(String format, Object arg1, Object arg2, Object arg3) {
+        if (isEnabled(Level.ERROR)) publish(Level.ERROR, format, arg1, arg2, arg3, null);
+    }
+
+    // Kèm stack trace của error
+    public static void error(String format, Object arg1, Throwable error) {
+        if (isEnabled(Level.ERROR)) publish(Level.ERROR, format, arg1, null, null, error);
+    }
+
+    public static long getDroppedCount() {
+        return DROPPED.get();
+    }
+
+    // Số sự kiện đang nằm trong buffer chờ ghi
+    public static int getBacklog() {
+        return (int) Math.max(0, CLAIMED.get() - drained);
+    }
+
+    private static void publish(Level level, String format, Object arg1, Object arg2, Object arg3, Throwable error) {
+        long sequence;
+        do {
+            sequence = CLAIMED.get();
+            if (sequence - drained >= RING.length) {
+                DROPPED.incrementAndGet();
+                return;
+            }
+        } while (!CLAIMED.compareAndSet(sequence, sequence + 1));
+
+        Event event = RING[(int) (sequence & MASK)];
+        event.level = level;
+        event.time = System.currentTimeMillis();
+        event.thread = Thread.currentThread().getName();
+        event.format = format;
+        event.arg1 = arg1;
+        event.arg2 = arg2;
+        event.arg3 = arg3;
+        event.error = error;
+        // Ghi volatile sau cùng: thread nền chỉ đọc ô khi thấy đúng số thứ tự
+        event.sequence = sequence;
+    }
+
+    private static void runDrainer() {
+        StringBuilder sb = new StringBuilder(1024);
+        long reportedDropped = 0;
+        long lastDropReport = 0;
+        while (true) {
+            int written = drainBatch(sb);
+            long dropped = DROPPED.get();
+            long now = System.currentTimeMillis();
+            if (dropped != reportedDropped && now - lastDropReport >= 1000) {
+                sb.setLength(0);
+                appendHeader(sb, Level.WARN, now, "log-writer");
+                sb.append("Log buffer full, dropped ").append(dropped - reportedDropped)
+                        .append(" events (").append(dropped).append(" total)");
+                writeLine(sb);
+                flush();
+                reportedDropped = dropped;
+                lastDropReport = now;
+            }
+            if (written == 0) {
+                LockSupport.parkNanos(1_000_000);
+            }
+        }
+    }
+
+    // Ghi tối đa BATCH_SIZE sự kiện liên tiếp đã được publish, flush một lần
+    private static synchronized int drainBatch(StringBuilder sb) {
+        long next = drained;
+        int count = 0;
+        while (count < BATCH_SIZE) {
+            Event event = RING[(int) (next & MASK)];
+            if (event.sequence != next) {
+                break;
+            }
+            sb.setLength(0);
+            event.format(sb);
+            event.clear();
+            next++;
+            count++;
+            // Trả ô cho producer ngay, không đợi cả batch
+            drained = next;
+            writeLine(sb);
+        }
+        if (count > 0) {
+            flush();
+        }
+        return count;
+    }
+
+    private static void drainRemaining() {
+        StringBuilder sb = new StringBuilder(1024);
+        while (drainBatch(sb) > 0) {
+            // tiếp tục tới khi buffer trống
+        }
+    }
+
+    // PrintStream tự nuốt IOException (stdout đã đóng thì không còn nơi nào để báo lỗi)
+    private static void writeLine(StringBuilder sb) {
+        sb.append('\n');
+        OUT.append(sb);
+    }
+
+    private static void flush() {
+        OUT.flush();
+    }
+
+    private static void appendHeader(StringBuilder sb, Level level, long time, String thread) {
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(time), sb);
+        sb.append(' ').append(level).append(" [").append(thread).append("] ");
+    }
+
+    private static final class Event {
+        volatile long sequence;
+        Level level;
+        long time;
+        String thread;
+        String format;
+        Object arg1;
+        Object arg2;
+        Object arg3;
+        Throwable error;
+
+        Event(long sequence) {
+            this.sequence = sequence;
+        }
+
+        void format(StringBuilder sb) {
+            appendHeader(sb, level, time, thread);
+            Object[] args = {arg1, arg2, arg3};
+            int argIndex = 0;
+            int start = 0;
+            int placeholder;
+            while (argIndex < args.length && (placeholder = format.indexOf("{}", start)) >= 0) {
+                sb.append(format, start, placeholder).append(args[argIndex++]);
+                start = placeholder + 2;
+            }
+            sb.append(format, start, format.length());
+            if (error != null) {
+                StringWriter trace = new StringWriter();
+                error.printStackTrace(new PrintWriter(trace));
+                sb.append('\n').append(trace.toString().trim());
+            }
+        }
+
+        void clear() {
+            thread = null;
+            format = null;
+            arg1 = null;
+            arg2 = null;
+            arg3 = null;
+            error = null;
+        }
+    }
+
+    /**
+     * Giới hạn tần suất cho sự kiện ồn ào (ví dụ ngắt kết nối hàng loạt): cho qua tối đa
+     * perSecond lần mỗi giây, phần còn lại chỉ được đếm và tóm tắt ở lần cho qua kế tiếp.
+     */
+    public static final class Sampler {
+        private final String name;
+        private final int perSecond;
+        private final AtomicLong window = new AtomicLong();
+        private final AtomicInteger countInWindow = new AtomicInteger();
+        private final AtomicInteger suppressed = new AtomicInteger();
+
+        public Sampler(String name, int perSecond) {
+            this.name = name;
+            this.perSecond = perSecond;
+        }
+
+        public boolean allow() {
+            long second = System.currentTimeMillis() / 1000;
+            long current = window.get();
+            if (second != current && window.compareAndSet(current, second)) {
+                countInWindow.set(0);
+                int skipped = suppressed.getAndSet(0);
+                if (skipped > 0) {
+                    warn("Suppressed {} '" + name + "' log events in the last second", skipped);
+                }
+            }
+            if (countInWindow.incrementAndGet() <= perSecond) {
+                return true;
+            }
+            suppressed.incrementAndGet();
+            return false;
+        }
+    }
+}
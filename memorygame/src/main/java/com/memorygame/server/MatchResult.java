@@ -0,0 +1,66 @@
+package com.memorygame.server;
+
+/**
+ * Kết quả một trận thách đấu, được ghi xuống MatchResultStore.
+ */
+public final class MatchResult {
+    private final long endedAt;
+    private final String player1;
+    private final String player2;
+    private final int player1Score;
+    private final int player2Score;
+    private final int roundsPlayed;
+    // null khi hòa
+    private final String winner;
+    private final boolean forfeit;
+
+    public MatchResult(long endedAt, String player1, String player2, int player1Score, int player2Score,
+                       int roundsPlayed, String winner, boolean forfeit) {
+        this.endedAt = endedAt;
+        this.player1 = player1;
+        this.player2 = player2;
+        this.player1Score = player1Score;
+        this.player2Score = player2Score;
+        this.roundsPlayed = roundsPlayed;
+        this.winner = winner;
+        this.forfeit = forfeit;
+    }
+
+    public long getEndedAt() {
+        return endedAt;
+    }
+
+    public String getPlayer1() {
+        return player1;
+    }
+
+    public String getPlayer2() {
+        return player2;
+    }
+
+    public int getPlayer1Score() {
+        return player1Score;
+    }
+
+    public int getPlayer2Score() {
+        return player2Score;
+    }
+
+    public int getRoundsPlayed() {
+        return roundsPlayed;
+    }
+
+    public String getWinner() {
+        return winner;
+    }
+
+    public boolean isForfeit() {
+        return forfeit;
+    }
+
+    @Override
+    public String toString() {
+        return player1 + " " + player1Score + " - " + player2Score + " " + player2
+                + (winner == null ? " (draw)" : " (winner " + winner + (forfeit ? " by forfeit)" : ")"));
+    }
+}
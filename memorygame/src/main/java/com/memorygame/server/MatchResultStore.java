@@ -0,0 +1,24 @@
+package com.memorygame.server;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Nơi lưu kết quả trận đấu. MatchResultWriter gọi các phương thức này từ một thread nền duy nhất,
+ * nên cài đặt không cần thread-safe. Có thể thay file bằng database nhúng qua interface này.
+ */
+public interface MatchResultStore {
+    /**
+     * Đọc lại các bản ghi hợp lệ khi khởi động và bỏ phần đuôi ghi dở (nếu có).
+     * @return số bản ghi đã đọc lại
+     */
+    int recover(Consumer<MatchResult> consumer) throws IOException;
+
+    void append(List<MatchResult> batch) throws IOException;
+
+    // Đảm bảo dữ liệu đã xuống đĩa (fsync), gọi một lần cho mỗi batch
+    void sync() throws IOException;
+
+    void close() throws IOException;
+}
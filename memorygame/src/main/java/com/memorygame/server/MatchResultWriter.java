@@ -0,0 +1,117 @@
+package com.memorygame.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Ghi kết quả trận theo kiểu write-behind: GameSession chỉ offer() vào hàng đợi có giới hạn
+ * (không bao giờ chờ đĩa), một thread nền gom thành batch, ghi và fsync mỗi batch một lần.
+ * Khi hàng đợi đầy, kết quả bị bỏ và được đếm vào droppedCount.
+ */
+public class MatchResultWriter {
+    private final MatchResultStore store;
+    private final BlockingQueue<MatchResult> queue;
+    private final int maxBatchSize;
+
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile long writtenCount;
+    private volatile long batchCount;
+    private volatile long failedCount;
+    private volatile int queueHighWaterMark;
+
+    public MatchResultWriter(MatchResultStore store, int queueCapacity, int maxBatchSize) {
+        this.store = store;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Đọc lại dữ liệu cũ (mỗi kết quả được đưa cho onRecovered) rồi khởi động thread ghi nền.
+     */
+    public void start(Consumer<MatchResult> onRecovered) throws IOException {
+        int recovered = store.recover(onRecovered);
+        Log.info("Match log recovered {} results.", recovered);
+        Thread thread = new Thread(this::runWriter, "match-result-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Gọi từ thread của game, không chặn
+    public boolean publish(MatchResult result) {
+        publishedCount.incrementAndGet();
+        if (!queue.offer(result)) {
+            long dropped = droppedCount.incrementAndGet();
+            // Chỉ báo ở lần đầu và mỗi 1000 lần để không làm ngập log
+            if (dropped == 1 || dropped % 1000 == 0) {
+                Log.warn("Match result queue full, dropped {} results so far.", dropped);
+            }
+            return false;
+        }
+        int depth = queue.size();
+        if (depth > queueHighWaterMark) {
+            queueHighWaterMark = depth;
+        }
+        return true;
+    }
+
+    private void runWriter() {
+        List<MatchResult> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<MatchResult> batch) {
+        try {
+            store.append(batch);
+            store.sync();
+            writtenCount += batch.size();
+            batchCount++;
+        } catch (IOException e) {
+            failedCount += batch.size();
+            Log.error("Failed to write {} match results: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getQueueHighWaterMark() {
+        return queueHighWaterMark;
+    }
+}
@@ -0,0 +1,324 @@
+package com.memorygame.server;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hàng đợi ghép trận tự động (MATCHMAKE). Người chơi được ghép với người có cùng thiết lập trận
+ * (rounds, displayTime, waitTime) và điểm xếp hạng gần nhất; chờ càng lâu thì khoảng chênh lệch
+ * điểm chấp nhận được càng rộng.
+ *
+ * Thêm vào hàng đợi không khóa: mỗi thiết lập trận có một dãy hàng đợi ConcurrentLinkedQueue chia
+ * theo khoảng điểm, thread gọi chỉ offer() vào ô của mình. Việc ghép chạy định kỳ trên TimingWheel
+ * (một thread duy nhất) nên danh sách người đang chờ không cần khóa. Hủy và ngắt kết nối chỉ đổi
+ * trạng thái ticket bằng CAS; ticket đã hủy bị bỏ qua ở lượt ghép kế tiếp. Hàng đợi của một thiết
+ * lập trận không còn ai chờ trong IDLE_PASSES_BEFORE_PRUNE lượt thì bị gỡ, để client đổi thiết lập
+ * liên tục không làm số hàng đợi (và chi phí mỗi lượt ghép) tăng mãi.
+ */
+public class Matchmaker {
+    // Độ rộng mỗi ô điểm ở hàng đợi vào
+    private static final int BUCKET_WIDTH = 100;
+    private static final int BUCKETS = 32;
+    // Số lượt ghép liên tiếp không có ai chờ trước khi gỡ hàng đợi của một thiết lập
+    private static final int IDLE_PASSES_BEFORE_PRUNE = 50;
+
+    /** Được gọi trên thread của TimingWheel khi hai người chơi được ghép. */
+    public interface MatchListener {
+        void onMatch(Ticket first, Ticket second, long waitedMillis);
+    }
+
+    private final TimingWheel scheduler;
+    private final MatchListener listener;
+    private final long intervalMillis;
+    private final int baseWindow;
+    private final int windowGrowthPerSecond;
+    private final int maxWindow;
+
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Map<Settings, Pool> pools = new ConcurrentHashMap<>();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+    private volatile long matchedCount;
+
+    public Matchmaker(TimingWheel scheduler, MatchListener listener, long intervalMillis,
+                      int baseWindow, int windowGrowthPerSecond, int maxWindow) {
+        this.scheduler = scheduler;
+        this.listener = listener;
+        this.intervalMillis = intervalMillis;
+        this.baseWindow = baseWindow;
+        this.windowGrowthPerSecond = windowGrowthPerSecond;
+        this.maxWindow = maxWindow;
+    }
+
+    public void start() {
+        scheduler.schedule(this::runMatchingPass, intervalMillis);
+    }
+
+    /**
+     * Thêm người chơi vào hàng đợi. Trả về false nếu người này đã đang chờ.
+     */
+    public boolean enqueue(ClientHandler player, int rating, int rounds, int displayTime, int waitTime) {
+        Ticket ticket = new Ticket(player, rating, new Settings(rounds, displayTime, waitTime));
+        if (tickets.putIfAbsent(player.getUsername(), ticket) != null) {
+            return false;
+        }
+        waitingCount.incrementAndGet();
+        offer(ticket);
+        return true;
+    }
+
+    private void offer(Ticket ticket) {
+        Queue<Ticket> queue;
+        do {
+            Pool pool = pools.computeIfAbsent(ticket.settings, Pool::new);
+            queue = pool.inbox[bucketOf(ticket.rating)];
+            queue.offer(ticket);
+            // Pool vừa bị gỡ: hoặc lượt gỡ đã chuyển ticket sang pool mới, hoặc tự lấy lại và thử lại
+            if (!pool.retired) return;
+        } while (queue.remove(ticket));
+    }
+
+    /**
+     * Trả ticket đã ghép về hàng đợi, giữ nguyên thời điểm xếp hàng (cửa sổ điểm không bị thu hẹp lại).
+     * Dùng khi cặp vừa ghép không bắt đầu được vì người kia đã bận. Trả về false nếu người này đã
+     * xếp hàng lại bằng ticket khác.
+     */
+    public boolean requeue(Ticket ticket) {
+        if (tickets.putIfAbsent(ticket.player.getUsername(), ticket) != null) {
+            return false;
+        }
+        ticket.state.set(Ticket.WAITING);
+        waitingCount.incrementAndGet();
+        offer(ticket);
+        return true;
+    }
+
+    // Dùng cho cả lệnh hủy và khi người chơi ngắt kết nối
+    public boolean cancel(String username) {
+        Ticket ticket = tickets.get(username);
+        if (ticket != null && ticket.state.compareAndSet(Ticket.WAITING, Ticket.CANCELLED)) {
+            tickets.remove(username, ticket);
+            waitingCount.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isWaiting(String username) {
+        return tickets.containsKey(username);
+    }
+
+    public int getWaitingCount() {
+        return waitingCount.get();
+    }
+
+    public long getMatchedCount() {
+        return matchedCount;
+    }
+
+    public LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    private static int bucketOf(int rating) {
+        return Math.max(0, Math.min(rating / BUCKET_WIDTH, BUCKETS - 1));
+    }
+
+    private void runMatchingPass() {
+        try {
+            long now = System.currentTimeMillis();
+            for (Pool pool : pools.values()) {
+                pool.match(now);
+                if (!pool.isIdle()) {
+                    pool.idlePasses = 0;
+                } else if (++pool.idlePasses >= IDLE_PASSES_BEFORE_PRUNE) {
+                    retire(pool);
+                }
+            }
+        } finally {
+            scheduler.schedule(this::runMatchingPass, intervalMillis);
+        }
+    }
+
+    // Chạy trên thread của TimingWheel; ticket đến sau lần match() cuối được chuyển sang pool mới
+    private void retire(Pool pool) {
+        pool.retired = true;
+        pools.remove(pool.settings, pool);
+        for (Queue<Ticket> queue : pool.inbox) {
+            Ticket ticket;
+            while ((ticket = queue.poll()) != null) {
+                if (ticket.state.get() == Ticket.WAITING) {
+                    offer(ticket);
+                }
+            }
+        }
+    }
+
+    public int getPoolCount() {
+        return pools.size();
+    }
+
+    // Khoảng chênh lệch điểm chấp nhận được, tăng dần theo thời gian chờ
+    int windowFor(Ticket ticket, long now) {
+        long waitedSeconds = (now - ticket.enqueuedAt) / 1000;
+        return (int) Math.min(maxWindow, baseWindow + waitedSeconds * windowGrowthPerSecond);
+    }
+
+    private boolean claim(Ticket first, Ticket second) {
+        if (!first.state.compareAndSet(Ticket.WAITING, Ticket.MATCHED)) {
+            return false;
+        }
+        if (!second.state.compareAndSet(Ticket.WAITING, Ticket.MATCHED)) {
+            // second vừa bị hủy, trả first về hàng đợi
+            first.state.set(Ticket.WAITING);
+            return false;
+        }
+        tickets.remove(first.player.getUsername(), first);
+        tickets.remove(second.player.getUsername(), second);
+        waitingCount.addAndGet(-2);
+        return true;
+    }
+
+    private final class Pool {
+        final Settings settings;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final Queue<Ticket>[] inbox = new Queue[BUCKETS];
+        // Chỉ thread của TimingWheel truy cập
+        final List<Ticket> waiting = new ArrayList<>();
+        int idlePasses;
+        // Đã bị gỡ khỏi pools, xem offer() và retire()
+        volatile boolean retired;
+
+        Pool(Settings settings) {
+            this.settings = settings;
+            for (int i = 0; i < BUCKETS; i++) {
+                inbox[i] = new ConcurrentLinkedQueue<>();
+            }
+        }
+
+        boolean isIdle() {
+            if (!waiting.isEmpty()) return false;
+            for (Queue<Ticket> queue : inbox) {
+                if (!queue.isEmpty()) return false;
+            }
+            return true;
+        }
+
+        void match(long now) {
+            // Rút theo thứ tự ô điểm tăng dần nên danh sách gần như đã sắp xếp, sort gần như O(n)
+            for (Queue<Ticket> queue : inbox) {
+                Ticket ticket;
+                while ((ticket = queue.poll()) != null) {
+                    waiting.add(ticket);
+                }
+            }
+            waiting.removeIf(ticket -> ticket.state.get() != Ticket.WAITING);
+            if (waiting.size() < 2) return;
+            waiting.sort(Comparator.comparingInt((Ticket ticket) -> ticket.rating));
+
+            // Ghép tham lam các cặp kề nhau, mỗi người chấp nhận chênh lệch theo cửa sổ của chính mình
+            List<Ticket> unmatched = new ArrayList<>();
+            int i = 0;
+            while (i < waiting.size()) {
+                Ticket first = waiting.get(i);
+                if (i + 1 < waiting.size()) {
+                    Ticket second = waiting.get(i + 1);
+                    int diff = second.rating - first.rating;
+                    if (diff <= windowFor(first, now) && diff <= windowFor(second, now) && claim(first, second)) {
+                        long waited = now - Math.min(first.enqueuedAt, second.enqueuedAt);
+                        waitTime.recordMicros((now - first.enqueuedAt) * 1000);
+                        waitTime.recordMicros((now - second.enqueuedAt) * 1000);
+                        matchedCount++;
+                        try {
+                            listener.onMatch(first, second, waited);
+                        } catch (RuntimeException e) {
+                            Log.error("Failed to start matched game: {}", e, e);
+                        }
+                        i += 2;
+                        continue;
+                    }
+                }
+                if (first.state.get() == Ticket.WAITING) {
+                    unmatched.add(first);
+                }
+                i++;
+            }
+            waiting.clear();
+            waiting.addAll(unmatched);
+        }
+    }
+
+    public static final class Ticket {
+        static final int WAITING = 0;
+        static final int MATCHED = 1;
+        static final int CANCELLED = 2;
+
+        final ClientHandler player;
+        final int rating;
+        final Settings settings;
+        final long enqueuedAt = System.currentTimeMillis();
+        final AtomicInteger state = new AtomicInteger(WAITING);
+
+        Ticket(ClientHandler player, int rating, Settings settings) {
+            this.player = player;
+            this.rating = rating;
+            this.settings = settings;
+        }
+
+        public ClientHandler getPlayer() {
+            return player;
+        }
+
+        public int getRating() {
+            return rating;
+        }
+
+        public Settings getSettings() {
+            return settings;
+        }
+    }
+
+    // Chỉ ghép những người chọn cùng thiết lập trận
+    public static final class Settings {
+        final int rounds;
+        final int displayTime;
+        final int waitTime;
+
+        Settings(int rounds, int displayTime, int waitTime) {
+            this.rounds = rounds;
+            this.displayTime = displayTime;
+            this.waitTime = waitTime;
+        }
+
+        public int getRounds() {
+            return rounds;
+        }
+
+        public int getDisplayTime() {
+            return displayTime;
+        }
+
+        public int getWaitTime() {
+            return waitTime;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Settings)) return false;
+            Settings other = (Settings) o;
+            return rounds == other.rounds && displayTime == other.displayTime && waitTime == other.waitTime;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(rounds, displayTime, waitTime);
+        }
+    }
+}
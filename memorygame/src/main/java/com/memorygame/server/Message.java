@@ -0,0 +1,106 @@
+package com.memorygame.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tin nhắn server gửi cho client: tên lệnh (hằng số trong MessageProtocol) và các trường
+ * (String hoặc Integer). Cùng một Message được mã hóa theo giao thức văn bản hoặc nhị phân
+ * tùy kết nối nhận. Tin nhắn chỉ gồm số gửi mỗi round (UPDATE_SCORE) dùng ofInts() để khỏi
+ * đóng hộp từng số.
+ */
+public final class Message {
+    private final String command;
+    private final Object[] fields;
+    // Khác null thì thay cho fields, xem ofInts()
+    private final int[] ints;
+    // Có thể bỏ khi hàng đợi gửi của người nhận đã đầy (xem OutboundLimiter)
+    private final boolean droppable;
+    // Mã hóa một lần cho mỗi giao thức rồi dùng chung cho mọi người nhận (broadcast)
+    private volatile ByteBuffer textFrame;
+    private volatile ByteBuffer binaryFrame;
+
+    private Message(String command, Object[] fields, int[] ints) {
+        this.command = command;
+        this.fields = fields;
+        this.ints = ints;
+        this.droppable = MessageProtocol.isDroppable(command);
+    }
+
+    public static Message of(String command, Object... fields) {
+        return new Message(command, fields, null);
+    }
+
+    // Các trường đều là số; values được sao chép vì tin nhắn có thể được mã hóa sau (khán giả, cụm)
+    public static Message ofInts(String command, int[] values) {
+        return new Message(command, null, values.clone());
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public boolean isDroppable() {
+        return droppable;
+    }
+
+    public int getFieldCount() {
+        return ints != null ? ints.length : fields.length;
+    }
+
+    public Object getField(int index) {
+        return ints != null ? Integer.valueOf(ints[index]) : fields[index];
+    }
+
+    // Trường kiểu số, không đóng hộp với tin nhắn tạo bằng ofInts()
+    int getInt(int index) {
+        if (ints != null) {
+            return ints[index];
+        }
+        Object field = fields[index];
+        if (field instanceof Integer) {
+            return (Integer) field;
+        }
+        return Integer.parseInt(String.valueOf(field));
+    }
+
+    // command|field1|field2...
+    public String toText() {
+        int count = getFieldCount();
+        if (count == 0) {
+            return command;
+        }
+        StringBuilder sb = new StringBuilder(command.length() + count * 8);
+        sb.append(command);
+        for (int i = 0; i < count; i++) {
+            sb.append(MessageProtocol.SEPARATOR);
+            if (ints != null) {
+                sb.append(ints[i]);
+            } else {
+                sb.append(fields[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Trả về view riêng (position độc lập) của frame đã mã hóa; nội dung chỉ đọc và dùng chung.
+     */
+    public ByteBuffer encode(boolean binary) {
+        ByteBuffer frame = binary ? binaryFrame : textFrame;
+        if (frame == null) {
+            // Hai thread có thể cùng mã hóa lần đầu, kết quả giống nhau nên không cần khóa
+            if (binary) {
+                frame = binaryFrame = BinaryProtocol.encode(this).asReadOnlyBuffer();
+            } else {
+                frame = textFrame = ByteBuffer.wrap((toText() + "\n").getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+            }
+        }
+        return frame.duplicate();
+    }
+
+    @Override
+    public String toString() {
+        return toText();
+    }
+}
@@ -4,6 +4,7 @@ public class MessageProtocol {
     public static final String SEPARATOR = "|";
     // Client to Server
     public static final String LOGIN = "LOGIN";
+    public static final String RESUME = "RESUME"; // user|resume token[|BINARY]: đăng nhập lại và quay về trận đang treo
     public static final String PRACTICE_REQUEST = "PRACTICE_REQUEST";
     public static final String PRACTICE_COMPLETE = "PRACTICE_COMPLETE";
     public static final String CHALLENGE_REQUEST = "CHALLENGE_REQUEST";
@@ -11,23 +12,68 @@ public class MessageProtocol {
     public static final String CHALLENGE_REJECTED = "CHALLENGE_REJECTED";
     public static final String SUBMIT_ANSWER = "SUBMIT_ANSWER";
     public static final String LOGOUT = "LOGOUT";
+    public static final String MATCHMAKE = "MATCHMAKE"; // Vào hàng đợi ghép trận tự động
+    public static final String MATCHMAKE_CANCEL = "MATCHMAKE_CANCEL";
+    public static final String STATS = "STATS"; // Chỉ user admin
+    public static final String ROOM_CREATE = "ROOM_CREATE"; // số round|thời gian hiển thị|thời gian chờ|số người tối đa
+    public static final String ROOM_JOIN = "ROOM_JOIN"; // id phòng
+    public static final String ROOM_LEAVE = "ROOM_LEAVE";
+    public static final String ROOM_START = "ROOM_START"; // Chỉ chủ phòng
+    public static final String SPECTATE = "SPECTATE"; // Xem trận của một người chơi
+    public static final String SPECTATE_STOP = "SPECTATE_STOP";
+    public static final String ONLINE_LIST_REQUEST = "ONLINE_LIST_REQUEST"; // Xin lại snapshot khi thiếu delta
 
     // Server to Client
-    public static final String LOGIN_SUCCESS = "LOGIN_SUCCESS";
+    public static final String LOGIN_SUCCESS = "LOGIN_SUCCESS"; // resume token mới cho lần RESUME sau
     public static final String LOGIN_FAIL = "LOGIN_FAIL";
-    public static final String ONLINE_LIST = "ONLINE_LIST";
+    public static final String LOGIN_REDIRECT = "LOGIN_REDIRECT"; // host|port: user thuộc node khác của cụm
+    public static final String ONLINE_LIST = "ONLINE_LIST"; // version|trang|số trang|user|status...
+    public static final String ONLINE_DELTA = "ONLINE_DELTA"; // fromVersion|toVersion|user|status...
     public static final String INVITATION = "INVITATION"; // Gửi lời mời thách đấu
     public static final String GAME_START = "GAME_START";
     public static final String NEW_ROUND = "NEW_ROUND"; // Gửi từ vựng mới
     public static final String HIDE_PHRASE = "HIDE_PHRASE"; // Yêu cầu ẩn từ
     public static final String UPDATE_SCORE = "UPDATE_SCORE";
     public static final String GAME_RESULT = "GAME_RESULT"; // WIN, LOSE, DRAW
+    public static final String MATCHMAKE_QUEUED = "MATCHMAKE_QUEUED"; // Kèm điểm xếp hạng hiện tại
+    public static final String MATCH_FOUND = "MATCH_FOUND"; // Đối thủ và điểm của đối thủ
+    public static final String ROOM_STATE = "ROOM_STATE"; // id|số người tối đa|chủ phòng|thành viên...
+    public static final String ROOM_CLOSED = "ROOM_CLOSED"; // id; phòng đã đóng hoặc không vào được
+    // Khán giả: tên người chơi theo ghế; sau đó là NEW_ROUND, HIDE_PHRASE, UPDATE_SCORE và
+    // GAME_RESULT|người thắng (hoặc DRAW, PRACTICE_COMPLETE), cuối cùng SPECTATE_END
+    public static final String SPECTATE_START = "SPECTATE_START";
+    public static final String SPECTATE_END = "SPECTATE_END"; // Trận kết thúc hoặc không tìm thấy trận
+    public static final String STATS_REPORT = "STATS_REPORT"; // Mỗi trường một dòng của Metrics.report()
+    // Sau RESUME: round|số round|pha|cụm từ (chỉ pha SHOW)|ms còn lại của pha|đã trả lời (0/1)|ghế|điểm theo ghế...
+    public static final String RESUME_STATE = "RESUME_STATE";
+
+    // Trạng thái trong ONLINE_LIST/ONLINE_DELTA
+    public static final String STATUS_IDLE = "IDLE";
+    public static final String STATUS_IN_GAME = "IN_GAME";
+    public static final String STATUS_OFFLINE = "OFFLINE";
 
     public static final String WIN = "WIN";
     public static final String LOSE = "LOSE";
     public static final String DRAW = "DRAW";
     public static final String WIN_FORFEIT = "WIN_FORFEIT";
 
+    // Pha của round trong RESUME_STATE: đang hiện cụm từ, đang chờ câu trả lời, đã chấm điểm
+    public static final String PHASE_SHOW = "SHOW";
+    public static final String PHASE_ANSWER = "ANSWER";
+    public static final String PHASE_RESULT = "RESULT";
+
+    // Trường tùy chọn thứ 3 của LOGIN để chọn giao thức nhị phân (xem BinaryProtocol)
+    public static final String PROTOCOL_TEXT = "TEXT";
+    public static final String PROTOCOL_BINARY = "BINARY";
+
     public static final String ACCEPT = "ACCEPT";
     public static final String REJECT = "REJECT";
+
+    /**
+     * Tin nhắn được phép bỏ khi client đọc không kịp: UPDATE_SCORE mang tổng điểm nên bản sau thay
+     * được bản trước, thiếu ONLINE_DELTA thì client tự xin lại snapshot.
+     */
+    public static boolean isDroppable(String command) {
+        return UPDATE_SCORE.equals(command) || ONLINE_DELTA.equals(command);
+    }
 }
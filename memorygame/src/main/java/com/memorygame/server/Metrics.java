@@ -0,0 +1,163 @@
+package com.memorygame.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Số đo vận hành: độ trễ xử lý theo từng lệnh (từ lúc đọc xong tin nhắn tới khi handler trả về),
+ * độ trễ các pha của round trên TimingWheel và độ sâu hàng đợi gửi của kết nối.
+ *
+ * Bật bằng -Dmemorygame.metrics=true. ENABLED là static final nên khi tắt, JIT loại bỏ hẳn các
+ * nhánh "if (Metrics.ENABLED)" ở nơi gọi; không cấp phát, không gọi System.nanoTime().
+ * Xem số liệu bằng lệnh STATS (chỉ user admin) hoặc cổng admin cục bộ (memorygame.adminPort).
+ */
+public final class Metrics {
+    public static final boolean ENABLED = Boolean.getBoolean("memorygame.metrics");
+
+    // Các pha của round, khóa của PHASE_LAG
+    public static final String PHASE_HIDE = "hide";
+    public static final String PHASE_TIMEOUT = "timeout";
+    public static final String PHASE_NEXT_ROUND = "nextRound";
+
+    private static final String UNKNOWN_COMMAND = "UNKNOWN";
+
+    // Tạo sẵn toàn bộ khi nạp lớp, sau đó chỉ đọc nên không cần map đồng thời
+    private static final Map<String, LatencyHistogram> COMMAND_LATENCY = new LinkedHashMap<>();
+    private static final Map<String, LatencyHistogram> PHASE_LAG = new LinkedHashMap<>();
+    // Số frame đang chờ gửi, ghi lại mỗi lần xếp hàng
+    private static final Histogram OUTBOUND_DEPTH = new Histogram();
+
+    static {
+        for (String command : new String[] {MessageProtocol.LOGIN, MessageProtocol.PRACTICE_REQUEST,
+                MessageProtocol.CHALLENGE_REQUEST, MessageProtocol.CHALLENGE_RESPONSE, MessageProtocol.SUBMIT_ANSWER,
+                MessageProtocol.MATCHMAKE, MessageProtocol.MATCHMAKE_CANCEL, MessageProtocol.STATS,
+                MessageProtocol.ONLINE_LIST_REQUEST, MessageProtocol.ROOM_CREATE, MessageProtocol.ROOM_JOIN,
+                MessageProtocol.ROOM_LEAVE, MessageProtocol.ROOM_START, MessageProtocol.SPECTATE,
+                MessageProtocol.SPECTATE_STOP, UNKNOWN_COMMAND}) {
+            COMMAND_LATENCY.put(command, new LatencyHistogram());
+        }
+        for (String phase : new String[] {PHASE_HIDE, PHASE_TIMEOUT, PHASE_NEXT_ROUND}) {
+            PHASE_LAG.put(phase, new LatencyHistogram());
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static void recordCommand(String command, long nanos) {
+        LatencyHistogram histogram = COMMAND_LATENCY.get(command);
+        (histogram != null ? histogram : COMMAND_LATENCY.get(UNKNOWN_COMMAND)).recordNanos(nanos);
+    }
+
+    public static void recordPhaseLag(String phase, long nanos) {
+        PHASE_LAG.get(phase).recordNanos(Math.max(0, nanos));
+    }
+
+    public static void recordOutboundDepth(int depth) {
+        OUTBOUND_DEPTH.record(depth);
+    }
+
+    public static LatencyHistogram getCommandLatency(String command) {
+        return COMMAND_LATENCY.get(command);
+    }
+
+    public static LatencyHistogram getPhaseLag(String phase) {
+        return PHASE_LAG.get(phase);
+    }
+
+    /**
+     * Báo cáo dạng "tên: giá trị", mỗi dòng một mục. Gauge và bộ đếm sẵn có luôn được báo cáo,
+     * histogram chỉ khi ENABLED.
+     */
+    public static List<String> report(Server server) {
+        List<String> lines = new ArrayList<>();
+        lines.add("metrics: " + (ENABLED ? "enabled" : "disabled"));
+        lines.add("online clients: " + server.getOnlineClientCount());
+        lines.add("players in game: " + server.getPlayersInGameCount());
+        lines.add("pending challenges: " + server.getPendingChallengeCount());
+        lines.add("open rooms: " + server.getOpenRoomCount());
+        lines.add("spectators: " + server.getSpectatorCount() + " skipped events=" + SpectatorFeed.getSkippedCount());
+        lines.add("matchmaking waiting: " + server.getMatchmaker().getWaitingCount()
+                + ", matched " + server.getMatchmaker().getMatchedCount()
+                + ", wait " + server.getMatchmaker().getWaitTime().summary()
+                + ", pools " + server.getMatchmaker().getPoolCount());
+
+        TimingWheel scheduler = server.getScheduler();
+        lines.add(String.format("timer: fired=%d avg lag=%.2fms max lag=%.2fms",
+                scheduler.getFiredCount(), scheduler.getAverageLagMillis(), scheduler.getMaxLagMillis()));
+
+        PresenceService presence = server.getPresence();
+        lines.add("presence: subscribers=" + presence.getSubscriberCount() + " version=" + presence.getVersion()
+                + " deltas=" + presence.getDeltaCount() + " snapshots=" + presence.getSnapshotCount()
+                + " resyncs=" + presence.getResyncCount());
+
+        SessionEngine engine = server.getSessionEngine();
+        lines.add("session shards: " + engine.getShardCount() + " queued=" + engine.getQueuedTasks()
+                + " executed=" + engine.getExecutedTasks());
+
+        ClusterService cluster = server.getCluster();
+        if (cluster != null) {
+            lines.add("cluster: node=" + cluster.getLocalNodeId() + " nodes=" + cluster.getNodeCount()
+                    + " sent=" + cluster.getSentCount() + " received=" + cluster.getReceivedCount()
+                    + " remote players=" + cluster.getRemotePlayerCount()
+                    + " remote games=" + cluster.getRemoteSessionCount());
+        }
+
+        OutboundLimiter outbound = server.getOutboundLimiter();
+        lines.add("outbound: limit=" + outbound.getLimit() + " overflow=" + outbound.getOverflow()
+                + " dropped=" + outbound.getDroppedCount() + " evicted=" + outbound.getEvictedCount()
+                + " high water=" + outbound.getHighWaterMark() + " now max=" + server.getMaxOutboundQueueDepth());
+
+        InboundLimiter inbound = server.getInboundLimiter();
+        lines.add("inbound: max bytes=" + inbound.getMaxMessageBytes()
+                + " rejected login=" + inbound.getRejectedCount(InboundLimiter.LOGIN)
+                + " answer=" + inbound.getRejectedCount(InboundLimiter.ANSWER)
+                + " lobby=" + inbound.getRejectedCount(InboundLimiter.LOBBY)
+                + " query=" + inbound.getRejectedCount(InboundLimiter.QUERY)
+                + " oversized=" + inbound.getOversizedCount() + " login timeouts=" + inbound.getLoginTimeoutCount()
+                + " idle timeouts=" + inbound.getIdleTimeoutCount());
+
+        lines.add("resume: grace=" + server.getResumeGraceMillis() + "ms suspended="
+                + GameSession.getSuspendedCount() + " resumed=" + GameSession.getResumedCount()
+                + " expired=" + GameSession.getExpiredCount());
+
+        lines.add("log: dropped=" + Log.getDroppedCount() + " backlog=" + Log.getBacklog());
+
+        SessionJournal journal = server.getJournal();
+        if (journal != null) {
+            lines.add("journal: written=" + journal.getWrittenCount() + " bytes=" + journal.getWrittenBytes()
+                    + " dropped=" + journal.getDroppedCount() + " failed=" + journal.getFailedCount()
+                    + " deleted segments=" + journal.getDeletedSegments() + " queue=" + journal.getQueueDepth());
+        }
+
+        MatchResultWriter writer = server.getMatchResultWriter();
+        if (writer != null) {
+            lines.add("match log: written=" + writer.getWrittenCount() + " dropped=" + writer.getDroppedCount()
+                    + " failed=" + writer.getFailedCount() + " queue=" + writer.getQueueDepth()
+                    + " high water=" + writer.getQueueHighWaterMark());
+        }
+        CredentialStore credentials = server.getCredentialStore();
+        if (credentials != null) {
+            lines.add("login: ok=" + credentials.getSuccessCount() + " failed=" + credentials.getFailureCount()
+                    + " throttled=" + credentials.getThrottledCount() + " cache hits=" + credentials.getCacheHitCount()
+                    + " rejected=" + credentials.getRejectedCount() + " hash queue=" + credentials.getHashQueueDepth()
+                    + " " + credentials.getLoginLatency().summary());
+        }
+
+        if (ENABLED) {
+            for (Map.Entry<String, LatencyHistogram> entry : COMMAND_LATENCY.entrySet()) {
+                if (entry.getValue().getCount() > 0) {
+                    lines.add("command " + entry.getKey() + ": " + entry.getValue().summary());
+                }
+            }
+            for (Map.Entry<String, LatencyHistogram> entry : PHASE_LAG.entrySet()) {
+                lines.add("round phase lag " + entry.getKey() + ": " + entry.getValue().summary());
+            }
+            lines.add("outbound queue depth (frames): " + OUTBOUND_DEPTH.summary());
+        }
+        return Collections.unmodifiableList(lines);
+    }
+}
@@ -0,0 +1,306 @@
+package com.memorygame.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transport không blocking: một luồng accept và một số cố định event loop (Selector),
+ * thay cho mô hình mỗi kết nối một thread. Mỗi event loop đọc vào một ByteBuffer dùng lại,
+ * tách dòng/frame rồi gọi vào ClientHandler như chế độ blocking.
+ */
+public class NioTransport {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_GATHER = 64;
+
+    private final Server server;
+    private final int port;
+    private final int backlog;
+    private final EventLoop[] loops;
+
+    public NioTransport(Server server, int port, int backlog, int eventLoops) {
+        this.server = server;
+        this.port = port;
+        this.backlog = backlog;
+        this.loops = new EventLoop[eventLoops];
+    }
+
+    public void start() throws IOException {
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop();
+            Thread thread = new Thread(loops[i], "nio-loop-" + i);
+            thread.setDaemon(true);
+            loops[i].thread = thread;
+            thread.start();
+        }
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port), backlog);
+            Log.info("Server (NIO, {} event loops) is listening on port {}", loops.length, port);
+            int next = 0;
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                Log.debug("New client connected: {}", String.valueOf(channel.getRemoteAddress()));
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            }
+        }
+    }
+
+    private class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<NioConnection> pendingRegistrations = new ConcurrentLinkedQueue<>();
+        private final Queue<NioConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+        // Dùng chung cho mọi kết nối của loop này vì việc đọc diễn ra tuần tự
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+        private Thread thread;
+
+        EventLoop() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        void register(SocketChannel channel) {
+            NioConnection connection = new NioConnection(channel, this, server.getOutboundLimiter());
+            connection.handler = new ClientHandler(connection, server);
+            connection.decoder = new InboundDecoder(connection.handler, server.getInboundLimiter());
+            pendingRegistrations.add(connection);
+            selector.wakeup();
+        }
+
+        void requestWrite(NioConnection connection) {
+            pendingWrites.add(connection);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select();
+                    processRegistrations();
+                    processPendingWrites();
+
+                    // Phản hồi sinh ra khi xử lý các lần đọc trong vòng này được ghi gộp ở cuối vòng
+                    WriteBatch.begin();
+                    try {
+                        processSelectedKeys();
+                    } finally {
+                        WriteBatch.end();
+                    }
+                } catch (IOException e) {
+                    Log.error("Event loop exception: {}", e.getMessage(), e);
+                }
+            }
+        }
+
+        private void processSelectedKeys() {
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                NioConnection connection = (NioConnection) key.attachment();
+                if (!key.isValid()) {
+                    connection.close();
+                    continue;
+                }
+                if (key.isReadable()) {
+                    try {
+                        read(connection);
+                    } catch (RuntimeException e) {
+                        // Lỗi khi xử lý tin nhắn của một kết nối không được làm chết cả event loop
+                        Log.error("Error handling message from {}", connection.handler.getUsername(), e);
+                        connection.close();
+                        continue;
+                    }
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.flushNow();
+                }
+            }
+        }
+
+        private void processRegistrations() {
+            NioConnection connection;
+            while ((connection = pendingRegistrations.poll()) != null) {
+                try {
+                    connection.key = connection.channel.register(selector, SelectionKey.OP_READ, connection);
+                    // Tin nhắn có thể đã được xếp hàng trước khi đăng ký xong
+                    connection.flushNow();
+                } catch (ClosedChannelException e) {
+                    connection.close();
+                }
+            }
+        }
+
+        private void processPendingWrites() {
+            NioConnection connection;
+            while ((connection = pendingWrites.poll()) != null) {
+                connection.writeScheduled.set(false);
+                if (connection.closeRequested) {
+                    connection.close();
+                } else {
+                    connection.flushNow();
+                }
+            }
+        }
+
+        private void read(NioConnection connection) {
+            readBuffer.clear();
+            int n;
+            try {
+                n = connection.channel.read(readBuffer);
+            } catch (IOException e) {
+                n = -1;
+            }
+            if (n < 0) {
+                Log.debug("Client {} disconnected.", connection.handler.getUsername());
+                connection.close();
+                return;
+            }
+            readBuffer.flip();
+            if (!connection.decoder.feed(readBuffer)) {
+                Log.warn("Client {} violated the protocol. Closing connection.", connection.handler.getUsername());
+                connection.close();
+            }
+        }
+    }
+
+    private static class NioConnection implements Connection {
+        private final SocketChannel channel;
+        private final EventLoop loop;
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean writeScheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean evicted = new AtomicBoolean();
+        // close() gọi từ thread khác được chuyển về event loop
+        private volatile boolean closeRequested;
+        private final OutboundLimiter limiter;
+        private final AtomicInteger queued = new AtomicInteger();
+        private SelectionKey key;
+        private ClientHandler handler;
+
+        private InboundDecoder decoder;
+
+        NioConnection(SocketChannel channel, EventLoop loop, OutboundLimiter limiter) {
+            this.channel = channel;
+            this.loop = loop;
+            this.limiter = limiter;
+        }
+
+        @Override
+        public void write(ByteBuffer data, boolean droppable) {
+            if (closed.get() || evicted.get()) return;
+            switch (limiter.admit(queued.get(), droppable)) {
+                case OutboundLimiter.DROP:
+                    return;
+                case OutboundLimiter.EVICT:
+                    if (evicted.compareAndSet(false, true)) {
+                        limiter.evict(this);
+                    }
+                    return;
+                default:
+                    break;
+            }
+            outbound.add(data);
+            int depth = queued.incrementAndGet();
+            if (Metrics.ENABLED) {
+                Metrics.recordOutboundDepth(depth);
+            }
+            if (!WriteBatch.defer(this)) {
+                flush();
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (Thread.currentThread() == loop.thread) {
+                flushNow();
+            } else if (writeScheduled.compareAndSet(false, true)) {
+                loop.requestWrite(this);
+            }
+        }
+
+        // Chỉ được gọi từ event loop: gom tối đa MAX_GATHER frame vào một lần ghi
+        void flushNow() {
+            if (closed.get() || key == null) return;
+            ByteBuffer[] gather = loop.gather;
+            try {
+                while (true) {
+                    // Chỉ event loop lấy phần tử ra nên có thể duyệt trước rồi mới poll()
+                    int count = 0;
+                    for (ByteBuffer buffer : outbound) {
+                        gather[count++] = buffer;
+                        if (count == MAX_GATHER) break;
+                    }
+                    if (count == 0) {
+                        key.interestOps(SelectionKey.OP_READ);
+                        return;
+                    }
+                    channel.write(gather, 0, count);
+                    for (int i = 0; i < count; i++) {
+                        if (gather[i].hasRemaining()) {
+                            // Socket đầy, chờ OP_WRITE
+                            Arrays.fill(gather, 0, count, null);
+                            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                            return;
+                        }
+                        outbound.poll();
+                        queued.decrementAndGet();
+                    }
+                    Arrays.fill(gather, 0, count, null);
+                }
+            } catch (IOException e) {
+                Arrays.fill(gather, null);
+                close();
+            }
+        }
+
+        @Override
+        public int getQueuedFrames() {
+            return queued.get();
+        }
+
+        @Override
+        public void close() {
+            if (Thread.currentThread() != loop.thread) {
+                // SelectionKey chỉ được hủy trên event loop, đang dùng key ở đó sẽ bị CancelledKeyException
+                closeRequested = true;
+                loop.requestWrite(this);
+                return;
+            }
+            if (!closed.compareAndSet(false, true)) return;
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Log.warn("Could not close channel: {}", e.getMessage());
+            }
+            handler.onDisconnect();
+        }
+
+        @Override
+        public String getRemoteAddress() {
+            try {
+                return String.valueOf(channel.getRemoteAddress());
+            } catch (IOException e) {
+                return "unknown";
+            }
+        }
+    }
+}
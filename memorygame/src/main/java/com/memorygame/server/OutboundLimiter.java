@@ -0,0 +1,88 @@
+package com.memorygame.server;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Giới hạn hàng đợi gửi của mọi kết nối. Hàng đợi đầy nghĩa là client đọc không kịp; khi đó frame
+ * mới không được xếp thêm:
+ *
+ *   DROP        tin nhắn bỏ được (Message.isDroppable) bị bỏ, tin nhắn khác thì ngắt client
+ *   DISCONNECT  ngắt client ngay
+ *
+ * Việc đóng kết nối chạy trên executor: write() có thể được gọi khi đang duyệt danh sách người nhận
+ * (phòng chờ, presence), đóng tại chỗ sẽ gọi ngược onDisconnect() vào chính danh sách đó.
+ */
+public final class OutboundLimiter {
+    // Kết quả của admit()
+    static final int ACCEPT = 0;
+    static final int DROP = 1;
+    static final int EVICT = 2;
+
+    // Lần ngắt client chậm có thể đến hàng loạt khi mạng nghẽn
+    private static final Log.Sampler SLOW_CLIENT = new Log.Sampler("slow client eviction", 20);
+
+    private final int limit;
+    private final ServerConfig.Overflow overflow;
+    private final Executor closer;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicInteger highWater = new AtomicInteger();
+
+    public OutboundLimiter(int limit, ServerConfig.Overflow overflow, Executor closer) {
+        this.limit = Math.max(1, limit);
+        this.overflow = overflow;
+        this.closer = closer;
+    }
+
+    // depth: số frame đang chờ trước frame này
+    int admit(int depth, boolean droppable) {
+        if (depth < limit) {
+            if (depth >= highWater.get()) {
+                highWater.accumulateAndGet(depth + 1, Math::max);
+            }
+            return ACCEPT;
+        }
+        if (droppable && overflow == ServerConfig.Overflow.DROP) {
+            dropped.incrementAndGet();
+            return DROP;
+        }
+        return EVICT;
+    }
+
+    // Kết nối tự bảo đảm chỉ gọi một lần
+    void evict(Connection connection) {
+        evicted.incrementAndGet();
+        if (SLOW_CLIENT.allow()) {
+            Log.warn("Evicting slow client {}: {} frames queued", connection.getRemoteAddress(), limit);
+        }
+        try {
+            closer.execute(connection::close);
+        } catch (RejectedExecutionException e) {
+            connection.close();
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public ServerConfig.Overflow getOverflow() {
+        return overflow;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+
+    // Độ sâu lớn nhất từng có của một hàng đợi gửi
+    public int getHighWaterMark() {
+        return highWater.get();
+    }
+}
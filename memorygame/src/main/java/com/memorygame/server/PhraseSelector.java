@@ -0,0 +1,33 @@
+package com.memorygame.server;
+
+/**
+ * Các cụm từ một GameSession đã dùng, để không lặp lại trong cùng một trận. Lưu giá trị băm
+ * thay vì chỉ số nên vẫn đúng khi kho cụm từ được nạp lại giữa trận.
+ */
+public final class PhraseSelector {
+    // Số round do client gửi lên nên chỉ cấp phát trước tối đa INITIAL_CAPACITY, phần còn lại tăng dần
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] usedHashes;
+    private int usedCount;
+
+    public PhraseSelector(int expectedRounds) {
+        this.usedHashes = new int[Math.max(1, Math.min(expectedRounds, INITIAL_CAPACITY))];
+    }
+
+    boolean isUsed(int hash) {
+        for (int i = 0; i < usedCount; i++) {
+            if (usedHashes[i] == hash) return true;
+        }
+        return false;
+    }
+
+    void markUsed(int hash) {
+        if (usedCount == usedHashes.length) {
+            int[] grown = new int[usedHashes.length * 2];
+            System.arraycopy(usedHashes, 0, grown, 0, usedCount);
+            usedHashes = grown;
+        }
+        usedHashes[usedCount++] = hash;
+    }
+}
@@ -0,0 +1,229 @@
+package com.memorygame.server;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Kho cụm từ đọc từ file đã biên dịch sẵn và ánh xạ vào bộ nhớ (memory-mapped), nên khởi động
+ * chỉ cần đọc header và bảng offset chứ không giải mã cụm từ nào, và các cụm từ không nằm trên heap.
+ *
+ * Định dạng file (big-endian):
+ *   int MAGIC, int VERSION, int số bucket
+ *   mỗi bucket: int độ dài tối thiểu, int độ dài tối đa, int số cụm từ, int chỉ số đầu tiên
+ *   int tổng số cụm từ N, (N + 1) int offset trong vùng dữ liệu
+ *   vùng dữ liệu: các cụm từ UTF-8 nối liền, xếp theo bucket
+ *
+ * Bucket chia theo số ký tự (độ khó). Lấy ngẫu nhiên trong một bucket là O(1).
+ * Tạo file bằng: java com.memorygame.server.PhraseStore phrases.txt phrases.bin
+ * File được ghi ra file tạm rồi đổi tên, nên có thể biên dịch đè lên file đang được server map
+ * và server nạp lại mà không ảnh hưởng các GameSession đang chạy.
+ */
+public final class PhraseStore {
+    private static final int MAGIC = 0x4D475053; // "MGPS"
+    private static final int VERSION = 1;
+    // Giới hạn trên số ký tự của từng bucket, bucket cuối nhận phần còn lại
+    private static final int[] BUCKET_MAX_LENGTHS = {4, 8, 12, 20, Integer.MAX_VALUE};
+
+    private final MappedByteBuffer buffer;
+    private final int[] bucketFirst;
+    private final int[] bucketCount;
+    private final int offsetsStart;
+    private final int dataStart;
+    private final int totalCount;
+
+    // Kiểm tra header và bảng offset với kích thước file ngay khi mở, để file hỏng bị từ chối lúc
+    // nạp thay vì ném IndexOutOfBoundsException giữa trận
+    private PhraseStore(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        int limit = buffer.limit();
+        if (limit < 12 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a phrase store file");
+        }
+        int buckets = buffer.getInt(8);
+        if (buckets < 0 || 12L + buckets * 16L + 4 > limit) {
+            throw new IOException("Phrase store header is truncated (" + buckets + " buckets, " + limit + " bytes)");
+        }
+        bucketFirst = new int[buckets];
+        bucketCount = new int[buckets];
+        int pos = 12;
+        for (int i = 0; i < buckets; i++) {
+            bucketCount[i] = buffer.getInt(pos + 8);
+            bucketFirst[i] = buffer.getInt(pos + 12);
+            pos += 16;
+        }
+        totalCount = buffer.getInt(pos);
+        offsetsStart = pos + 4;
+        if (totalCount < 0 || offsetsStart + (totalCount + 1L) * 4 > limit) {
+            throw new IOException("Phrase store offset table is truncated (" + totalCount + " phrases, " + limit + " bytes)");
+        }
+        dataStart = offsetsStart + (totalCount + 1) * 4;
+        for (int i = 0; i < buckets; i++) {
+            if (bucketCount[i] < 0 || bucketFirst[i] < 0 || (long) bucketFirst[i] + bucketCount[i] > totalCount) {
+                throw new IOException("Phrase store bucket " + i + " is out of range: first " + bucketFirst[i]
+                        + ", count " + bucketCount[i] + ", total " + totalCount);
+            }
+        }
+        // Offset phải tăng dần và phrase cuối cùng nằm trong file
+        int previous = 0;
+        for (int i = 0; i <= totalCount; i++) {
+            int offset = buffer.getInt(offsetsStart + i * 4);
+            if (offset < previous || (i == 0 && offset != 0) || (long) dataStart + offset > limit) {
+                throw new IOException("Phrase store offset " + i + " is out of range: " + offset);
+            }
+            previous = offset;
+        }
+    }
+
+    public static PhraseStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Vùng map vẫn còn hiệu lực sau khi đóng channel
+            return new PhraseStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int size() {
+        return totalCount;
+    }
+
+    public int getBucketCount() {
+        return bucketCount.length;
+    }
+
+    /**
+     * Lấy ngẫu nhiên một cụm từ trong bucket (hoặc bucket gần nhất còn cụm từ) mà session chưa dùng.
+     * Trả về null nếu kho rỗng.
+     */
+    public String sample(int bucket, PhraseSelector used) {
+        bucket = nearestNonEmptyBucket(bucket);
+        if (bucket < 0) return null;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = -1;
+        // Thử vài lần để tránh lặp lại trong cùng trận; bucket quá nhỏ thì chấp nhận lặp
+        for (int attempt = 0; attempt < 8; attempt++) {
+            index = bucketFirst[bucket] + random.nextInt(bucketCount[bucket]);
+            if (!used.isUsed(hashAt(index))) {
+                break;
+            }
+        }
+        used.markUsed(hashAt(index));
+        return phraseAt(index);
+    }
+
+    private int nearestNonEmptyBucket(int bucket) {
+        bucket = Math.max(0, Math.min(bucket, bucketCount.length - 1));
+        for (int distance = 0; distance < bucketCount.length; distance++) {
+            if (bucket - distance >= 0 && bucketCount[bucket - distance] > 0) return bucket - distance;
+            if (bucket + distance < bucketCount.length && bucketCount[bucket + distance] > 0) return bucket + distance;
+        }
+        return -1;
+    }
+
+    private int start(int index) {
+        return dataStart + buffer.getInt(offsetsStart + index * 4);
+    }
+
+    private int end(int index) {
+        return dataStart + buffer.getInt(offsetsStart + (index + 1) * 4);
+    }
+
+    // Băm trực tiếp trên byte đã map, không cần giải mã chuỗi; ổn định giữa các lần reload
+    int hashAt(int index) {
+        int hash = 1;
+        for (int i = start(index), end = end(index); i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        return hash;
+    }
+
+    String phraseAt(int index) {
+        int start = start(index);
+        byte[] bytes = new byte[end(index) - start];
+        // get tuyệt đối không đổi position nên an toàn khi nhiều thread cùng đọc
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Biên dịch file văn bản (mỗi dòng một cụm từ) sang định dạng của PhraseStore.
+     */
+    public static void compile(Path textFile, Path storeFile) throws IOException {
+        List<List<byte[]>> buckets = new ArrayList<>();
+        for (int i = 0; i < BUCKET_MAX_LENGTHS.length; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        try (BufferedReader reader = Files.newBufferedReader(textFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String phrase = line.trim();
+                // SEPARATOR nằm trong cụm từ sẽ làm hỏng giao thức văn bản
+                if (phrase.isEmpty() || phrase.contains(MessageProtocol.SEPARATOR)) continue;
+                int length = phrase.codePointCount(0, phrase.length());
+                int bucket = 0;
+                while (length > BUCKET_MAX_LENGTHS[bucket]) bucket++;
+                buckets.get(bucket).add(phrase.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        int total = 0;
+        for (List<byte[]> bucket : buckets) total += bucket.size();
+
+        Path tempFile = storeFile.resolveSibling(storeFile.getFileName() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(tempFile);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(buckets.size());
+            int first = 0;
+            for (int i = 0; i < buckets.size(); i++) {
+                out.writeInt(i == 0 ? 1 : BUCKET_MAX_LENGTHS[i - 1] + 1);
+                out.writeInt(BUCKET_MAX_LENGTHS[i]);
+                out.writeInt(buckets.get(i).size());
+                out.writeInt(first);
+                first += buckets.get(i).size();
+            }
+            out.writeInt(total);
+            long offset = 0;
+            out.writeInt(0);
+            for (List<byte[]> bucket : buckets) {
+                for (byte[] phrase : bucket) {
+                    offset += phrase.length;
+                    if (offset > Integer.MAX_VALUE) {
+                        throw new IOException("Phrase data exceeds 2 GB");
+                    }
+                    out.writeInt((int) offset);
+                }
+            }
+            for (List<byte[]> bucket : buckets) {
+                for (byte[] phrase : bucket) {
+                    out.write(phrase);
+                }
+            }
+        }
+        Files.move(tempFile, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: PhraseStore <phrases.txt> <phrases.bin>");
+            return;
+        }
+        compile(Paths.get(args[0]), Paths.get(args[1]));
+        PhraseStore store = open(Paths.get(args[1]));
+        System.out.println("Compiled " + store.size() + " phrases into " + args[1]);
+    }
+}
@@ -0,0 +1,21 @@
+package com.memorygame.server;
+
+/**
+ * Người ngồi một ghế trong GameSession: client kết nối ở node này (ClientHandler) hoặc người chơi
+ * đăng nhập ở node khác của cụm (RemotePlayer). Session chỉ gửi tin nhắn, giữ số ghế và đóng kết
+ * nối cũ khi RESUME thay handler, không cần biết người chơi ở đâu.
+ */
+public interface Player {
+    String getUsername();
+
+    // Không chặn; với người chơi ở xa tin nhắn được chuyển tới node của họ
+    void sendMessage(Message message);
+
+    // Ghế trong GameSession hiện tại, do session gán lúc tạo hoặc lúc RESUME
+    int getSeat();
+
+    void setSeat(int seat);
+
+    // Kết nối cũ bị một kết nối RESUME thay thế; không có kết nối ở node này thì không làm gì
+    void closeConnection();
+}
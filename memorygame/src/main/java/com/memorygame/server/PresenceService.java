@@ -0,0 +1,277 @@
+package com.memorygame.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Danh sách người chơi online cho client. Thay vì gửi cả danh sách cho mọi người mỗi lần có người
+ * vào/ra (O(N²) lưu lượng), mỗi client nhận một snapshot lúc đăng nhập rồi chỉ nhận các thay đổi:
+ *
+ *   ONLINE_LIST|version|page|pageCount|user|status|user|status...   (snapshot, chia trang)
+ *   ONLINE_DELTA|fromVersion|toVersion|user|status|...              (status OFFLINE = đã rời)
+ *
+ * Thay đổi (vào, ra, vào/ra trận) chỉ được xếp hàng; mỗi cửa sổ windowMillis một lượt flush gộp
+ * chúng lại, bỏ những thay đổi tự triệt tiêu trong cửa sổ, tăng version rồi gửi cùng một Message
+ * cho mọi subscriber. Client thấy fromVersion khác version của mình thì gửi ONLINE_LIST_REQUEST
+ * để nhận lại snapshot.
+ *
+ * Lượt flush chạy trên executor (TimingWheel chỉ đặt lịch) và lượt kế tiếp chỉ được đặt sau khi
+ * lượt trước xong, nên các trường bên dưới hàng đợi changes chỉ do một lượt flush đọc/ghi.
+ */
+public class PresenceService {
+    // Giữ mỗi frame dưới BinaryProtocol.MAX_FRAME_LENGTH dù tên người chơi dài
+    private static final int MAX_PAGE_BYTES = 32 * 1024;
+
+    private enum ChangeType { JOIN, LEAVE, STATUS, SNAPSHOT }
+
+    private static final class Change {
+        final ChangeType type;
+        final String username;
+        final ClientHandler client;
+        final String status;
+
+        Change(ChangeType type, String username, ClientHandler client, String status) {
+            this.type = type;
+            this.username = username;
+            this.client = client;
+            this.status = status;
+        }
+    }
+
+    private final TimingWheel scheduler;
+    private final Executor executor;
+    private final long windowMillis;
+    private final int pageSize;
+    private final Queue<Change> changes = new ConcurrentLinkedQueue<>();
+
+    // Chỉ dùng trong flush()
+    private final Map<String, String> statuses = new HashMap<>();
+    private final Map<String, ClientHandler> subscribers = new HashMap<>();
+    private int version;
+    private List<Message> snapshotPages;
+    private int snapshotVersion = -1;
+
+    private volatile int subscriberCount;
+    private volatile int currentVersion;
+    private final AtomicLong deltaCount = new AtomicLong();
+    private final AtomicLong snapshotCount = new AtomicLong();
+    private final AtomicLong resyncCount = new AtomicLong();
+
+    public PresenceService(TimingWheel scheduler, Executor executor, long windowMillis, int pageSize) {
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.windowMillis = windowMillis;
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    public void start() {
+        scheduleFlush();
+    }
+
+    // Client vừa đăng nhập: được đánh dấu rảnh và nhận snapshot ở lượt flush tới
+    public void join(ClientHandler client) {
+        changes.add(new Change(ChangeType.JOIN, client.getUsername(), client, MessageProtocol.STATUS_IDLE));
+    }
+
+    public void leave(ClientHandler client) {
+        changes.add(new Change(ChangeType.LEAVE, client.getUsername(), client, MessageProtocol.STATUS_OFFLINE));
+    }
+
+    public void setInGame(String username, boolean inGame) {
+        changes.add(new Change(ChangeType.STATUS, username, null,
+                inGame ? MessageProtocol.STATUS_IN_GAME : MessageProtocol.STATUS_IDLE));
+    }
+
+    // ONLINE_LIST_REQUEST: client phát hiện thiếu delta
+    public void requestSnapshot(ClientHandler client) {
+        resyncCount.incrementAndGet();
+        changes.add(new Change(ChangeType.SNAPSHOT, client.getUsername(), client, null));
+    }
+
+    private void scheduleFlush() {
+        scheduler.schedule(() -> executor.execute(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                Log.error("Presence flush failed: {}", e.getMessage(), e);
+            }
+            scheduleFlush();
+        }), windowMillis);
+    }
+
+    void flush() {
+        if (changes.isEmpty()) return;
+
+        // Trạng thái đầu cửa sổ của từng user có thay đổi, giữ thứ tự thay đổi đầu tiên
+        Map<String, String> before = new LinkedHashMap<>();
+        Set<ClientHandler> needSnapshot = Collections.newSetFromMap(new IdentityHashMap<>());
+        Change change;
+        while ((change = changes.poll()) != null) {
+            String name = change.username;
+            switch (change.type) {
+                case JOIN:
+                    subscribers.put(name, change.client);
+                    needSnapshot.add(change.client);
+                    applyStatus(before, name, change.status);
+                    break;
+                case LEAVE:
+                    needSnapshot.remove(change.client);
+                    // Client đăng nhập lại đã thay handler cũ thì bỏ qua lần rời của handler cũ
+                    if (subscribers.get(name) == change.client) {
+                        subscribers.remove(name);
+                        applyStatus(before, name, change.status);
+                    }
+                    break;
+                case STATUS:
+                    if (statuses.containsKey(name)) {
+                        applyStatus(before, name, change.status);
+                    }
+                    break;
+                case SNAPSHOT:
+                    if (subscribers.get(name) == change.client) {
+                        needSnapshot.add(change.client);
+                    }
+                    break;
+            }
+        }
+
+        List<Object> delta = new ArrayList<>();
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            String now = statuses.getOrDefault(entry.getKey(), MessageProtocol.STATUS_OFFLINE);
+            if (!now.equals(entry.getValue())) {
+                delta.add(entry.getKey());
+                delta.add(now);
+            }
+        }
+
+        WriteBatch.begin();
+        try {
+            if (!delta.isEmpty()) {
+                for (Message message : buildDeltas(delta)) {
+                    for (ClientHandler subscriber : subscribers.values()) {
+                        // Người sắp nhận snapshot đã có sẵn các thay đổi này
+                        if (!needSnapshot.contains(subscriber)) {
+                            subscriber.sendMessage(message);
+                        }
+                    }
+                    deltaCount.incrementAndGet();
+                }
+            }
+            if (!needSnapshot.isEmpty()) {
+                List<Message> pages = snapshotPages();
+                for (ClientHandler client : needSnapshot) {
+                    for (Message page : pages) {
+                        client.sendMessage(page);
+                    }
+                    snapshotCount.incrementAndGet();
+                }
+            }
+        } finally {
+            WriteBatch.end();
+        }
+        subscriberCount = subscribers.size();
+        currentVersion = version;
+    }
+
+    private void applyStatus(Map<String, String> before, String name, String status) {
+        before.putIfAbsent(name, statuses.getOrDefault(name, MessageProtocol.STATUS_OFFLINE));
+        if (MessageProtocol.STATUS_OFFLINE.equals(status)) {
+            statuses.remove(name);
+        } else {
+            statuses.put(name, status);
+        }
+    }
+
+    // Quá nhiều thay đổi cho một frame thì chia thành nhiều delta nối tiếp version
+    private List<Message> buildDeltas(List<Object> entries) {
+        List<Message> messages = new ArrayList<>();
+        int start = 0;
+        while (start < entries.size()) {
+            int end = pageEnd(entries, start);
+            List<Object> fields = new ArrayList<>(end - start + 2);
+            fields.add(version);
+            fields.add(++version);
+            fields.addAll(entries.subList(start, end));
+            messages.add(Message.of(MessageProtocol.ONLINE_DELTA, fields.toArray()));
+            start = end;
+        }
+        return messages;
+    }
+
+    // Snapshot chỉ dựng lại khi version đổi; nhiều client đăng nhập cùng cửa sổ dùng chung các trang
+    private List<Message> snapshotPages() {
+        if (snapshotPages != null && snapshotVersion == version) {
+            return snapshotPages;
+        }
+        List<Object> entries = new ArrayList<>(statuses.size() * 2);
+        for (Map.Entry<String, String> entry : statuses.entrySet()) {
+            entries.add(entry.getKey());
+            entries.add(entry.getValue());
+        }
+        List<int[]> ranges = new ArrayList<>();
+        int start = 0;
+        do {
+            int end = pageEnd(entries, start);
+            ranges.add(new int[] {start, end});
+            start = end;
+        } while (start < entries.size());
+
+        List<Message> pages = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            int[] range = ranges.get(i);
+            List<Object> fields = new ArrayList<>(range[1] - range[0] + 3);
+            fields.add(version);
+            fields.add(i);
+            fields.add(ranges.size());
+            fields.addAll(entries.subList(range[0], range[1]));
+            pages.add(Message.of(MessageProtocol.ONLINE_LIST, fields.toArray()));
+        }
+        snapshotPages = pages;
+        snapshotVersion = version;
+        return pages;
+    }
+
+    // Cặp (user, status) cuối cùng vừa một trang: tối đa pageSize cặp và MAX_PAGE_BYTES byte
+    private int pageEnd(List<Object> entries, int start) {
+        int end = start;
+        int bytes = 0;
+        while (end < entries.size() && (end - start) / 2 < pageSize) {
+            // Ước lượng theo UTF-8 tệ nhất: 3 byte mỗi ký tự cùng tiền tố độ dài
+            int pairBytes = 3 * (((String) entries.get(end)).length() + ((String) entries.get(end + 1)).length()) + 4;
+            if (end > start && bytes + pairBytes > MAX_PAGE_BYTES) break;
+            bytes += pairBytes;
+            end += 2;
+        }
+        return end;
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount;
+    }
+
+    public int getVersion() {
+        return currentVersion;
+    }
+
+    public long getDeltaCount() {
+        return deltaCount.get();
+    }
+
+    public long getSnapshotCount() {
+        return snapshotCount.get();
+    }
+
+    public long getResyncCount() {
+        return resyncCount.get();
+    }
+}
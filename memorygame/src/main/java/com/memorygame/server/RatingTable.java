@@ -0,0 +1,40 @@
+package com.memorygame.server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Điểm xếp hạng Elo của người chơi, chỉ giữ trong bộ nhớ. Khi khởi động được dựng lại bằng cách
+ * áp dụng lần lượt các kết quả trong match log, sau đó cập nhật sau mỗi trận thách đấu.
+ */
+public class RatingTable {
+    public static final int INITIAL_RATING = 1200;
+    private static final double K_FACTOR = 32;
+
+    private final Map<String, Integer> ratings = new ConcurrentHashMap<>();
+
+    public int getRating(String username) {
+        return ratings.getOrDefault(username, INITIAL_RATING);
+    }
+
+    public int size() {
+        return ratings.size();
+    }
+
+    // Mỗi cặp người chơi chỉ thuộc một trận tại một thời điểm nên cập nhật hai giá trị riêng lẻ là đủ
+    public void apply(MatchResult result) {
+        String player1 = result.getPlayer1();
+        String player2 = result.getPlayer2();
+        int rating1 = getRating(player1);
+        int rating2 = getRating(player2);
+        double score1 = result.getWinner() == null ? 0.5 : result.getWinner().equals(player1) ? 1 : 0;
+        double expected1 = expectedScore(rating1, rating2);
+        int delta = (int) Math.round(K_FACTOR * (score1 - expected1));
+        ratings.put(player1, rating1 + delta);
+        ratings.put(player2, rating2 - delta);
+    }
+
+    static double expectedScore(int rating, int opponentRating) {
+        return 1.0 / (1.0 + Math.pow(10, (opponentRating - rating) / 400.0));
+    }
+}
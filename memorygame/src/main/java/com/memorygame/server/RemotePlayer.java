@@ -0,0 +1,47 @@
+package com.memorygame.server;
+
+/**
+ * Người chơi đăng nhập ở node khác trong một GameSession chạy ở node này. Tin nhắn gửi cho người
+ * chơi được ClusterService chuyển tới node của họ; kết nối thật do node đó giữ.
+ */
+final class RemotePlayer implements Player {
+    private final String username;
+    private final String nodeId;
+    private final ClusterService cluster;
+    private volatile int seat = -1;
+
+    RemotePlayer(String username, String nodeId, ClusterService cluster) {
+        this.username = username;
+        this.nodeId = nodeId;
+        this.cluster = cluster;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public void sendMessage(Message message) {
+        cluster.deliver(nodeId, username, message);
+    }
+
+    @Override
+    public int getSeat() {
+        return seat;
+    }
+
+    @Override
+    public void setSeat(int seat) {
+        this.seat = seat;
+    }
+
+    // RESUME của người chơi ở xa đi qua node của họ, ở đây không có kết nối để đóng
+    @Override
+    public void closeConnection() {
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,88 @@
+package com.memorygame.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Phòng chờ của trận nhiều người. Chủ phòng tạo phòng với thiết lập trận, người khác vào bằng id,
+ * chủ phòng bắt đầu khi đủ ít nhất 2 người; thứ tự vào phòng là thứ tự ghế trong GameSession.
+ * Vào/ra/bắt đầu hiếm và ngắn nên các phương thức chỉ đồng bộ trên chính phòng.
+ */
+final class Room {
+    private final int id;
+    private final ClientHandler host;
+    private final int rounds;
+    private final int displayTime;
+    private final int waitTime;
+    private final int maxPlayers;
+    private final List<ClientHandler> members = new ArrayList<>();
+    private boolean closed;
+
+    Room(int id, ClientHandler host, int rounds, int displayTime, int waitTime, int maxPlayers) {
+        this.id = id;
+        this.host = host;
+        this.rounds = rounds;
+        this.displayTime = displayTime;
+        this.waitTime = waitTime;
+        this.maxPlayers = maxPlayers;
+        members.add(host);
+    }
+
+    // false khi phòng đã đầy hoặc đã đóng
+    synchronized boolean join(ClientHandler player) {
+        if (closed || members.size() >= maxPlayers) return false;
+        members.add(player);
+        return true;
+    }
+
+    synchronized void leave(ClientHandler player) {
+        members.remove(player);
+    }
+
+    /**
+     * Đóng phòng và trả về các thành viên theo thứ tự vào; null nếu phòng đã đóng hoặc chưa đủ
+     * minPlayers người (khi đó phòng vẫn mở).
+     */
+    synchronized ClientHandler[] close(int minPlayers) {
+        if (closed || members.size() < minPlayers) return null;
+        closed = true;
+        return members.toArray(new ClientHandler[0]);
+    }
+
+    // ROOM_STATE|id|maxPlayers|chủ phòng|thành viên...
+    synchronized Message stateMessage() {
+        Object[] fields = new Object[members.size() + 2];
+        fields[0] = id;
+        fields[1] = maxPlayers;
+        for (int i = 0; i < members.size(); i++) {
+            fields[i + 2] = members.get(i).getUsername();
+        }
+        return Message.of(MessageProtocol.ROOM_STATE, fields);
+    }
+
+    synchronized void broadcast(Message message) {
+        for (ClientHandler member : members) {
+            member.sendMessage(message);
+        }
+    }
+
+    int getId() {
+        return id;
+    }
+
+    ClientHandler getHost() {
+        return host;
+    }
+
+    int getRounds() {
+        return rounds;
+    }
+
+    int getDisplayTime() {
+        return displayTime;
+    }
+
+    int getWaitTime() {
+        return waitTime;
+    }
+}
@@ -1,16 +1,72 @@
 package com.memorygame.server;
 
 import java.io.IOException;
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.Map;
 
 public class Server {
-    private static final int PORT = 12345;
+    // Giới hạn thiết lập trận ghép tự động và phòng; mỗi thiết lập khác nhau là một hàng đợi riêng
+    private static final int MAX_ROUNDS = 50;
+    private static final int MAX_PHASE_MILLIS = 60_000;
+
+    private final ServerConfig config;
+    // Chạy ClientHandler (chế độ blocking), platform hoặc virtual thread
+    private final ExecutorService executor;
+    // Các shard chạy GameSession, mỗi session chỉ chạy trên shard của nó
+    private final SessionEngine sessionEngine;
+    // Gửi sự kiện trận cho khán giả, không chạy trên shard nên khán giả không làm chậm người chơi
+    private final ExecutorService spectatorPump;
+    // Giới hạn hàng đợi gửi của mọi kết nối
+    private final OutboundLimiter outboundLimiter;
+    private final InboundLimiter inboundLimiter;
+    // Timer dùng chung cho mọi GameSession
+    private final TimingWheel scheduler;
+    // Chấm câu trả lời, dùng chung cho mọi shard
+    private final AnswerScorer answerScorer;
+    // Thay cả đối tượng khi nạp lại, session đang chạy không bị chặn
+    private volatile PhraseStore phraseStore;
+    private volatile long phraseStoreModified;
+    // null khi không lưu kết quả trận
+    private MatchResultWriter matchResultWriter;
+    // null khi không ghi journal
+    private SessionJournal journal;
+    // null khi chưa cấu hình file tài khoản
+    private final CredentialStore credentialStore;
+    // Điểm Elo, dựng lại từ match log khi khởi động
+    private final RatingTable ratings = new RatingTable();
+    private final Matchmaker matchmaker;
+    private final PresenceService presence;
+    // null khi chạy một node
+    private final ClusterService cluster;
     private Map<String, ClientHandler> onlineClients = new ConcurrentHashMap<>();
     private Map<String, GameSession> playerToSessionMap = new ConcurrentHashMap<>();
     private Map<String, PendingChallenge> pendingChallenges = new ConcurrentHashMap<>();
+    // Phòng chờ trận nhiều người, theo id và theo từng thành viên
+    private Map<Integer, Room> rooms = new ConcurrentHashMap<>();
+    private Map<String, Room> playerToRoom = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRoomId = new AtomicInteger();
+    private Map<String, SpectatorFeed.Spectator> spectators = new ConcurrentHashMap<>();
+    // Kiểm tra "đang bận" và đăng ký vào trận/phòng diễn ra dưới lock này, để thách đấu, ghép trận,
+    // phòng và luyện tập chạy song song không xếp một người vào hai trận. Chỉ giữ trong lúc tạo trận.
+    private final Object gameStartLock = new Object();
+    // Resume token còn hiệu lực của mỗi user: cấp lại ở mỗi LOGIN/RESUME, bỏ khi user offline và không còn trận
+    private Map<String, String> resumeTokens = new ConcurrentHashMap<>();
+    private final SecureRandom tokenRandom = new SecureRandom();
 
     private static class PendingChallenge {
         String challenger;
@@ -26,84 +82,253 @@ public class Server {
         }
     }
 
+    public Server() {
+        this(ServerConfig.fromSystemProperties());
+    }
+
+    public Server(ServerConfig config) {
+        this.config = config;
+        this.executor = TaskExecutors.create(config.getThreads(), "memorygame");
+        this.scheduler = new TimingWheel(config.getTimerTickMillis(), config.getTimerWheelSize());
+        this.answerScorer = config.getAnswerScoring() == ServerConfig.Scoring.EXACT ? new ExactAnswerScorer()
+                : new FuzzyAnswerScorer(config.getAnswerMinSimilarity());
+        this.outboundLimiter = new OutboundLimiter(config.getOutboundQueueLimit(), config.getOutboundOverflow(), executor);
+        this.inboundLimiter = new InboundLimiter(config.getInboundRates(), config.getMaxInboundBytes(),
+                config.getLoginTimeoutMillis(), config.getIdleTimeoutMillis(), scheduler, executor);
+        this.sessionEngine = new SessionEngine(config.getSessionShards());
+        this.spectatorPump = Executors.newFixedThreadPool(config.getSpectatorThreads(),
+                TaskExecutors.namedThreads("spectator-pump"));
+        this.credentialStore = config.getUsersPath() == null ? null
+                : new CredentialStore(config.getPasswordHashThreads(), config.getPasswordHashQueueCapacity(),
+                        config.getLoginCacheSeconds() * 1000L);
+        this.matchmaker = new Matchmaker(scheduler, this::startMatchedGame, config.getMatchmakingIntervalMillis(),
+                config.getMatchmakingBaseWindow(), config.getMatchmakingWindowGrowth(), config.getMatchmakingMaxWindow());
+        this.presence = new PresenceService(scheduler, executor, config.getPresenceWindowMillis(),
+                config.getPresencePageSize());
+        this.cluster = config.getClusterNodeId() == null ? null
+                : new ClusterService(this, config.getClusterNodeId(), config.getClusterNodes(),
+                        config.getClusterVirtualNodes(), newClusterTransport(config));
+    }
+
+    private static ClusterTransport newClusterTransport(ServerConfig config) {
+        if (config.getClusterTransport() == ServerConfig.ClusterTransportType.MEMORY) {
+            return new InMemoryClusterTransport(InMemoryClusterTransport.DEFAULT, config.getClusterNodeId());
+        }
+        return new TcpClusterTransport(config.getClusterNodeId(), config.getClusterNodes());
+    }
+
     public void start() {
-        try (ServerSocket serverSocket = new ServerSocket(PORT)) {
-            System.out.println("Server is listening on port " + PORT);
+        scheduler.start();
+        sessionEngine.start();
+        if (credentialStore != null) {
+            try {
+                Log.info("Loaded {} user accounts.", credentialStore.load(Paths.get(config.getUsersPath())));
+            } catch (IOException e) {
+                Log.error("Could not load users file: {}", e.getMessage());
+            }
+        }
+        if (config.getPhraseStorePath() != null) {
+            reloadPhraseStore();
+            schedulePhraseReloadCheck(config.getPhraseReloadCheckSeconds() * 1000L);
+        }
+        if (!config.getMatchLogPath().isEmpty()) {
+            startMatchResultWriter();
+        }
+        if (!config.getJournalDir().isEmpty()) {
+            startJournal();
+        }
+        matchmaker.start();
+        presence.start();
+        if (config.getMatchmakingReportSeconds() > 0) {
+            scheduleMatchmakingReport(config.getMatchmakingReportSeconds() * 1000L);
+        }
+        if (config.getTimerLagReportSeconds() > 0) {
+            scheduleLagReport(config.getTimerLagReportSeconds() * 1000L);
+        }
+        if (cluster != null) {
+            try {
+                cluster.start();
+            } catch (IOException e) {
+                Log.error("Could not start cluster transport: {}", e.getMessage(), e);
+                return;
+            }
+        }
+        if (config.getAdminPort() > 0) {
+            try {
+                new AdminEndpoint(this, config.getAdminPort()).start();
+            } catch (IOException e) {
+                Log.error("Could not start admin endpoint: {}", e.getMessage());
+            }
+        }
+        if (config.getTransport() == ServerConfig.Transport.NIO) {
+            startNio();
+        } else {
+            startBlocking();
+        }
+    }
+
+    // Mỗi kết nối một thread, đọc bằng readLine()
+    private void startBlocking() {
+        // Accept qua ServerSocketChannel (blocking) để socket có channel, cho phép ghi gộp
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(config.getPort()), config.getBacklog());
+            Log.info("Server is listening on port {} ({} threads)", config.getPort(), config.getThreads());
             while (true) {
-                Socket clientSocket = serverSocket.accept();
-                System.out.println("New client connected: " + clientSocket.getRemoteSocketAddress());
+                Socket clientSocket = serverChannel.accept().socket();
+                Log.debug("New client connected: {}", String.valueOf(clientSocket.getRemoteSocketAddress()));
                 ClientHandler clientHandler = new ClientHandler(clientSocket, this);
-                new Thread(clientHandler).start();
+                executor.execute(clientHandler);
             }
         } catch (IOException e) {
-            System.err.println("Server exception: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Server exception: {}", e.getMessage(), e);
+        }
+    }
+
+    // Selector + một số event loop cố định
+    private void startNio() {
+        try {
+            new NioTransport(this, config.getPort(), config.getBacklog(), config.getEventLoops()).start();
+        } catch (IOException e) {
+            Log.error("Server exception: {}", e.getMessage(), e);
         }
     }
 
     // Phương thức để ClientHandler đăng ký khi login thành công
-    public synchronized void addClient(ClientHandler client) {
+    // Không cần khóa: onlineClients là ConcurrentHashMap
+    public void addClient(ClientHandler client) {
         onlineClients.put(client.getUsername(), client);
-        System.out.println("Client " + client.getUsername() + " is now online. Total: " + onlineClients.size());
+        presence.join(client);
+        Log.debug("Client {} is now online. Total: {}", client.getUsername(), onlineClients.size());
     }
     
     // Xử lý khi client ngắt kết nối
-    public synchronized void removeClient(ClientHandler client) {
+    public void removeClient(ClientHandler client) {
         if (client.getUsername() != null) {
             String username = client.getUsername();
+            matchmaker.cancel(username);
+            presence.leave(client);
+            handleRoomLeave(client);
+            handleSpectateStop(client);
             
             // Kiểm tra xem người chơi này có trong một trận đấu không
             GameSession session = playerToSessionMap.get(username);
             
             if (session != null) {
-                // Nếu có, báo cho GameSession biết để xử lý việc bỏ cuộc
-                System.out.println("Player " + username + " was in a game. Handling disconnect...");
-                session.handleDisconnect(client); 
+                // Nếu có, giữ ghế chờ RESUME hoặc xử lý việc bỏ cuộc
+                Log.debug("Player {} was in a game. Handling disconnect...", username);
+                leaveSession(session, client);
             }
 
-            // Xóa người chơi khỏi danh sách online
-            onlineClients.remove(username);
-            System.out.println("Client " + username + " has disconnected. Total: " + onlineClients.size());
+            // Xóa người chơi khỏi danh sách online (chỉ khi vẫn là handler này)
+            boolean current = onlineClients.remove(username, client);
+            // Handler cũ của user đã RESUME ở kết nối mới thì không báo node chủ trận
+            if (cluster != null && current) {
+                cluster.onLocalDisconnect(username);
+            }
+            if (current && !isPlaying(username)) {
+                resumeTokens.remove(username);
+            }
+            Log.debug("Client {} has disconnected. Total: {}", username, onlineClients.size());
+        }
+    }
+
+    // Người chơi (ở đây hoặc ở node khác) mất kết nối giữa trận
+    void leaveSession(GameSession session, Player player) {
+        if (config.getResumeGraceMillis() > 0) {
+            session.suspend(player, config.getResumeGraceMillis());
+        } else {
+            session.handleDisconnect(player);
+        }
+    }
+
+    // Token ngẫu nhiên 128 bit, thay token cũ của user
+    String issueResumeToken(String username) {
+        byte[] bytes = new byte[16];
+        tokenRandom.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        resumeTokens.put(username, token);
+        return token;
+    }
+
+    // So sánh thời gian hằng để không lộ token qua thời gian phản hồi
+    boolean checkResumeToken(String username, String token) {
+        String expected = resumeTokens.get(username);
+        return expected != null && MessageDigest.isEqual(
+                expected.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // User offline và trận của họ đã kết thúc
+    void discardResumeToken(String username) {
+        resumeTokens.remove(username);
+    }
+
+    // Sau RESUME: gắn handler mới vào trận đang treo, trận ở node khác thì báo node chủ trận
+    void resumeSession(ClientHandler client) {
+        String username = client.getUsername();
+        GameSession session = playerToSessionMap.get(username);
+        if (session != null) {
+            presence.setInGame(username, true);
+            session.resume(client);
+        } else if (cluster != null && cluster.resume(username)) {
+            presence.setInGame(username, true);
         }
     }
 
     // Chế độ luyện tập
     public void handlePracticeRequest(ClientHandler player, int rounds, int displayTime, int waitTime) {
-        System.out.println("Player " + player.getUsername() + " started a practice game.");
-        
-        // Tạo một GameSession mới với player2 là null
-        GameSession session = new GameSession(player, null, rounds, displayTime, waitTime, this);
-        
-        playerToSessionMap.put(player.getUsername(), session);
+        String username = player.getUsername();
+        if (username == null) {
+            return;
+        }
+        if (!isValidSettings(rounds, displayTime, waitTime)) {
+            Log.warn("Invalid practice settings from {}", username);
+            return;
+        }
+        GameSession session;
+        synchronized (gameStartLock) {
+            if (isBusy(username)) {
+                Log.debug("Practice refused for {}: in a room or already in a game.", username);
+                return;
+            }
+            matchmaker.cancel(username);
+            Log.debug("Player {} started a practice game.", username);
+
+            // Tạo một GameSession mới với player2 là null
+            session = new GameSession(player, null, rounds, displayTime, waitTime, this);
+            playerToSessionMap.put(username, session);
+        }
+        presence.setInGame(username, true);
         
-        new Thread(session).start();
+        session.start();
     }
 
     // Xử lý yêu cầu thách đấu
-    public void handleChallengeRequest(String challenger, String opponent, String roundsStr, String displayTimeStr, String waitTimeStr) {
+    public void handleChallengeRequest(String challenger, String opponent, int rounds, int displayTime, int waitTime) {
+        if (!isValidSettings(rounds, displayTime, waitTime)) {
+            Log.warn("Invalid challenge settings from {}", challenger);
+            return;
+        }
+        if (cluster != null && !cluster.isLocal(opponent)) {
+            // Đối thủ thuộc node khác: node đó giữ lời mời và gửi INVITATION
+            cluster.sendInvite(challenger, opponent, rounds, displayTime, waitTime);
+            return;
+        }
+        offerChallenge(challenger, opponent, rounds, displayTime, waitTime);
+    }
+
+    // Lưu lời mời và gửi INVITATION cho opponent đang đăng nhập ở node này
+    void offerChallenge(String challenger, String opponent, int rounds, int displayTime, int waitTime) {
         ClientHandler opponentHandler = onlineClients.get(opponent);
         if (opponentHandler != null) {
-            
-            try {
-                int rounds = Integer.parseInt(roundsStr);
-                int displayTime = Integer.parseInt(displayTimeStr);
-                int waitTime = Integer.parseInt(waitTimeStr);
-
-                // Tạo và lưu lời mời đang chờ
-                PendingChallenge challenge = new PendingChallenge(challenger, rounds, displayTime, waitTime);
-                pendingChallenges.put(opponent, challenge);
-
-                // Gửi lời mời đến đối thủ
-                String invitation = MessageProtocol.INVITATION + MessageProtocol.SEPARATOR + challenger;
-                opponentHandler.sendMessage(invitation);
-                System.out.println("Sent invitation from " + challenger + " to " + opponent);
-
-            } catch (NumberFormatException e) {
-                System.err.println("Invalid challenge parameters received: " + e.getMessage());
-            }
+            // Tạo và lưu lời mời đang chờ
+            PendingChallenge challenge = new PendingChallenge(challenger, rounds, displayTime, waitTime);
+            pendingChallenges.put(opponent, challenge);
 
+            // Gửi lời mời đến đối thủ
+            opponentHandler.sendMessage(Message.of(MessageProtocol.INVITATION, challenger));
+            Log.debug("Sent invitation from {} to {}", challenger, opponent);
         } else {
-            System.out.println("Challenge failed: Opponent " + opponent + " not found or not online.");
+            Log.debug("Challenge failed: Opponent {} not found or not online.", opponent);
         }
     }
     
@@ -114,57 +339,563 @@ public class Server {
 
         // Kiểm tra xem có lời mời hợp lệ không
         if (challenge == null || !challenge.challenger.equals(challenger)) {
-            System.out.println("Invalid or expired challenge response from " + responder);
+            Log.debug("Invalid or expired challenge response from {}", responder);
             return;
         }
 
         ClientHandler challengerHandler = onlineClients.get(challenger);
         ClientHandler responderHandler = onlineClients.get(responder);
 
+        if (cluster != null && !cluster.isLocal(challenger)) {
+            // Trận chạy trên node của người mời; responder được giữ chỗ tới khi node đó trả lời
+            boolean accepted = MessageProtocol.ACCEPT.equals(response) && responderHandler != null;
+            if (accepted) {
+                synchronized (gameStartLock) {
+                    accepted = !isBusy(responder);
+                    if (accepted) {
+                        matchmaker.cancel(responder);
+                        cluster.sendAccepted(challenger, responder, challenge.rounds, challenge.displayTime,
+                                challenge.waitTime);
+                    }
+                }
+            }
+            if (!accepted) {
+                cluster.deliver(cluster.nodeOf(challenger), challenger,
+                        Message.of(MessageProtocol.CHALLENGE_REJECTED, responder));
+            }
+            return;
+        }
+
         if (MessageProtocol.ACCEPT.equals(response) && challengerHandler != null && responderHandler != null) {
-            System.out.println(responder + " accepted challenge from " + challenger + ". Starting game...");
-            
-            GameSession session = new GameSession(
-                challengerHandler, 
-                responderHandler, 
-                challenge.rounds, 
-                challenge.displayTime, 
-                challenge.waitTime, 
-                this
-            );
+            GameSession session;
+            synchronized (gameStartLock) {
+                if (isBusy(challenger) || isBusy(responder)) {
+                    Log.debug("Challenge from {} to {} dropped: a player is in a room or already in a game.",
+                            challenger, responder);
+                    challengerHandler.sendMessage(Message.of(MessageProtocol.CHALLENGE_REJECTED, responder));
+                    return;
+                }
+                matchmaker.cancel(challenger);
+                matchmaker.cancel(responder);
+                Log.info("{} accepted challenge from {}. Starting game...", responder, challenger);
+
+                session = new GameSession(
+                    challengerHandler,
+                    responderHandler,
+                    challenge.rounds,
+                    challenge.displayTime,
+                    challenge.waitTime,
+                    this
+                );
+                playerToSessionMap.put(challenger, session);
+                playerToSessionMap.put(responder, session);
+            }
+            presence.setInGame(challenger, true);
+            presence.setInGame(responder, true);
             
+            session.start();
+        } else if (challengerHandler != null) {
+            challengerHandler.sendMessage(Message.of(MessageProtocol.CHALLENGE_REJECTED, responder));
+            Log.debug("{} rejected challenge from {}", responder, challenger);
+        }
+    }
+
+    // Node của responder báo chấp nhận: người mời ở đây, responder tham gia qua RemotePlayer
+    void startCrossNodeGame(String challenger, String responder, String responderNode,
+            int rounds, int displayTime, int waitTime) {
+        ClientHandler challengerHandler = onlineClients.get(challenger);
+        GameSession session;
+        synchronized (gameStartLock) {
+            // responder chỉ có thể bận ở đây nếu đang ngồi ghế ở xa trong một trận khác của node này;
+            // node của responder đã tự kiểm tra trước khi gửi ACCEPTED
+            if (challengerHandler == null || isBusy(challenger) || isBusy(responder)) {
+                Log.debug("Cross-node challenge from {} to {} dropped: challenger offline or a player is busy.",
+                        challenger, responder);
+                cluster.rejectAccepted(challenger, responder, responderNode);
+                return;
+            }
+            matchmaker.cancel(challenger);
+            Log.info("{} (node {}) accepted challenge from {}. Starting game...", responder, responderNode, challenger);
+            RemotePlayer remote = cluster.bindRemotePlayer(responder, responderNode);
+            session = new GameSession(challengerHandler, remote, rounds, displayTime, waitTime, this);
             playerToSessionMap.put(challenger, session);
             playerToSessionMap.put(responder, session);
-            
-            new Thread(session).start();
-        } else if (challengerHandler != null) {
-            String rejectMessage = MessageProtocol.CHALLENGE_REJECTED + MessageProtocol.SEPARATOR + responder;
-            challengerHandler.sendMessage(rejectMessage);
-            System.out.println(responder + " rejected challenge from " + challenger);
         }
+        presence.setInGame(challenger, true);
+        session.start();
+    }
+
+    // Vào hàng đợi ghép trận tự động; trận bắt đầu trong startMatchedGame khi tìm được đối thủ
+    public void handleMatchmakeRequest(ClientHandler player, int rounds, int displayTime, int waitTime) {
+        String username = player.getUsername();
+        if (username == null || isBusy(username)) {
+            Log.debug("Matchmaking refused for {}: not logged in, in a room or already in a game.", username);
+            return;
+        }
+        if (!isValidSettings(rounds, displayTime, waitTime)) {
+            Log.warn("Invalid matchmaking settings from {}", username);
+            return;
+        }
+        int rating = ratings.getRating(username);
+        if (matchmaker.enqueue(player, rating, rounds, displayTime, waitTime)) {
+            player.sendMessage(Message.of(MessageProtocol.MATCHMAKE_QUEUED, rating));
+        }
+    }
+
+    // Đang chơi (kể cả chờ trận ở node khác) hoặc đang ở trong một phòng chờ: không được vào trận nào khác
+    boolean isBusy(String username) {
+        return isPlaying(username) || playerToRoom.containsKey(username);
+    }
+
+    private static boolean isValidSettings(int rounds, int displayTime, int waitTime) {
+        return rounds >= 1 && rounds <= MAX_ROUNDS && displayTime >= 1 && displayTime <= MAX_PHASE_MILLIS
+                && waitTime >= 1 && waitTime <= MAX_PHASE_MILLIS;
+    }
+
+    public void handleMatchmakeCancel(ClientHandler player) {
+        if (player.getUsername() != null && matchmaker.cancel(player.getUsername())) {
+            Log.debug("Player {} left the matchmaking queue.", player.getUsername());
+        }
+    }
+
+    // Chạy trên thread của TimingWheel, chỉ tạo session rồi giao cho shard của nó
+    private void startMatchedGame(Matchmaker.Ticket first, Matchmaker.Ticket second, long waitedMillis) {
+        ClientHandler player1 = first.getPlayer();
+        ClientHandler player2 = second.getPlayer();
+        Matchmaker.Settings settings = first.getSettings();
+        GameSession session;
+        synchronized (gameStartLock) {
+            // Một người đã vào trận hoặc phòng bằng đường khác sau khi xếp hàng: bỏ cặp này, người kia
+            // giữ chỗ trong hàng đợi
+            boolean busy1 = isBusy(player1.getUsername());
+            boolean busy2 = isBusy(player2.getUsername());
+            if (busy1 || busy2) {
+                Log.debug("Dropped match of {} and {}: a player is already busy.", player1.getUsername(),
+                        player2.getUsername());
+                if (!busy1) requeueIfOnline(first);
+                if (!busy2) requeueIfOnline(second);
+                return;
+            }
+            session = new GameSession(player1, player2,
+                    settings.getRounds(), settings.getDisplayTime(), settings.getWaitTime(), this);
+            playerToSessionMap.put(player1.getUsername(), session);
+            playerToSessionMap.put(player2.getUsername(), session);
+        }
+        Log.info("Matched {} with {} after {} ms.", player1.getUsername() + " (" + first.getRating() + ")",
+                player2.getUsername() + " (" + second.getRating() + ")", waitedMillis);
+
+        player1.sendMessage(Message.of(MessageProtocol.MATCH_FOUND, player2.getUsername(), second.getRating()));
+        player2.sendMessage(Message.of(MessageProtocol.MATCH_FOUND, player1.getUsername(), first.getRating()));
+
+        presence.setInGame(player1.getUsername(), true);
+        presence.setInGame(player2.getUsername(), true);
+        session.start();
+    }
+
+    private void requeueIfOnline(Matchmaker.Ticket ticket) {
+        ClientHandler player = ticket.getPlayer();
+        if (onlineClients.get(player.getUsername()) == player) {
+            matchmaker.requeue(ticket);
+        }
+    }
+
+    // Tạo phòng, người tạo là chủ phòng và ngồi ghế đầu
+    public void handleRoomCreate(ClientHandler host, int rounds, int displayTime, int waitTime, int maxPlayers) {
+        String username = host.getUsername();
+        if (username == null) {
+            return;
+        }
+        if (!isValidSettings(rounds, displayTime, waitTime)
+                || maxPlayers < 2 || maxPlayers > GameSession.MAX_PLAYERS) {
+            Log.warn("Invalid room settings from {}", username);
+            return;
+        }
+        Room room;
+        synchronized (gameStartLock) {
+            if (isBusy(username)) {
+                Log.debug("Room creation refused for {}: in a room or already in a game.", username);
+                return;
+            }
+            matchmaker.cancel(username);
+            room = new Room(nextRoomId.incrementAndGet(), host, rounds, displayTime, waitTime, maxPlayers);
+            rooms.put(room.getId(), room);
+            playerToRoom.put(username, room);
+        }
+        host.sendMessage(room.stateMessage());
+        Log.debug("Player {} created room {}.", username, room.getId());
+    }
+
+    public void handleRoomJoin(ClientHandler player, int roomId) {
+        String username = player.getUsername();
+        if (username == null) {
+            return;
+        }
+        Room room;
+        synchronized (gameStartLock) {
+            if (isBusy(username)) {
+                Log.debug("Room join refused for {}: in a room or already in a game.", username);
+                return;
+            }
+            room = rooms.get(roomId);
+            if (room == null || !room.join(player)) {
+                // Phòng không tồn tại, đã đầy hoặc đã bắt đầu
+                player.sendMessage(Message.of(MessageProtocol.ROOM_CLOSED, roomId));
+                return;
+            }
+            matchmaker.cancel(username);
+            playerToRoom.put(username, room);
+        }
+        room.broadcast(room.stateMessage());
+    }
+
+    // Chủ phòng rời thì phòng đóng, người khác rời thì chỉ cập nhật danh sách
+    public void handleRoomLeave(ClientHandler player) {
+        if (player.getUsername() == null) return;
+        Room room = playerToRoom.get(player.getUsername());
+        if (room == null) return;
+        if (room.getHost() == player) {
+            ClientHandler[] members = room.close(0);
+            if (members == null) return;
+            rooms.remove(room.getId());
+            Message closed = Message.of(MessageProtocol.ROOM_CLOSED, room.getId());
+            for (ClientHandler member : members) {
+                playerToRoom.remove(member.getUsername(), room);
+                if (member != player) {
+                    member.sendMessage(closed);
+                }
+            }
+        } else {
+            playerToRoom.remove(player.getUsername(), room);
+            room.leave(player);
+            room.broadcast(room.stateMessage());
+        }
+    }
+
+    // Chỉ chủ phòng, cần ít nhất 2 người; các thành viên vào một GameSession theo thứ tự vào phòng
+    public void handleRoomStart(ClientHandler host) {
+        if (host.getUsername() == null) return;
+        Room room = playerToRoom.get(host.getUsername());
+        if (room == null || room.getHost() != host) {
+            Log.debug("Room start refused for {}: not a room host.", host.getUsername());
+            return;
+        }
+        ClientHandler[] members = room.close(2);
+        if (members == null) {
+            Log.debug("Room {} needs at least 2 players to start.", room.getId());
+            return;
+        }
+        rooms.remove(room.getId());
+        GameSession session = new GameSession(members, room.getRounds(), room.getDisplayTime(), room.getWaitTime(), this);
+        // Thành viên phòng không vào được trận khác, nên chỉ cần chuyển từ phòng sang trận liền một bước
+        synchronized (gameStartLock) {
+            for (ClientHandler member : members) {
+                playerToSessionMap.put(member.getUsername(), session);
+                playerToRoom.remove(member.getUsername(), room);
+            }
+        }
+        for (ClientHandler member : members) {
+            presence.setInGame(member.getUsername(), true);
+        }
+        Log.info("Room {} started with {} players.", room.getId(), members.length);
+        session.start();
+    }
+
+    SpectatorFeed newSpectatorFeed(String[] playerNames) {
+        return new SpectatorFeed(config.getSpectatorBufferSize(), spectatorPump, config.getSpectatorMaxQueued(), playerNames);
+    }
+
+    // Xem trận mà target đang chơi; mỗi kết nối chỉ xem một trận một lúc
+    public void handleSpectate(ClientHandler client, String target) {
+        String username = client.getUsername();
+        if (username == null || isPlaying(username)) {
+            Log.debug("Spectate refused for {}: not logged in or playing.", username);
+            return;
+        }
+        handleSpectateStop(client);
+        GameSession session = playerToSessionMap.get(target);
+        SpectatorFeed.Spectator spectator = session == null ? null : session.getSpectatorFeed().subscribe(client);
+        if (spectator == null) {
+            client.sendMessage(Message.of(MessageProtocol.SPECTATE_END));
+            return;
+        }
+        spectators.put(username, spectator);
+        Log.debug("{} is spectating {}", username, target);
+    }
+
+    public void handleSpectateStop(ClientHandler client) {
+        if (client.getUsername() == null) return;
+        SpectatorFeed.Spectator spectator = spectators.remove(client.getUsername());
+        if (spectator != null) {
+            spectator.cancel();
+        }
+    }
+
+    private void scheduleMatchmakingReport(long periodMillis) {
+        scheduler.schedule(() -> {
+            Log.info("Matchmaking: waiting={} matched={} wait {}", matchmaker.getWaitingCount(),
+                    matchmaker.getMatchedCount(), matchmaker.getWaitTime().summary());
+            scheduleMatchmakingReport(periodMillis);
+        }, periodMillis);
+    }
+
+    // STATS: chỉ user có trong memorygame.admins, người khác bị bỏ qua
+    public void handleStatsRequest(ClientHandler client) {
+        if (client.getUsername() == null || !config.getAdmins().contains(client.getUsername())) {
+            Log.warn("STATS refused for {}", client.getUsername());
+            return;
+        }
+        client.sendMessage(Message.of(MessageProtocol.STATS_REPORT, Metrics.report(this).toArray()));
+    }
+
+    // Client thấy thiếu ONLINE_DELTA: gửi lại snapshot ở lượt flush tới
+    public void handleOnlineListRequest(ClientHandler client) {
+        if (client.getUsername() != null) {
+            presence.requestSnapshot(client);
+        }
+    }
+
+    public int getOnlineClientCount() {
+        return onlineClients.size();
+    }
+
+    public int getPlayersInGameCount() {
+        return playerToSessionMap.size();
+    }
+
+    public int getPendingChallengeCount() {
+        return pendingChallenges.size();
+    }
+
+    // Gồm cả khán giả của trận vừa kết thúc chưa gửi SPECTATE_STOP
+    public int getSpectatorCount() {
+        return spectators.size();
+    }
+
+    public int getOpenRoomCount() {
+        return rooms.size();
+    }
+
+    // Duyệt mọi client nên chỉ dùng cho báo cáo
+    public int getMaxOutboundQueueDepth() {
+        int max = 0;
+        for (ClientHandler client : onlineClients.values()) {
+            max = Math.max(max, client.getOutboundQueueDepth());
+        }
+        return max;
+    }
+
+    ClientHandler getOnlineClient(String username) {
+        return onlineClients.get(username);
+    }
+
+    GameSession getSession(String username) {
+        return playerToSessionMap.get(username);
+    }
+
+    // Chế độ cụm: node mà client của user phải kết nối tới, null nếu là node này
+    ClusterNode getHomeNode(String username) {
+        return cluster == null ? null : cluster.redirectFor(username);
+    }
+
+    public int getResumeGraceMillis() {
+        return config.getResumeGraceMillis();
     }
 
+    // null khi chạy một node
+    public ClusterService getCluster() {
+        return cluster;
+    }
+
+    public OutboundLimiter getOutboundLimiter() {
+        return outboundLimiter;
+    }
+
+    public InboundLimiter getInboundLimiter() {
+        return inboundLimiter;
+    }
+
+    // Chế độ blocking: chạy các lượt ghi socket thay cho thread gọi write()
+    Executor getOutboundWriter() {
+        return executor;
+    }
+
+    public PresenceService getPresence() {
+        return presence;
+    }
+
+    public Matchmaker getMatchmaker() {
+        return matchmaker;
+    }
+
+    public RatingTable getRatings() {
+        return ratings;
+    }
+
+    // Trận chạy ở đây hoặc (chế độ cụm) ở node khác
+    boolean isPlaying(String username) {
+        return playerToSessionMap.containsKey(username) || (cluster != null && cluster.isInRemoteGame(username));
+    }
+
+    // Đang xem một trận chưa kết thúc; khán giả không gửi gì trong lúc xem
+    boolean isSpectating(String username) {
+        SpectatorFeed.Spectator spectator = spectators.get(username);
+        return spectator != null && spectator.isActive();
+    }
+
+    // Chỉ chuyển câu trả lời vào hàng đợi của shard sở hữu session, thread đọc không chờ
     public void handlePlayerAnswer(ClientHandler player, String answer) {
+        if (player.getUsername() == null) {
+            return;
+        }
         GameSession session = playerToSessionMap.get(player.getUsername());
         if (session != null) {
             session.setPlayerAnswer(player, answer);
+        } else if (cluster != null && cluster.forwardAnswer(player.getUsername(), answer)) {
+            Log.trace("Forwarded answer of {} to its game node.", player.getUsername());
         } else {
-            System.out.println("ERROR: Received answer from player " + player.getUsername() + " who is not in a game session.");
+            Log.debug("Received answer from player {} who is not in a game session.", player.getUsername());
         }
     }
 
-    public void endGameSession(GameSession session, ClientHandler player1, ClientHandler player2) {
-        if (player1 != null) {
-            playerToSessionMap.remove(player1.getUsername());
-        }
-        if (player2 != null) {
-            playerToSessionMap.remove(player2.getUsername());
+    public void endGameSession(GameSession session, Player[] players) {
+        for (Player player : players) {
+            // Chỉ xóa nếu người chơi chưa sang session khác
+            if (playerToSessionMap.remove(player.getUsername(), session)) {
+                if (player instanceof RemotePlayer) {
+                    // Danh sách online của người chơi ở xa do node của họ cập nhật
+                    cluster.releaseRemotePlayer((RemotePlayer) player);
+                } else {
+                    presence.setInGame(player.getUsername(), false);
+                    if (!onlineClients.containsKey(player.getUsername())) {
+                        discardResumeToken(player.getUsername());
+                    }
+                }
+            }
         }
-        System.out.println("Game session ended.");
+        Log.debug("Game session ended.");
     }
     
-    public String getRandomPhrase() { return "test"; } // chưa có database
-    public boolean authenticateUser(String user, String pass) { return true; }
+    private void startMatchResultWriter() {
+        MatchResultWriter writer = new MatchResultWriter(
+                new FileMatchResultStore(Paths.get(config.getMatchLogPath())),
+                config.getMatchLogQueueCapacity(),
+                config.getMatchLogBatchSize());
+        try {
+            writer.start(ratings::apply);
+            Log.info("Rebuilt ratings for {} players.", ratings.size());
+            matchResultWriter = writer;
+        } catch (IOException e) {
+            Log.error("Match results will not be saved: {}", e.getMessage());
+        }
+    }
+
+    private void startJournal() {
+        SessionJournal sessionJournal = new SessionJournal(Paths.get(config.getJournalDir()),
+                config.getJournalSegmentBytes(), config.getJournalRetainSegments(), config.getJournalQueueCapacity());
+        try {
+            sessionJournal.start();
+            journal = sessionJournal;
+        } catch (IOException e) {
+            Log.error("Session events will not be journaled: {}", e.getMessage());
+        }
+    }
+
+    // Gọi từ GameSession khi trận thách đấu kết thúc; không chặn
+    public void recordMatchResult(MatchResult result) {
+        ratings.apply(result);
+        MatchResultWriter writer = matchResultWriter;
+        if (writer != null) {
+            writer.publish(result);
+        }
+    }
+
+    public MatchResultWriter getMatchResultWriter() {
+        return matchResultWriter;
+    }
+
+    public SessionJournal getJournal() {
+        return journal;
+    }
+
+    public SessionEngine getSessionEngine() {
+        return sessionEngine;
+    }
+
+    public TimingWheel getScheduler() {
+        return scheduler;
+    }
+
+    public AnswerScorer getAnswerScorer() {
+        return answerScorer;
+    }
+
+    private void scheduleLagReport(long periodMillis) {
+        scheduler.schedule(() -> {
+            Log.info("Timer lag: {}", String.format("fired=%d avg=%.2fms max=%.2fms",
+                    scheduler.getFiredCount(), scheduler.getAverageLagMillis(), scheduler.getMaxLagMillis()));
+            scheduleLagReport(periodMillis);
+        }, periodMillis);
+    }
+
+    /**
+     * Cụm từ cho round thứ round/totalRounds: round sau lấy từ bucket dài hơn (khó hơn),
+     * không lặp lại cụm từ đã dùng trong session.
+     */
+    public String getRandomPhrase(PhraseSelector selector, int round, int totalRounds) {
+        PhraseStore store = phraseStore;
+        if (store == null) return "test"; // chưa cấu hình kho cụm từ
+        int bucket = totalRounds <= 1 ? 0 : (round - 1) * store.getBucketCount() / totalRounds;
+        String phrase = store.sample(bucket, selector);
+        return phrase != null ? phrase : "test";
+    }
+
+    // Map file mới rồi thay tham chiếu; bản cũ được giải phóng khi không còn ai dùng
+    public boolean reloadPhraseStore() {
+        Path path = Paths.get(config.getPhraseStorePath());
+        try {
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            PhraseStore store = PhraseStore.open(path);
+            phraseStore = store;
+            phraseStoreModified = modified;
+            Log.info("Loaded {} phrases from {}", store.size(), path);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            Log.error("Could not load phrase store {}: {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    // Kiểm tra thời điểm sửa file định kỳ; việc map chạy trên executor, không chặn timer
+    private void schedulePhraseReloadCheck(long periodMillis) {
+        if (periodMillis <= 0) return;
+        scheduler.schedule(() -> executor.execute(() -> {
+            try {
+                long modified = Files.getLastModifiedTime(Paths.get(config.getPhraseStorePath())).toMillis();
+                if (modified != phraseStoreModified) {
+                    reloadPhraseStore();
+                }
+            } catch (IOException e) {
+                Log.warn("Phrase store check failed: {}", e.getMessage());
+            }
+            schedulePhraseReloadCheck(periodMillis);
+        }), periodMillis);
+    }
+
+    /**
+     * Xác thực không chặn thread gọi: việc băm mật khẩu chạy trên pool của CredentialStore,
+     * callback nhận kết quả. Chưa cấu hình file tài khoản thì luôn thành công (để test).
+     */
+    public void authenticateUser(String user, String pass, Consumer<Boolean> callback) {
+        if (credentialStore == null) {
+            callback.accept(true);
+            return;
+        }
+        credentialStore.authenticate(user, pass, callback);
+    }
+
+    public CredentialStore getCredentialStore() {
+        return credentialStore;
+    }
 
     public static void main(String[] args) {
         Server server = new Server();
@@ -0,0 +1,393 @@
+package com.memorygame.server;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cấu hình khởi động của server, đọc từ system property dạng -Dmemorygame.xxx=...
+ */
+public class ServerConfig implements Cloneable {
+    public enum Transport { BLOCKING, NIO }
+    public enum Threads { PLATFORM, VIRTUAL }
+    public enum Overflow { DROP, DISCONNECT }
+    public enum ClusterTransportType { TCP, MEMORY }
+    public enum Scoring { EXACT, FUZZY }
+
+    private int port = 12345;
+    private Transport transport = Transport.BLOCKING;
+    private int eventLoops = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private Threads threads = Threads.PLATFORM;
+    private int sessionShards = Runtime.getRuntime().availableProcessors();
+    private int backlog = 1024;
+    private int timerTickMillis = 10;
+    private int timerWheelSize = 512;
+    private int timerLagReportSeconds = 0;
+    private String phraseStorePath = null;
+    private int phraseReloadCheckSeconds = 30;
+    // Thư mục chứa match log và journal khi không chỉ định riêng; null = không ghi gì ra đĩa
+    private String dataDir = null;
+    private String matchLogPath = "";
+    private int matchLogQueueCapacity = 65536;
+    private int matchLogBatchSize = 512;
+    private String journalDir = "";
+    private long journalSegmentBytes = 16L * 1024 * 1024;
+    private int journalRetainSegments = 32;
+    private int journalQueueCapacity = 65536;
+    private String usersPath = null;
+    private int passwordHashThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int passwordHashQueueCapacity = 10_000;
+    private int loginCacheSeconds = 300;
+    private int matchmakingIntervalMillis = 200;
+    private int matchmakingBaseWindow = 100;
+    private int matchmakingWindowGrowth = 50;
+    private int matchmakingMaxWindow = 1000;
+    private int matchmakingReportSeconds = 0;
+    private int presenceWindowMillis = 250;
+    private int presencePageSize = 500;
+    private int spectatorBufferSize = 64;
+    private int spectatorThreads = 2;
+    private int spectatorMaxQueued = 256;
+    private int outboundQueueLimit = 1024;
+    private Overflow outboundOverflow = Overflow.DROP;
+    // Theo thứ tự InboundLimiter.CLASS_NAMES: login, answer, lobby, query
+    private InboundLimiter.Rate[] inboundRates = {
+            new InboundLimiter.Rate(5, 1), new InboundLimiter.Rate(5, 2),
+            new InboundLimiter.Rate(10, 2), new InboundLimiter.Rate(10, 2)};
+    private int maxInboundBytes = 4096;
+    private int loginTimeoutMillis = 10000;
+    private int idleTimeoutMillis = 600000;
+    private int resumeGraceMillis = 15000;
+    private Scoring answerScoring = Scoring.FUZZY;
+    private int answerMinSimilarity = 60;
+    private String clusterNodeId = null;
+    private List<ClusterNode> clusterNodes = Collections.emptyList();
+    private ClusterTransportType clusterTransport = ClusterTransportType.TCP;
+    private int clusterVirtualNodes = 128;
+    private Set<String> admins = Collections.emptySet();
+    private int adminPort = 0;
+
+    public static ServerConfig fromSystemProperties() {
+        ServerConfig config = new ServerConfig();
+        config.port = Integer.getInteger("memorygame.port", config.port);
+        config.transport = Transport.valueOf(
+                System.getProperty("memorygame.transport", config.transport.name()).toUpperCase());
+        config.eventLoops = Integer.getInteger("memorygame.eventLoops", config.eventLoops);
+        config.threads = Threads.valueOf(
+                System.getProperty("memorygame.threads", config.threads.name()).toUpperCase());
+        config.sessionShards = Integer.getInteger("memorygame.sessionShards", config.sessionShards);
+        config.backlog = Integer.getInteger("memorygame.backlog", config.backlog);
+        config.timerTickMillis = Integer.getInteger("memorygame.timerTickMillis", config.timerTickMillis);
+        config.timerWheelSize = Integer.getInteger("memorygame.timerWheelSize", config.timerWheelSize);
+        config.timerLagReportSeconds = Integer.getInteger("memorygame.timerLagReportSeconds", config.timerLagReportSeconds);
+        config.phraseStorePath = System.getProperty("memorygame.phrases", config.phraseStorePath);
+        config.phraseReloadCheckSeconds = Integer.getInteger("memorygame.phraseReloadCheckSeconds", config.phraseReloadCheckSeconds);
+        config.dataDir = System.getProperty("memorygame.dataDir", config.dataDir);
+        config.matchLogPath = System.getProperty("memorygame.matchLog", config.dataFile("match-results.log", config.matchLogPath));
+        config.matchLogQueueCapacity = Integer.getInteger("memorygame.matchLogQueueCapacity", config.matchLogQueueCapacity);
+        config.matchLogBatchSize = Integer.getInteger("memorygame.matchLogBatchSize", config.matchLogBatchSize);
+        config.journalDir = System.getProperty("memorygame.journalDir", config.dataFile("journal", config.journalDir));
+        config.journalSegmentBytes = Long.getLong("memorygame.journalSegmentBytes", config.journalSegmentBytes);
+        config.journalRetainSegments = Integer.getInteger("memorygame.journalRetainSegments", config.journalRetainSegments);
+        config.journalQueueCapacity = Integer.getInteger("memorygame.journalQueueCapacity", config.journalQueueCapacity);
+        config.usersPath = System.getProperty("memorygame.users", config.usersPath);
+        config.passwordHashThreads = Integer.getInteger("memorygame.passwordHashThreads", config.passwordHashThreads);
+        config.passwordHashQueueCapacity = Integer.getInteger("memorygame.passwordHashQueueCapacity", config.passwordHashQueueCapacity);
+        config.loginCacheSeconds = Integer.getInteger("memorygame.loginCacheSeconds", config.loginCacheSeconds);
+        config.matchmakingIntervalMillis = Integer.getInteger("memorygame.matchmakingIntervalMillis", config.matchmakingIntervalMillis);
+        config.matchmakingBaseWindow = Integer.getInteger("memorygame.matchmakingBaseWindow", config.matchmakingBaseWindow);
+        config.matchmakingWindowGrowth = Integer.getInteger("memorygame.matchmakingWindowGrowth", config.matchmakingWindowGrowth);
+        config.matchmakingMaxWindow = Integer.getInteger("memorygame.matchmakingMaxWindow", config.matchmakingMaxWindow);
+        config.matchmakingReportSeconds = Integer.getInteger("memorygame.matchmakingReportSeconds", config.matchmakingReportSeconds);
+        config.presenceWindowMillis = Integer.getInteger("memorygame.presenceWindowMillis", config.presenceWindowMillis);
+        config.presencePageSize = Integer.getInteger("memorygame.presencePageSize", config.presencePageSize);
+        config.spectatorBufferSize = Integer.getInteger("memorygame.spectatorBufferSize", config.spectatorBufferSize);
+        config.spectatorThreads = Integer.getInteger("memorygame.spectatorThreads", config.spectatorThreads);
+        config.spectatorMaxQueued = Integer.getInteger("memorygame.spectatorMaxQueued", config.spectatorMaxQueued);
+        config.outboundQueueLimit = Integer.getInteger("memorygame.outboundQueueLimit", config.outboundQueueLimit);
+        config.outboundOverflow = Overflow.valueOf(
+                System.getProperty("memorygame.outboundOverflow", config.outboundOverflow.name()).toUpperCase());
+        String[] rateProperties = {"memorygame.rateLimitLogin", "memorygame.rateLimitAnswer",
+                "memorygame.rateLimitLobby", "memorygame.rateLimitQuery"};
+        for (int i = 0; i < rateProperties.length; i++) {
+            String spec = System.getProperty(rateProperties[i]);
+            if (spec != null) {
+                config.inboundRates[i] = InboundLimiter.Rate.parse(spec);
+            }
+        }
+        config.maxInboundBytes = Integer.getInteger("memorygame.maxInboundBytes", config.maxInboundBytes);
+        config.loginTimeoutMillis = Integer.getInteger("memorygame.loginTimeoutMillis", config.loginTimeoutMillis);
+        config.idleTimeoutMillis = Integer.getInteger("memorygame.idleTimeoutMillis", config.idleTimeoutMillis);
+        config.resumeGraceMillis = Integer.getInteger("memorygame.resumeGraceMillis", config.resumeGraceMillis);
+        config.answerScoring = Scoring.valueOf(
+                System.getProperty("memorygame.answerScoring", config.answerScoring.name()).toUpperCase());
+        config.answerMinSimilarity = Integer.getInteger("memorygame.answerMinSimilarity", config.answerMinSimilarity);
+        config.clusterNodeId = System.getProperty("memorygame.clusterNode", config.clusterNodeId);
+        config.clusterNodes = ClusterNode.parseList(System.getProperty("memorygame.clusterNodes", ""));
+        config.clusterTransport = ClusterTransportType.valueOf(
+                System.getProperty("memorygame.clusterTransport", config.clusterTransport.name()).toUpperCase());
+        config.clusterVirtualNodes = Integer.getInteger("memorygame.clusterVirtualNodes", config.clusterVirtualNodes);
+        config.applyClusterNode();
+        String admins = System.getProperty("memorygame.admins", "");
+        if (!admins.isEmpty()) {
+            config.admins = new HashSet<>(Arrays.asList(admins.split(",")));
+        }
+        config.adminPort = Integer.getInteger("memorygame.adminPort", config.adminPort);
+        return config;
+    }
+
+    /**
+     * Bản sao cho node nodeId của cùng cụm, dùng khi chạy nhiều node trong một JVM (test, benchmark).
+     */
+    public ServerConfig forClusterNode(String nodeId) {
+        try {
+            ServerConfig copy = (ServerConfig) clone();
+            copy.clusterNodeId = nodeId;
+            copy.applyClusterNode();
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // Ở chế độ cụm, cổng client lấy từ danh sách node
+    private void applyClusterNode() {
+        if (clusterNodeId == null) return;
+        for (ClusterNode node : clusterNodes) {
+            if (node.getId().equals(clusterNodeId)) {
+                port = node.getClientPort();
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Node " + clusterNodeId + " is not in memorygame.clusterNodes");
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public int getEventLoops() {
+        return eventLoops;
+    }
+
+    public Threads getThreads() {
+        return threads;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public int getTimerTickMillis() {
+        return timerTickMillis;
+    }
+
+    public int getTimerWheelSize() {
+        return timerWheelSize;
+    }
+
+    // 0 = tắt báo cáo định kỳ độ trễ timer
+    public int getTimerLagReportSeconds() {
+        return timerLagReportSeconds;
+    }
+
+    // File đã biên dịch bởi PhraseStore; null = chưa có kho cụm từ
+    public String getPhraseStorePath() {
+        return phraseStorePath;
+    }
+
+    public int getPhraseReloadCheckSeconds() {
+        return phraseReloadCheckSeconds;
+    }
+
+    // Đường dẫn name trong dataDir, hoặc fallback khi không có dataDir
+    private String dataFile(String name, String fallback) {
+        return dataDir == null || dataDir.isEmpty() ? fallback : Paths.get(dataDir, name).toString();
+    }
+
+    public String getDataDir() {
+        return dataDir;
+    }
+
+    // Mặc định <dataDir>/match-results.log; chuỗi rỗng = không lưu kết quả trận
+    public String getMatchLogPath() {
+        return matchLogPath;
+    }
+
+    public int getMatchLogQueueCapacity() {
+        return matchLogQueueCapacity;
+    }
+
+    public int getMatchLogBatchSize() {
+        return matchLogBatchSize;
+    }
+
+    // Thư mục của SessionJournal, mặc định <dataDir>/journal; rỗng = không ghi journal
+    public String getJournalDir() {
+        return journalDir;
+    }
+
+    public long getJournalSegmentBytes() {
+        return journalSegmentBytes;
+    }
+
+    // Số segment giữ lại, segment cũ hơn bị xóa
+    public int getJournalRetainSegments() {
+        return journalRetainSegments;
+    }
+
+    public int getJournalQueueCapacity() {
+        return journalQueueCapacity;
+    }
+
+    // File tài khoản của CredentialStore; null = chấp nhận mọi đăng nhập (để test)
+    public String getUsersPath() {
+        return usersPath;
+    }
+
+    public int getPasswordHashThreads() {
+        return passwordHashThreads;
+    }
+
+    public int getPasswordHashQueueCapacity() {
+        return passwordHashQueueCapacity;
+    }
+
+    public int getLoginCacheSeconds() {
+        return loginCacheSeconds;
+    }
+
+    // Chu kỳ của lượt ghép trận trên TimingWheel
+    public int getMatchmakingIntervalMillis() {
+        return matchmakingIntervalMillis;
+    }
+
+    // Chênh lệch điểm chấp nhận được lúc mới vào hàng đợi
+    public int getMatchmakingBaseWindow() {
+        return matchmakingBaseWindow;
+    }
+
+    // Điểm cộng thêm vào cửa sổ cho mỗi giây chờ
+    public int getMatchmakingWindowGrowth() {
+        return matchmakingWindowGrowth;
+    }
+
+    public int getMatchmakingMaxWindow() {
+        return matchmakingMaxWindow;
+    }
+
+    // 0 = tắt báo cáo định kỳ thời gian chờ ghép trận
+    public int getMatchmakingReportSeconds() {
+        return matchmakingReportSeconds;
+    }
+
+    // Cửa sổ gộp thay đổi của danh sách online trước khi gửi ONLINE_DELTA
+    public int getPresenceWindowMillis() {
+        return presenceWindowMillis;
+    }
+
+    // Số người tối đa mỗi trang ONLINE_LIST
+    public int getPresencePageSize() {
+        return presencePageSize;
+    }
+
+    // Số sự kiện gần nhất mỗi trận giữ cho khán giả
+    public int getSpectatorBufferSize() {
+        return spectatorBufferSize;
+    }
+
+    // Số thread gửi sự kiện cho khán giả, tách khỏi shard của session
+    public int getSpectatorThreads() {
+        return spectatorThreads;
+    }
+
+    // Khán giả có nhiều frame chờ gửi hơn mức này thì bị nhảy tới round hiện tại
+    public int getSpectatorMaxQueued() {
+        return spectatorMaxQueued;
+    }
+
+    // Số frame chờ gửi tối đa của mỗi kết nối
+    public int getOutboundQueueLimit() {
+        return outboundQueueLimit;
+    }
+
+    // Xử lý khi hàng đợi gửi đầy, xem OutboundLimiter
+    public Overflow getOutboundOverflow() {
+        return outboundOverflow;
+    }
+
+    // Token bucket mỗi kết nối cho từng nhóm lệnh (memorygame.rateLimitAnswer=5:2 ...); null = không giới hạn
+    public InboundLimiter.Rate[] getInboundRates() {
+        return inboundRates;
+    }
+
+    // Độ dài tối đa của một dòng văn bản hoặc frame nhị phân client gửi lên
+    public int getMaxInboundBytes() {
+        return maxInboundBytes;
+    }
+
+    // Kết nối chưa LOGIN sau khoảng này thì bị đóng; 0 = không giới hạn
+    public int getLoginTimeoutMillis() {
+        return loginTimeoutMillis;
+    }
+
+    // Người chơi không gửi gì trong khoảng này và không ở trong trận thì bị đóng; 0 = tắt
+    public int getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    // Thời gian giữ ghế của người chơi mất kết nối chờ RESUME; 0 = xử thua ngay như trước
+    public int getResumeGraceMillis() {
+        return resumeGraceMillis;
+    }
+
+    // EXACT: chỉ tính câu trả lời đúng từng ký tự; FUZZY: điểm theo độ giống, xem FuzzyAnswerScorer
+    public Scoring getAnswerScoring() {
+        return answerScoring;
+    }
+
+    // Phần trăm giống nhau tối thiểu để được điểm khi chấm FUZZY
+    public int getAnswerMinSimilarity() {
+        return answerMinSimilarity;
+    }
+
+    // Id của node này trong cụm; null = chạy một node
+    public String getClusterNodeId() {
+        return clusterNodeId;
+    }
+
+    public List<ClusterNode> getClusterNodes() {
+        return clusterNodes;
+    }
+
+    public ClusterTransportType getClusterTransport() {
+        return clusterTransport;
+    }
+
+    // Số điểm của mỗi node trên ConsistentHashRing
+    public int getClusterVirtualNodes() {
+        return clusterVirtualNodes;
+    }
+
+    // User được phép gửi STATS (memorygame.admins=user1,user2)
+    public Set<String> getAdmins() {
+        return admins;
+    }
+
+    // Cổng admin chỉ trên 127.0.0.1; 0 = tắt
+    public int getAdminPort() {
+        return adminPort;
+    }
+
+    // Số event loop chạy GameSession, mỗi session ghim vào một loop
+    public int getSessionShards() {
+        return sessionShards;
+    }
+}
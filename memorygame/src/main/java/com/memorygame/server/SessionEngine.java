@@ -0,0 +1,122 @@
+package com.memorygame.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Động cơ chạy GameSession theo shard. Mỗi shard là một thread riêng với hàng đợi tác vụ; mỗi
+ * GameSession được ghim vào một shard lúc tạo, và mọi sự kiện của nó (câu trả lời, ngắt kết nối,
+ * các pha trên TimingWheel) được gửi vào hàng đợi của shard đó. Trạng thái session vì vậy chỉ do
+ * một thread đọc/ghi, không cần khóa, và nằm lại trong cache của lõi đang chạy shard.
+ *
+ * Số shard chọn bằng -Dmemorygame.sessionShards (mặc định bằng số lõi).
+ */
+public class SessionEngine {
+    private final Shard[] shards;
+    private final AtomicInteger nextSession = new AtomicInteger();
+
+    public SessionEngine(int shardCount) {
+        this.shards = new Shard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard("session-shard-" + i);
+        }
+    }
+
+    public void start() {
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+        Log.info("Session engine started with {} shards", shards.length);
+    }
+
+    // Session mới lấy shard theo vòng tròn, sau đó luôn ở lại shard này
+    public Shard nextShard() {
+        return shards[Math.floorMod(nextSession.getAndIncrement(), shards.length)];
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Tổng số tác vụ đang chờ trên mọi shard
+    public int getQueuedTasks() {
+        int total = 0;
+        for (Shard shard : shards) {
+            total += shard.queued.get();
+        }
+        return total;
+    }
+
+    public long getExecutedTasks() {
+        long total = 0;
+        for (Shard shard : shards) {
+            total += shard.executed.get();
+        }
+        return total;
+    }
+
+    /**
+     * Vòng lặp của một shard. Nhiều thread gửi vào (thread đọc kết nối, TimingWheel, pool băm mật
+     * khẩu), chỉ thread của shard lấy ra. Shard chỉ park khi hàng đợi trống và đánh dấu parked trước
+     * khi kiểm tra lại, nên producer chỉ phải unpark khi shard thực sự đang ngủ.
+     */
+    public static final class Shard implements Executor {
+        // Số tác vụ tối đa mỗi lượt, sau đó flush ghi gộp rồi mới lấy tiếp
+        private static final int BATCH_SIZE = 256;
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong executed = new AtomicLong();
+        private final Thread thread;
+        private volatile boolean parked;
+
+        private Shard(String name) {
+            this.thread = new Thread(this::runLoop, name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+            queued.incrementAndGet();
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private void runLoop() {
+            while (true) {
+                int count = 0;
+                // Tin nhắn gửi trong một lượt được flush một lần ở WriteBatch.end()
+                WriteBatch.begin();
+                try {
+                    Runnable task;
+                    while (count < BATCH_SIZE && (task = tasks.poll()) != null) {
+                        count++;
+                        try {
+                            task.run();
+                        } catch (RuntimeException e) {
+                            Log.error("Session task failed: {}", e.getMessage(), e);
+                        }
+                    }
+                } finally {
+                    WriteBatch.end();
+                }
+                if (count > 0) {
+                    queued.addAndGet(-count);
+                    executed.addAndGet(count);
+                    continue;
+                }
+                parked = true;
+                if (tasks.isEmpty()) {
+                    LockSupport.park(this);
+                }
+                parked = false;
+            }
+        }
+    }
+}
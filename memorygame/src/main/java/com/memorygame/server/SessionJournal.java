@@ -0,0 +1,271 @@
+package com.memorygame.server;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Journal chỉ ghi nối các sự kiện của mọi GameSession (xem JournalRecord), để tra lại diễn biến
+ * một trận bằng JournalReplay. GameSession chỉ offer() vào hàng đợi có giới hạn như
+ * MatchResultWriter, hàng đợi đầy thì sự kiện bị bỏ và đếm; một thread nền chép sự kiện vào
+ * segment được map vào bộ nhớ (MappedByteBuffer) nên mỗi sự kiện chỉ là vài lệnh put, không có
+ * system call. Segment đầy thì mở segment mới; chỉ giữ retainSegments segment gần nhất nên dung
+ * lượng đĩa không vượt quá retainSegments * segmentBytes.
+ *
+ * Bản ghi (big-endian), độ dài ghi sau cùng nên độ dài 0 là hết dữ liệu của segment:
+ *
+ *   int độ dài | byte type | byte seat | short độ dài text | int round | long session | long timestamp
+ *   | int value | int aux | text UTF-8
+ *
+ * Mỗi lần khởi động ghi sang segment mới. force() khi hàng đợi rảnh, tối đa mỗi giây một lần.
+ * Không mở được segment mới (đĩa đầy...) thì bỏ các bản ghi đến và chỉ thử lại sau
+ * ROLL_RETRY_MILLIS, không thử lại với mỗi bản ghi.
+ */
+public class SessionJournal {
+    static final int HEADER_BYTES = 36;
+    // Câu trả lời do client gửi nên giới hạn phần text của một bản ghi
+    static final int MAX_TEXT_BYTES = 16 * 1024;
+    private static final String SUFFIX = ".journal";
+    private static final long SYNC_INTERVAL_MILLIS = 1000;
+    private static final long ROLL_RETRY_MILLIS = 5000;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final int retainSegments;
+    private final BlockingQueue<JournalRecord> queue;
+    // Id của session: mốc khởi động (ms) * 1000 + thứ tự, không trùng giữa các lần chạy
+    private final AtomicLong nextSessionId = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final Deque<Path> segments = new ArrayDeque<>();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile long writtenCount;
+    private volatile long writtenBytes;
+    private volatile long failedCount;
+    private volatile long deletedSegments;
+
+    // Chỉ thread ghi dùng
+    private long segmentIndex;
+    private MappedByteBuffer segment;
+    private boolean dirty;
+    private long lastSync;
+    // Lần mở segment trước thất bại: chưa tới mốc này thì bỏ bản ghi
+    private long rollRetryAt;
+
+    public SessionJournal(Path directory, long segmentBytes, int retainSegments, int queueCapacity) {
+        this.directory = directory;
+        // Một bản ghi lớn nhất phải vừa một segment
+        this.segmentBytes = Math.max(segmentBytes, 4 * (HEADER_BYTES + MAX_TEXT_BYTES));
+        this.retainSegments = Math.max(1, retainSegments);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> existing = listSegments(directory);
+        segments.addAll(existing);
+        if (!existing.isEmpty()) {
+            segmentIndex = indexOf(existing.get(existing.size() - 1));
+        }
+        rollSegment();
+        Thread thread = new Thread(this::runWriter, "session-journal");
+        thread.setDaemon(true);
+        thread.start();
+        Log.info("Session journal is writing segment {} in {}", segmentIndex, directory);
+    }
+
+    public long nextSessionId() {
+        return nextSessionId.incrementAndGet();
+    }
+
+    // Gọi từ shard của session, không chặn
+    public void append(JournalRecord record) {
+        if (!queue.offer(record)) {
+            long dropped = droppedCount.incrementAndGet();
+            if (dropped == 1 || dropped % 10000 == 0) {
+                Log.warn("Session journal queue full, dropped {} events so far.", dropped);
+            }
+        }
+    }
+
+    private void runWriter() {
+        while (true) {
+            try {
+                JournalRecord record = queue.poll(SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    write(record);
+                }
+                if (dirty && queue.isEmpty() && System.currentTimeMillis() - lastSync >= SYNC_INTERVAL_MILLIS) {
+                    segment.force();
+                    dirty = false;
+                    lastSync = System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                failedCount++;
+                Log.error("Session journal write failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void write(JournalRecord record) throws IOException {
+        byte[] text = record.getText() == null ? new byte[0] : record.getText().getBytes(StandardCharsets.UTF_8);
+        int textLength = truncatedLength(text, MAX_TEXT_BYTES);
+        int length = HEADER_BYTES + textLength;
+        // Chừa chỗ cho độ dài 0 đánh dấu hết segment
+        if (segment == null || segment.remaining() < length + 4) {
+            long now = System.currentTimeMillis();
+            if (now < rollRetryAt) {
+                failedCount++;
+                return;
+            }
+            try {
+                rollSegment();
+            } catch (IOException | RuntimeException e) {
+                rollRetryAt = now + ROLL_RETRY_MILLIS;
+                throw e;
+            }
+        }
+        int start = segment.position();
+        segment.position(start + 4);
+        segment.put(record.getType());
+        segment.put((byte) record.getSeat());
+        segment.putShort((short) textLength);
+        segment.putInt(record.getRound());
+        segment.putLong(record.getSessionId());
+        segment.putLong(record.getTimestamp());
+        segment.putInt(record.getValue());
+        segment.putInt(record.getAux());
+        segment.put(text, 0, textLength);
+        segment.putInt(start, length);
+        dirty = true;
+        writtenCount++;
+        writtenBytes += length;
+    }
+
+    // Số byte đầu của text UTF-8 không quá limit, không cắt giữa một ký tự nhiều byte
+    static int truncatedLength(byte[] text, int limit) {
+        if (text.length <= limit) return text.length;
+        int length = limit;
+        // Byte tiếp theo là byte nối (10xxxxxx) thì ký tự cuối chưa đủ byte, lùi về đầu ký tự đó
+        while (length > 0 && (text[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        return length;
+    }
+
+    // Segment cũ (đầy) được bỏ trước khi mở segment mới, nên thất bại để lại segment == null
+    private void rollSegment() throws IOException {
+        MappedByteBuffer full = segment;
+        segment = null;
+        dirty = false;
+        if (full != null) {
+            full.force();
+        }
+        long index = segmentIndex + 1;
+        Path file = directory.resolve(String.format("%020d%s", index, SUFFIX));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try (channel) {
+            // Mapping vẫn dùng được sau khi đóng channel; file thưa nên chưa chiếm đĩa đến khi ghi
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        } catch (IOException | RuntimeException e) {
+            // File vừa tạo nhưng không map được: xóa để lần thử lại dùng lại số thứ tự này
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        segmentIndex = index;
+        segments.addLast(file);
+        while (segments.size() > retainSegments) {
+            Path oldest = segments.removeFirst();
+            Files.deleteIfExists(oldest);
+            deletedSegments++;
+        }
+    }
+
+    /**
+     * Đọc mọi bản ghi của các segment trong directory theo thứ tự ghi.
+     */
+    public static void read(Path directory, Consumer<JournalRecord> consumer) throws IOException {
+        for (Path file : listSegments(directory)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                while (buffer.remaining() >= HEADER_BYTES) {
+                    int start = buffer.position();
+                    int length = buffer.getInt();
+                    if (length < HEADER_BYTES || length > buffer.remaining() + 4) break;
+                    byte type = buffer.get();
+                    int seat = buffer.get();
+                    int textLength = buffer.getShort() & 0xFFFF;
+                    int round = buffer.getInt();
+                    long sessionId = buffer.getLong();
+                    long timestamp = buffer.getLong();
+                    int value = buffer.getInt();
+                    int aux = buffer.getInt();
+                    byte[] text = new byte[textLength];
+                    buffer.get(text);
+                    buffer.position(start + length);
+                    consumer.accept(new JournalRecord(type, sessionId, timestamp, seat, round, value, aux,
+                            new String(text, StandardCharsets.UTF_8)));
+                }
+            }
+        }
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return files;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        // Tên có độ dài cố định nên thứ tự chữ cũng là thứ tự ghi
+        Collections.sort(files);
+        return files;
+    }
+
+    private static long indexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public long getDeletedSegments() {
+        return deletedSegments;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+}
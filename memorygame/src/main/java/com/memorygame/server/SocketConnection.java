@@ -0,0 +1,140 @@
+package com.memorygame.server;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connection cho chế độ blocking: frame được xếp hàng rồi ghi gộp ra SocketChannel (blocking)
+ * của socket bằng một lần gathering write.
+ *
+ * Ghi blocking có thể chờ lâu khi client đọc chậm, nên chỉ thread đọc của chính kết nối được ghi
+ * tại chỗ; shard, timer và pump khán giả chỉ xếp hàng rồi giao việc ghi cho một tác vụ writer trên
+ * executor. Mỗi lúc chỉ có một lượt ghi (writing), lượt đó chạy tới khi hàng đợi rỗng.
+ */
+public class SocketConnection implements Connection {
+    private static final int MAX_GATHER = 64;
+
+    private final Socket socket;
+    private final SocketChannel channel;
+    private final Executor writer;
+    private final OutboundLimiter limiter;
+    // Thread đọc của ClientHandler, ghi tại chỗ không làm chậm ai khác
+    private final Thread readerThread;
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private final AtomicBoolean evicted = new AtomicBoolean();
+    // Chỉ lượt ghi đang chạy dùng
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+    private final AtomicInteger queued = new AtomicInteger();
+
+    public SocketConnection(Socket socket, Executor writer, OutboundLimiter limiter) {
+        this.socket = socket;
+        this.channel = socket.getChannel();
+        this.writer = writer;
+        this.limiter = limiter;
+        this.readerThread = Thread.currentThread();
+    }
+
+    @Override
+    public void write(ByteBuffer data, boolean droppable) {
+        if (evicted.get()) return;
+        switch (limiter.admit(queued.get(), droppable)) {
+            case OutboundLimiter.DROP:
+                return;
+            case OutboundLimiter.EVICT:
+                if (evicted.compareAndSet(false, true)) {
+                    limiter.evict(this);
+                }
+                return;
+            default:
+                break;
+        }
+        outbound.add(data);
+        int depth = queued.incrementAndGet();
+        if (Metrics.ENABLED) {
+            Metrics.recordOutboundDepth(depth);
+        }
+        if (!WriteBatch.defer(this)) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() {
+        // Lượt ghi đang chạy sẽ thấy frame mới trước khi dừng
+        if (outbound.isEmpty() || !writing.compareAndSet(false, true)) return;
+        if (Thread.currentThread() == readerThread) {
+            drain();
+            return;
+        }
+        try {
+            writer.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // Server đang dừng
+            writing.set(false);
+        }
+    }
+
+    private void drain() {
+        do {
+            writeQueued();
+            writing.set(false);
+            // Frame xếp hàng sau lần kiểm tra cuối của writeQueued() nhưng trước khi nhả cờ
+        } while (!outbound.isEmpty() && writing.compareAndSet(false, true));
+    }
+
+    private void writeQueued() {
+        try {
+            while (!outbound.isEmpty()) {
+                int count = 0;
+                ByteBuffer next;
+                while (count < MAX_GATHER && (next = outbound.poll()) != null) {
+                    gather[count++] = next;
+                }
+                queued.addAndGet(-count);
+                long remaining = 0;
+                for (int i = 0; i < count; i++) {
+                    remaining += gather[i].remaining();
+                }
+                while (remaining > 0) {
+                    remaining -= channel.write(gather, 0, count);
+                }
+                Arrays.fill(gather, 0, count, null);
+            }
+        } catch (IOException e) {
+            // Lỗi ghi sẽ được phát hiện ở vòng đọc, chỉ cần đóng socket
+            Arrays.fill(gather, null);
+            outbound.clear();
+            queued.set(0);
+            close();
+        }
+    }
+
+    @Override
+    public int getQueuedFrames() {
+        return queued.get();
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            Log.warn("Could not close socket: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return String.valueOf(socket.getRemoteSocketAddress());
+    }
+}
@@ -0,0 +1,196 @@
+package com.memorygame.server;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Luồng sự kiện của một GameSession cho khán giả (SPECTATE|user). Session ghi mỗi sự kiện đúng một
+ * lần vào ring buffer (O(1), không phụ thuộc số khán giả); việc gửi cho khán giả do "pump" chạy trên
+ * executor riêng, mỗi khán giả có con trỏ đọc riêng. Message dùng chung với người chơi nên mỗi
+ * giao thức chỉ mã hóa một lần cho cả trận lẫn khán giả.
+ *
+ * Khán giả chậm (bị ring ghi đè hoặc hàng đợi gửi vượt maxQueued) không làm chậm ai: con trỏ nhảy
+ * tới đầu round hiện tại, các sự kiện cũ bị bỏ qua.
+ */
+public class SpectatorFeed {
+    private static final class Entry {
+        final long sequence;
+        final Message message;
+
+        Entry(long sequence, Message message) {
+            this.sequence = sequence;
+            this.message = message;
+        }
+    }
+
+    /** Một khán giả; cursor chỉ do pump đọc/ghi. */
+    public static final class Spectator {
+        private final ClientHandler client;
+        private long cursor;
+        private volatile boolean cancelled;
+        // Pump đã gửi SPECTATE_END và gỡ khán giả khỏi feed
+        private volatile boolean finished;
+
+        private Spectator(ClientHandler client, long cursor) {
+            this.client = client;
+            this.cursor = cursor;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        // Còn đang xem: chưa SPECTATE_STOP và trận chưa phát hết tới SPECTATE_END
+        public boolean isActive() {
+            return !cancelled && !finished;
+        }
+    }
+
+    private final Entry[] ring;
+    private final int mask;
+    private final Executor pumpExecutor;
+    private final int maxQueued;
+    private final Message startMessage;
+    private final Queue<Spectator> spectators = new ConcurrentLinkedQueue<>();
+    // Chỉ shard của session ghi
+    private volatile long published;
+    private volatile long roundStart;
+    private volatile boolean closed;
+    // Đảm bảo mỗi lúc chỉ một lượt pump chạy cho feed này
+    private final AtomicInteger pumpRequests = new AtomicInteger();
+    private final AtomicInteger spectatorCount = new AtomicInteger();
+    // Tổng số sự kiện khán giả chậm đã bỏ qua, mọi trận
+    private static final AtomicLong SKIPPED = new AtomicLong();
+
+    public SpectatorFeed(int capacity, Executor pumpExecutor, int maxQueued, String[] playerNames) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.ring = new Entry[size];
+        this.mask = size - 1;
+        this.pumpExecutor = pumpExecutor;
+        this.maxQueued = maxQueued;
+        this.startMessage = Message.of(MessageProtocol.SPECTATE_START, (Object[]) playerNames);
+    }
+
+    /**
+     * Đăng ký khán giả: gửi SPECTATE_START (tên người chơi theo ghế) rồi phát lại từ đầu round
+     * hiện tại. Trả về null nếu trận đã kết thúc.
+     */
+    public Spectator subscribe(ClientHandler client) {
+        if (closed) return null;
+        client.sendMessage(startMessage);
+        Spectator spectator = new Spectator(client, roundStart);
+        spectators.add(spectator);
+        spectatorCount.incrementAndGet();
+        // Trận có thể vừa kết thúc: pump vẫn gửi SPECTATE_END cho khán giả này
+        requestPump();
+        return spectator;
+    }
+
+    // Gọi trên shard của session
+    void publish(Message message) {
+        long sequence = published;
+        if (MessageProtocol.NEW_ROUND.equals(message.getCommand())) {
+            roundStart = sequence;
+        }
+        ring[(int) (sequence & mask)] = new Entry(sequence, message);
+        published = sequence + 1;
+        if (spectatorCount.get() > 0) {
+            requestPump();
+        }
+    }
+
+    // Sự kiện cuối của trận; sau đó không nhận khán giả mới
+    void close() {
+        if (closed) return;
+        publish(Message.of(MessageProtocol.SPECTATE_END));
+        closed = true;
+    }
+
+    private void requestPump() {
+        if (pumpRequests.getAndIncrement() == 0) {
+            pumpExecutor.execute(this::runPump);
+        }
+    }
+
+    // Chạy lại cho tới khi không còn yêu cầu nào đến trong lúc đang pump
+    private void runPump() {
+        int missed = 1;
+        do {
+            try {
+                pump();
+            } catch (RuntimeException e) {
+                Log.error("Spectator pump failed: {}", e.getMessage(), e);
+            }
+            missed = pumpRequests.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void pump() {
+        // Đọc closed trước: close() ghi SPECTATE_END vào published rồi mới bật closed
+        boolean finished = closed;
+        long end = published;
+        WriteBatch.begin();
+        try {
+            for (Iterator<Spectator> it = spectators.iterator(); it.hasNext(); ) {
+                Spectator spectator = it.next();
+                if (spectator.cancelled) {
+                    it.remove();
+                    spectatorCount.decrementAndGet();
+                    continue;
+                }
+                deliver(spectator, end);
+                if (finished && spectator.cursor >= end) {
+                    spectator.finished = true;
+                    it.remove();
+                    spectatorCount.decrementAndGet();
+                }
+            }
+        } finally {
+            WriteBatch.end();
+        }
+    }
+
+    private void deliver(Spectator spectator, long end) {
+        if (spectator.cursor < end && spectator.client.getOutboundQueueDepth() > maxQueued) {
+            skipAhead(spectator, end);
+        }
+        while (spectator.cursor < end) {
+            Entry entry = ring[(int) (spectator.cursor & mask)];
+            if (entry == null || entry.sequence != spectator.cursor) {
+                // Ô đã bị ghi đè: khán giả tụt quá một vòng ring
+                long before = spectator.cursor;
+                skipAhead(spectator, end);
+                if (spectator.cursor == before) {
+                    spectator.cursor = end;
+                }
+                continue;
+            }
+            spectator.client.sendDroppable(entry.message);
+            spectator.cursor++;
+        }
+    }
+
+    private void skipAhead(Spectator spectator, long end) {
+        long target = roundStart;
+        if (target <= spectator.cursor || end - target > ring.length) {
+            // Đã ở round hiện tại (hoặc round quá dài): chỉ giữ sự kiện mới nhất
+            target = end - 1;
+        }
+        if (target > spectator.cursor) {
+            SKIPPED.addAndGet(target - spectator.cursor);
+            spectator.cursor = target;
+        }
+    }
+
+    public int getSpectatorCount() {
+        return spectatorCount.get();
+    }
+
+    public static long getSkippedCount() {
+        return SKIPPED.get();
+    }
+}
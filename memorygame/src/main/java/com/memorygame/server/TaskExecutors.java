@@ -0,0 +1,36 @@
+package com.memorygame.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tạo executor chạy ClientHandler. Ở chế độ VIRTUAL mỗi tác vụ chạy trên
+ * một virtual thread (cần JDK 21+ lúc chạy); project vẫn build với target 17 nên
+ * factory được tra bằng reflection, nếu không có thì quay về platform thread.
+ */
+public final class TaskExecutors {
+
+    private TaskExecutors() {
+    }
+
+    public static ExecutorService create(ServerConfig.Threads mode, String namePrefix) {
+        if (mode == ServerConfig.Threads.VIRTUAL) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                Log.warn("Virtual threads are not available on this JVM ({}), falling back to platform threads.",
+                        System.getProperty("java.version"));
+            }
+        }
+        return Executors.newCachedThreadPool(namedThreads(namePrefix));
+    }
+
+    static ThreadFactory namedThreads(String namePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> new Thread(runnable, namePrefix + "-" + counter.incrementAndGet());
+    }
+}
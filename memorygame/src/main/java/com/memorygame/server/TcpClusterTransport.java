@@ -0,0 +1,217 @@
+package com.memorygame.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Kênh liên node qua TCP. Mỗi node nghe trên clusterPort của mình; với mỗi node khác có một kết nối
+ * đi do thread riêng giữ (tự kết nối lại khi đứt), người gửi chỉ offer() vào hàng đợi có giới hạn
+ * nên thread game không bao giờ chờ mạng. Mỗi kết nối đến có một thread đọc giao tin nhắn cho
+ * Receiver theo thứ tự.
+ *
+ * Frame: số trường (int), lệnh (UTF), rồi mỗi trường một byte kiểu ('I' hoặc 'S') và giá trị.
+ * Frame đầu của mỗi kết nối là HELLO|id node gửi.
+ */
+public class TcpClusterTransport implements ClusterTransport {
+    private static final String HELLO = "HELLO";
+    private static final int QUEUE_CAPACITY = 65536;
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+    // Node khác đang khởi động lại có thể làm log đầy lỗi kết nối
+    private static final Log.Sampler LINK_ERRORS = new Log.Sampler("cluster link error", 1);
+
+    private final String localNodeId;
+    private final int port;
+    private final Map<String, Link> links = new HashMap<>();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicInteger inboundThreads = new AtomicInteger();
+    private volatile Receiver receiver;
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+
+    public TcpClusterTransport(String localNodeId, List<ClusterNode> nodes) {
+        this.localNodeId = localNodeId;
+        int localPort = -1;
+        for (ClusterNode node : nodes) {
+            if (node.getId().equals(localNodeId)) {
+                localPort = node.getClusterPort();
+            } else {
+                links.put(node.getId(), new Link(node));
+            }
+        }
+        if (localPort < 0) {
+            throw new IllegalArgumentException("Node " + localNodeId + " is not in the cluster node list");
+        }
+        this.port = localPort;
+    }
+
+    @Override
+    public void start(Receiver receiver) throws IOException {
+        this.receiver = receiver;
+        running = true;
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(port));
+        Thread acceptor = new Thread(this::runAcceptor, "cluster-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        for (Link link : links.values()) {
+            Thread thread = new Thread(link::run, "cluster-link-" + link.node.getId());
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Log.info("Cluster node {} is listening on port {}", localNodeId, port);
+    }
+
+    @Override
+    public void send(String nodeId, Message message) {
+        Link link = links.get(nodeId);
+        if (link == null) {
+            Log.warn("Unknown cluster node {}, dropped {}", nodeId, message.getCommand());
+            return;
+        }
+        if (!link.queue.offer(message)) {
+            long dropped = droppedCount.incrementAndGet();
+            if (dropped == 1 || dropped % 1000 == 0) {
+                Log.warn("Cluster queue to {} is full, dropped {} messages so far.", nodeId, dropped);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            Log.warn("Could not close cluster socket: {}", e.getMessage());
+        }
+    }
+
+    private void runAcceptor() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread reader = new Thread(() -> runReader(socket), "cluster-in-" + inboundThreads.incrementAndGet());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (running) {
+                    Log.error("Cluster accept failed: {}", e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private void runReader(Socket socket) {
+        String from = null;
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()))) {
+            Message hello = readMessage(in);
+            if (!HELLO.equals(hello.getCommand()) || hello.getFieldCount() != 1) {
+                Log.warn("Cluster peer {} did not say HELLO, closing.", String.valueOf(s.getRemoteSocketAddress()));
+                return;
+            }
+            from = (String) hello.getField(0);
+            Log.info("Cluster node {} connected.", from);
+            while (running) {
+                receiver.onMessage(from, readMessage(in));
+            }
+        } catch (EOFException e) {
+            Log.info("Cluster node {} disconnected.", from);
+        } catch (IOException | RuntimeException e) {
+            Log.warn("Cluster link from {} failed: {}", from, e.getMessage());
+        }
+    }
+
+    // Kết nối đi tới một node khác
+    private final class Link {
+        final ClusterNode node;
+        final BlockingQueue<Message> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        Link(ClusterNode node) {
+            this.node = node;
+        }
+
+        void run() {
+            while (running) {
+                try (Socket socket = new Socket()) {
+                    socket.connect(new InetSocketAddress(node.getHost(), node.getClusterPort()));
+                    socket.setTcpNoDelay(true);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                    writeMessage(out, Message.of(HELLO, localNodeId));
+                    out.flush();
+                    while (running) {
+                        writeMessage(out, queue.take());
+                        // Ghi gộp những gì đã xếp hàng, flush khi hàng đợi rỗng
+                        if (queue.isEmpty()) {
+                            out.flush();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException e) {
+                    // Tin nhắn đang ghi dở bị mất; các tin nhắn còn trong hàng đợi gửi sau khi nối lại
+                    if (LINK_ERRORS.allow()) {
+                        Log.warn("Cluster link to {} failed: {}", node.getId(), e.getMessage());
+                    }
+                }
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    static void writeMessage(DataOutputStream out, Message message) throws IOException {
+        out.writeInt(message.getFieldCount());
+        out.writeUTF(message.getCommand());
+        for (int i = 0; i < message.getFieldCount(); i++) {
+            Object field = message.getField(i);
+            if (field instanceof Integer) {
+                out.writeByte('I');
+                out.writeInt((Integer) field);
+            } else {
+                out.writeByte('S');
+                out.writeUTF(String.valueOf(field));
+            }
+        }
+    }
+
+    static Message readMessage(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > BinaryProtocol.MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid cluster frame with " + count + " fields");
+        }
+        String command = in.readUTF();
+        Object[] fields = new Object[count];
+        for (int i = 0; i < count; i++) {
+            byte type = in.readByte();
+            if (type == 'I') {
+                fields[i] = in.readInt();
+            } else if (type == 'S') {
+                fields[i] = in.readUTF();
+            } else {
+                throw new IOException("Invalid cluster field type " + type);
+            }
+        }
+        return Message.of(command, fields);
+    }
+}
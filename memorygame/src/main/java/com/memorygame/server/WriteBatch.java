@@ -0,0 +1,49 @@
+package com.memorygame.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gom các lần flush trên cùng một thread. Trong khoảng begin()/end() (một tick của TimingWheel,
+ * một vòng select của event loop) các kết nối có dữ liệu mới chỉ được ghi nhận; end() flush mỗi
+ * kết nối một lần, nên mọi frame xếp hàng trong tick đó đi ra bằng một lần ghi gộp.
+ */
+final class WriteBatch {
+    private static final ThreadLocal<WriteBatch> CURRENT = new ThreadLocal<>();
+
+    private final List<Connection> dirty = new ArrayList<>();
+
+    private WriteBatch() {
+    }
+
+    static void begin() {
+        if (CURRENT.get() == null) {
+            CURRENT.set(new WriteBatch());
+        }
+    }
+
+    static void end() {
+        WriteBatch batch = CURRENT.get();
+        if (batch == null) return;
+        CURRENT.remove();
+        for (Connection connection : batch.dirty) {
+            connection.flush();
+        }
+    }
+
+    /**
+     * @return true nếu đang trong một batch và việc flush đã được hoãn đến end()
+     */
+    static boolean defer(Connection connection) {
+        WriteBatch batch = CURRENT.get();
+        if (batch == null) {
+            return false;
+        }
+        List<Connection> dirty = batch.dirty;
+        // Broadcast thường ghi liên tiếp vào cùng kết nối, chỉ cần so với phần tử cuối
+        if (dirty.isEmpty() || dirty.get(dirty.size() - 1) != connection) {
+            dirty.add(connection);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,72 @@
+package com.memorygame.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class BinaryProtocolTest {
+
+    @Test
+    public void varintRoundTrip() {
+        int[] values = {0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE};
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        for (int value : values) {
+            buffer.clear();
+            BinaryProtocol.writeVarint(buffer, value);
+            assertEquals(BinaryProtocol.varintSize(value), buffer.position());
+            buffer.flip();
+            assertEquals(value, BinaryProtocol.readVarint(buffer));
+        }
+    }
+
+    @Test
+    public void encodesNewRoundFrame() {
+        ByteBuffer frame = BinaryProtocol.encode(Message.of(MessageProtocol.NEW_ROUND, 3, "xin chào"));
+
+        int length = BinaryProtocol.readVarint(frame);
+        assertEquals(frame.remaining(), length);
+        assertEquals(BinaryProtocol.NEW_ROUND, frame.get());
+        assertEquals(3, BinaryProtocol.readVarint(frame));
+        assertEquals("xin chào", BinaryProtocol.readString(frame));
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    public void repeatedFieldsFollowSchema() {
+        ByteBuffer frame = BinaryProtocol.encode(Message.of(MessageProtocol.UPDATE_SCORE, 12, 340));
+
+        BinaryProtocol.readVarint(frame);
+        assertEquals(BinaryProtocol.UPDATE_SCORE, frame.get());
+        assertEquals(12, BinaryProtocol.readVarint(frame));
+        assertEquals(340, BinaryProtocol.readVarint(frame));
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    public void intMessageEncodesLikeBoxedFields() {
+        int[] scores = {12, 340, 0};
+        Message ints = Message.ofInts(MessageProtocol.UPDATE_SCORE, scores);
+        Message boxed = Message.of(MessageProtocol.UPDATE_SCORE, 12, 340, 0);
+        scores[0] = 99; // ofInts() giữ bản sao
+
+        assertEquals("UPDATE_SCORE|12|340|0", ints.toText());
+        assertEquals(boxed.encode(true), ints.encode(true));
+        assertEquals(boxed.encode(false), ints.encode(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsFieldsBeyondSchema() {
+        BinaryProtocol.encode(Message.of(MessageProtocol.HIDE_PHRASE, "extra"));
+    }
+
+    @Test
+    public void textSplitKeepsEmptyFields() {
+        String[] parts = ClientHandler.splitFields("SUBMIT_ANSWER||x");
+        assertEquals(3, parts.length);
+        assertEquals("", parts[1]);
+        assertEquals("x", parts[2]);
+    }
+}
@@ -0,0 +1,176 @@
+package com.memorygame.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClusterServiceTest {
+    // Cổng chỉ để trả LOGIN_REDIRECT, test không mở socket nào
+    private static final String NODES = "a=127.0.0.1:22345:23345,b=127.0.0.1:22346:23346";
+    private static final String PHRASE = "test";
+    private static final int DISPLAY_MILLIS = 300;
+    private static final int WAIT_MILLIS = 2500;
+
+    private Server nodeA;
+    private Server nodeB;
+    private FakeClient an;
+    private FakeClient binh;
+
+    @Before
+    public void startNodes() throws Exception {
+        System.setProperty("memorygame.clusterNodes", NODES);
+        System.setProperty("memorygame.clusterTransport", "MEMORY");
+        try {
+            ServerConfig config = ServerConfig.fromSystemProperties();
+            nodeA = startNode(config.forClusterNode("a"));
+            nodeB = startNode(config.forClusterNode("b"));
+        } finally {
+            System.clearProperty("memorygame.clusterNodes");
+            System.clearProperty("memorygame.clusterTransport");
+        }
+        an = new FakeClient(userOn("a"));
+        binh = new FakeClient(userOn("b"));
+        nodeA.addClient(an);
+        nodeB.addClient(binh);
+    }
+
+    @After
+    public void stopNodes() {
+        nodeA.getCluster().stop();
+        nodeB.getCluster().stop();
+    }
+
+    @Test
+    public void crossNodeChallengeRunsOnChallengerNode() throws Exception {
+        assertTrue(nodeA.getCluster().isLocal(an.username));
+        assertEquals("b", nodeA.getCluster().nodeOf(binh.username));
+        assertEquals(22346, nodeA.getHomeNode(binh.username).getClientPort());
+
+        // INVITE: lời mời được giữ ở node của người được mời
+        nodeA.handleChallengeRequest(an.username, binh.username, 1, DISPLAY_MILLIS, WAIT_MILLIS);
+        assertEquals("INVITATION|" + an.username, binh.next());
+
+        // ACCEPTED rồi BOUND: trận chạy ở node a, binh chơi qua RemotePlayer
+        nodeB.handleChallengeResponse(binh.username, MessageProtocol.ACCEPT, an.username);
+        assertEquals("NEW_ROUND|1|" + PHRASE, an.next());
+        assertEquals("NEW_ROUND|1|" + PHRASE, binh.next());
+        assertEquals(1, nodeA.getCluster().getRemotePlayerCount());
+        await(() -> nodeB.getCluster().getRemoteSessionCount() == 1);
+        assertTrue(nodeA.isPlaying(binh.username));
+        assertTrue(nodeB.isPlaying(binh.username));
+
+        assertEquals("HIDE_PHRASE", an.next());
+        assertEquals("HIDE_PHRASE", binh.next());
+        // ANSWER: câu trả lời đi từ node b về session ở node a
+        nodeB.handlePlayerAnswer(binh, PHRASE);
+        nodeA.handlePlayerAnswer(an, "sai");
+        assertEquals("UPDATE_SCORE|0|8", an.next());
+        assertEquals("UPDATE_SCORE|0|8", binh.next());
+        assertEquals("GAME_RESULT|LOSE", an.next());
+        assertEquals("GAME_RESULT|WIN", binh.next());
+
+        // ENDED: node b bỏ bản ghi trận ở xa
+        await(() -> nodeB.getCluster().getRemoteSessionCount() == 0);
+        assertEquals(0, nodeA.getCluster().getRemotePlayerCount());
+        assertFalse(nodeB.isPlaying(binh.username));
+    }
+
+    @Test
+    public void busyResponderRejectsOnItsNode() throws Exception {
+        nodeA.handleChallengeRequest(an.username, binh.username, 1, DISPLAY_MILLIS, WAIT_MILLIS);
+        assertEquals("INVITATION|" + an.username, binh.next());
+        nodeB.handlePracticeRequest(binh, 1, DISPLAY_MILLIS, WAIT_MILLIS);
+        assertEquals("NEW_ROUND|1|" + PHRASE, binh.next());
+
+        nodeB.handleChallengeResponse(binh.username, MessageProtocol.ACCEPT, an.username);
+        assertEquals("CHALLENGE_REJECTED|" + binh.username, an.next());
+        assertEquals(0, nodeA.getCluster().getRemotePlayerCount());
+        assertFalse(nodeA.isPlaying(an.username));
+    }
+
+    @Test
+    public void busyChallengerRejectsAndReleasesResponder() throws Exception {
+        nodeA.handleChallengeRequest(an.username, binh.username, 1, DISPLAY_MILLIS, WAIT_MILLIS);
+        assertEquals("INVITATION|" + an.username, binh.next());
+        nodeA.handlePracticeRequest(an, 1, DISPLAY_MILLIS, WAIT_MILLIS);
+        assertEquals("NEW_ROUND|1|" + PHRASE, an.next());
+
+        // Node b giữ chỗ binh khi gửi ACCEPTED, node a từ chối và trả chỗ
+        nodeB.handleChallengeResponse(binh.username, MessageProtocol.ACCEPT, an.username);
+        assertEquals("CHALLENGE_REJECTED|" + an.username, binh.next());
+        await(() -> !nodeB.isBusy(binh.username));
+        assertEquals(0, nodeA.getCluster().getRemotePlayerCount());
+        assertEquals(0, nodeB.getCluster().getRemoteSessionCount());
+        assertNull(binh.poll(DISPLAY_MILLIS));
+    }
+
+    private static Server startNode(ServerConfig config) throws Exception {
+        Server server = new Server(config);
+        // Không start(): chỉ chạy những gì trận và cụm cần, không mở cổng client
+        server.getScheduler().start();
+        server.getSessionEngine().start();
+        server.getCluster().start();
+        return server;
+    }
+
+    // User đầu tiên (u0, u1...) thuộc nodeId theo vòng băm
+    private String userOn(String nodeId) {
+        for (int i = 0; ; i++) {
+            String username = "u" + i;
+            if (nodeA.getCluster().nodeOf(username).equals(nodeId)) {
+                return username;
+            }
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("condition not reached", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    // Client đã đăng nhập, giữ tin nhắn nhận được dạng văn bản; tin nhắn đến từ nhiều thread.
+    // PresenceService không chạy nên không có ONLINE_LIST/ONLINE_DELTA
+    private static final class FakeClient extends ClientHandler {
+        final String username;
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+        FakeClient(String username) {
+            super((Socket) null, null);
+            this.username = username;
+        }
+
+        String next() throws InterruptedException {
+            String message = poll(5000);
+            assertTrue("no message for " + username, message != null);
+            return message;
+        }
+
+        String poll(long timeoutMillis) throws InterruptedException {
+            return received.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public void sendMessage(Message message) {
+            received.add(message.toText());
+        }
+    }
+}
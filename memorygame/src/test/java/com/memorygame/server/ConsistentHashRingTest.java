@@ -0,0 +1,72 @@
+package com.memorygame.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ConsistentHashRingTest {
+    private static final int KEYS = 20_000;
+
+    @Test
+    public void sameNodesGiveSameOwners() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+        // Thứ tự khai báo node không ảnh hưởng: mọi node của cụm phải thấy cùng một vòng
+        ConsistentHashRing reordered = new ConsistentHashRing(List.of("c", "a", "b"), 128);
+        for (int i = 0; i < KEYS; i++) {
+            String key = "user" + i;
+            assertEquals(ring.nodeFor(key), reordered.nodeFor(key));
+            assertEquals(ring.nodeFor(key), ring.nodeFor(key));
+        }
+    }
+
+    @Test
+    public void keysSpreadEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.nodeFor("user" + i), 1, Integer::sum);
+        }
+        assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            // Lý tưởng 1/3 mỗi node; cho phép lệch 25%
+            assertTrue("uneven share " + counts, Math.abs(count - KEYS / 3) < KEYS / 3 / 4);
+        }
+    }
+
+    @Test
+    public void addingNodeOnlyMovesKeysToIt() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "user" + i;
+            String owner = after.nodeFor(key);
+            if (!owner.equals(before.nodeFor(key))) {
+                assertEquals("d", owner);
+                moved++;
+            }
+        }
+        // Khoảng 1/4 số user chuyển sang node mới
+        assertTrue("moved " + moved, Math.abs(moved - KEYS / 4) < KEYS / 4 / 4);
+    }
+
+    @Test
+    public void rejectsEmptyRing() {
+        assertRejected(List.of(), 128);
+        assertRejected(List.of("a"), 0);
+    }
+
+    private static void assertRejected(List<String> nodeIds, int virtualNodes) {
+        try {
+            new ConsistentHashRing(nodeIds, virtualNodes);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        throw new AssertionError("Ring without points was accepted");
+    }
+}
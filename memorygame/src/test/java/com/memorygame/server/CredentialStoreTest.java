@@ -0,0 +1,118 @@
+package com.memorygame.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CredentialStoreTest {
+    // Ít vòng lặp để test chạy nhanh; thuật toán vẫn như thật
+    private static final int ITERATIONS = 1000;
+
+    private Path file;
+    private CredentialStore store;
+
+    @Before
+    public void createStore() throws IOException {
+        file = Files.createTempFile("users", ".txt");
+        store = new CredentialStore(2, 16, TimeUnit.MINUTES.toMillis(5));
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        store.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void verifiesPbkdf2Entries() throws Exception {
+        writeUsers(CredentialStore.createEntry("an", "mật khẩu", ITERATIONS));
+        assertEquals(1, store.load(file));
+
+        assertTrue(authenticate("an", "mật khẩu"));
+        assertFalse(authenticate("an", "mat khau"));
+        assertFalse(authenticate("bình", "mật khẩu"));
+        assertEquals(1, store.getSuccessCount());
+        assertEquals(2, store.getFailureCount());
+    }
+
+    @Test
+    public void skipsMalformedLines() throws Exception {
+        writeUsers("# comment", "", "an:only-three:fields", "bình:0:AAAA:AAAA", "chi:10:not base64!:AAAA",
+                CredentialStore.createEntry("dũng", "pw", ITERATIONS));
+        assertEquals(1, store.load(file));
+        assertEquals(1, store.size());
+        assertTrue(authenticate("dũng", "pw"));
+    }
+
+    @Test
+    public void cachesSuccessfulVerification() throws Exception {
+        writeUsers(CredentialStore.createEntry("an", "pw", ITERATIONS));
+        store.load(file);
+
+        assertTrue(authenticate("an", "pw"));
+        assertEquals(0, store.getCacheHitCount());
+        assertTrue(authenticate("an", "pw"));
+        assertEquals(1, store.getCacheHitCount());
+        // Sai mật khẩu không được cache cho qua
+        assertFalse(authenticate("an", "wrong"));
+        assertEquals(1, store.getCacheHitCount());
+    }
+
+    @Test
+    public void locksOutAfterRepeatedFailures() throws Exception {
+        writeUsers(CredentialStore.createEntry("an", "pw", ITERATIONS));
+        store.load(file);
+
+        for (int i = 0; i < 5; i++) {
+            assertFalse(authenticate("an", "wrong"));
+        }
+        assertEquals(0, store.getThrottledCount());
+        // Đang bị khóa: mật khẩu đúng cũng bị từ chối mà không băm
+        assertFalse(authenticate("an", "pw"));
+        assertEquals(1, store.getThrottledCount());
+        assertEquals(5, store.getFailureCount());
+
+        // Lần khóa đầu tiên kéo dài 1 giây
+        Thread.sleep(1100);
+        assertTrue(authenticate("an", "pw"));
+    }
+
+    @Test
+    public void reloadRemovesDeletedUsers() throws Exception {
+        writeUsers(CredentialStore.createEntry("an", "pw", ITERATIONS),
+                CredentialStore.createEntry("bình", "pw", ITERATIONS));
+        store.load(file);
+        assertTrue(authenticate("an", "pw"));
+        assertTrue(authenticate("bình", "pw"));
+
+        writeUsers(CredentialStore.createEntry("bình", "new", ITERATIONS));
+        assertEquals(1, store.load(file));
+        assertEquals(1, store.size());
+        // Verifier trong cache không còn giá trị với user đã xóa hoặc đổi mật khẩu
+        assertFalse(authenticate("an", "pw"));
+        assertFalse(authenticate("bình", "pw"));
+        assertTrue(authenticate("bình", "new"));
+    }
+
+    private void writeUsers(String... lines) throws IOException {
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    private boolean authenticate(String username, String password) throws Exception {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        store.authenticate(username, password, result::complete);
+        return result.get(10, TimeUnit.SECONDS);
+    }
+}
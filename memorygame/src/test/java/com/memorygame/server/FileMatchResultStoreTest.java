@@ -0,0 +1,108 @@
+package com.memorygame.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileMatchResultStoreTest {
+    private Path directory;
+    private Path file;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("match-log");
+        file = directory.resolve("data").resolve("match-results.log");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void recoversWrittenResults() throws IOException {
+        write(result(1, "an", "bình", "an"), result(2, "chi", "dũng", null));
+
+        List<MatchResult> recovered = recover();
+        assertEquals(2, recovered.size());
+        assertEquals("bình", recovered.get(0).getPlayer2());
+        assertEquals("an", recovered.get(0).getWinner());
+        assertNull(recovered.get(1).getWinner());
+        assertEquals(2, recovered.get(1).getEndedAt());
+    }
+
+    @Test
+    public void truncatesRecordCutOffMidWrite() throws IOException {
+        write(result(1, "an", "bình", "an"), result(2, "chi", "dũng", "chi"));
+        long intact = Files.size(file);
+        write(result(3, "em", "giang", "em"));
+        // Server dừng giữa lúc ghi bản ghi thứ ba
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(intact + 10);
+        }
+
+        assertEquals(2, recover().size());
+        assertEquals(intact, Files.size(file));
+
+        // Bản ghi sau nối tiếp vào chỗ hợp lệ cuối cùng
+        write(result(4, "hà", "khoa", "khoa"));
+        List<MatchResult> recovered = recover();
+        assertEquals(3, recovered.size());
+        assertEquals("khoa", recovered.get(2).getWinner());
+    }
+
+    @Test
+    public void stopsAtCorruptedChecksum() throws IOException {
+        write(result(1, "an", "bình", "an"));
+        long first = Files.size(file);
+        write(result(2, "chi", "dũng", "chi"));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 3] ^= 0x40;
+        Files.write(file, bytes);
+
+        assertEquals(1, recover().size());
+        assertEquals(first, Files.size(file));
+    }
+
+    private void write(MatchResult... results) throws IOException {
+        FileMatchResultStore store = new FileMatchResultStore(file);
+        try {
+            store.recover(result -> { });
+            store.append(Arrays.asList(results));
+            store.sync();
+        } finally {
+            store.close();
+        }
+    }
+
+    private List<MatchResult> recover() throws IOException {
+        List<MatchResult> results = new ArrayList<>();
+        FileMatchResultStore store = new FileMatchResultStore(file);
+        try {
+            store.recover(results::add);
+        } finally {
+            store.close();
+        }
+        return results;
+    }
+
+    private static MatchResult result(long endedAt, String player1, String player2, String winner) {
+        return new MatchResult(endedAt, player1, player2, 10, 7, 3, winner, false);
+    }
+}
@@ -0,0 +1,49 @@
+package com.memorygame.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class FuzzyAnswerScorerTest {
+
+    @Test
+    public void bitParallelDistanceMatchesDynamicProgramming() {
+        Random random = new Random(42);
+        FuzzyAnswerScorer.Scratch scratch = new FuzzyAnswerScorer.Scratch();
+        char[] alphabet = {'a', 'b', 'c', ' ', 'ơ', 'ư'};
+        for (int iteration = 0; iteration < 2000; iteration++) {
+            char[] a = randomChars(random, alphabet, 1 + random.nextInt(64));
+            char[] b = randomChars(random, alphabet, random.nextInt(100));
+            assertEquals(FuzzyAnswerScorer.levenshtein(a, a.length, b, b.length, scratch),
+                    FuzzyAnswerScorer.myers(a, a.length, b, b.length, scratch));
+        }
+    }
+
+    @Test
+    public void foldsCaseDiacriticsAndSpaces() {
+        char[] out = new char[32];
+        int length = FuzzyAnswerScorer.normalize("  Đường   PHỐ Hà Nội ", out);
+        assertEquals("duong pho ha noi", new String(out, 0, length));
+    }
+
+    @Test
+    public void givesPartialCreditAboveThreshold() {
+        FuzzyAnswerScorer scorer = new FuzzyAnswerScorer(60);
+        assertEquals(AnswerScorer.FULL_CREDIT, scorer.credit("con mèo đen", "Con meo den"));
+        // Một lỗi gõ trong 11 ký tự
+        assertEquals(910, scorer.credit("con mèo đen", "con mèo đem"));
+        assertEquals(0, scorer.credit("con mèo đen", "xyz"));
+        assertTrue(scorer.credit("con mèo đen", "con mèo đen trắng") > 0);
+    }
+
+    private static char[] randomChars(Random random, char[] alphabet, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return chars;
+    }
+}
@@ -0,0 +1,277 @@
+package com.memorygame.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GameSessionTest {
+    // Không có kho cụm từ: mọi round dùng "test"
+    private static final String PHRASE = "test";
+    private static final int DISPLAY_MILLIS = 300;
+    // Trả lời ngay sau HIDE_PHRASE còn 2 giây: 4 ký tự x 2 = 8 điểm
+    private static final int WAIT_MILLIS = 2500;
+    private static final String SHARD_THREAD = "test-shard";
+
+    private Server server;
+    private ExecutorService shard;
+
+    @Before
+    public void createServer() {
+        // Không start(): không mở cổng, chỉ chạy TimingWheel cho các pha của round
+        server = new Server(ServerConfig.fromSystemProperties());
+        server.getScheduler().start();
+        shard = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, SHARD_THREAD));
+    }
+
+    @After
+    public void stopShard() {
+        shard.shutdownNow();
+    }
+
+    @Test
+    public void duelScoresFasterCorrectAnswer() throws Exception {
+        FakePlayer an = new FakePlayer("an");
+        FakePlayer binh = new FakePlayer("bình");
+        GameSession session = new GameSession(an, binh, 1, DISPLAY_MILLIS, WAIT_MILLIS, server, shard);
+        assertEquals(0, an.getSeat());
+        assertEquals(1, binh.getSeat());
+        session.start();
+
+        expectAll("NEW_ROUND|1|" + PHRASE, an, binh);
+        expectAll("HIDE_PHRASE", an, binh);
+        session.setPlayerAnswer(an, PHRASE);
+        session.setPlayerAnswer(binh, "sai");
+        expectAll("UPDATE_SCORE|8|0", an, binh);
+        assertEquals("GAME_RESULT|WIN", an.next());
+        assertEquals("GAME_RESULT|LOSE", binh.next());
+        assertNull(an.poll(100));
+        assertNull(binh.poll(0));
+    }
+
+    @Test
+    public void eventsRunOnTheSessionShard() throws Exception {
+        FakePlayer[] players = {new FakePlayer("an"), new FakePlayer("bình"), new FakePlayer("chi"),
+                new FakePlayer("dũng")};
+        GameSession session = new GameSession(players, 1, DISPLAY_MILLIS, WAIT_MILLIS, server, shard);
+        session.start();
+        expectAll("NEW_ROUND|1|" + PHRASE, players);
+        expectAll("HIDE_PHRASE", players);
+
+        // Câu trả lời đến cùng lúc từ nhiều thread đọc; session chỉ xử lý chúng trên shard
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] readers = new Thread[players.length];
+        for (int i = 0; i < players.length; i++) {
+            FakePlayer player = players[i];
+            readers[i] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                session.setPlayerAnswer(player, PHRASE);
+            });
+            readers[i].start();
+        }
+        go.countDown();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        expectAll("UPDATE_SCORE|8|8|8|8", players);
+        expectAll("GAME_RESULT|DRAW", players);
+        for (FakePlayer player : players) {
+            assertEquals(Collections.singleton(SHARD_THREAD), player.senderThreads);
+        }
+    }
+
+    @Test
+    public void roomKeepsPlayingAfterASeatLeaves() throws Exception {
+        FakePlayer an = new FakePlayer("an");
+        FakePlayer binh = new FakePlayer("bình");
+        FakePlayer chi = new FakePlayer("chi");
+        GameSession session = new GameSession(new Player[] {an, binh, chi}, 1, DISPLAY_MILLIS, WAIT_MILLIS,
+                server, shard);
+        session.start();
+        expectAll("NEW_ROUND|1|" + PHRASE, an, binh, chi);
+        expectAll("HIDE_PHRASE", an, binh, chi);
+
+        // chi trả lời rồi rời phòng: câu trả lời bị bỏ, round chờ hai ghế còn lại
+        session.setPlayerAnswer(chi, PHRASE);
+        session.handleDisconnect(chi);
+        session.setPlayerAnswer(an, PHRASE);
+        assertNull(an.poll(200));
+        session.setPlayerAnswer(binh, "sai");
+
+        expectAll("UPDATE_SCORE|8|0|0", an, binh);
+        assertEquals("GAME_RESULT|WIN", an.next());
+        assertEquals("GAME_RESULT|LOSE", binh.next());
+        assertNull(chi.poll(0));
+    }
+
+    @Test
+    public void roomForfeitsWhenTwoSeatsRemain() throws Exception {
+        FakePlayer an = new FakePlayer("an");
+        FakePlayer binh = new FakePlayer("bình");
+        FakePlayer chi = new FakePlayer("chi");
+        GameSession session = new GameSession(new Player[] {an, binh, chi}, 3, DISPLAY_MILLIS, WAIT_MILLIS,
+                server, shard);
+        session.start();
+        expectAll("NEW_ROUND|1|" + PHRASE, an, binh, chi);
+
+        session.handleDisconnect(chi);
+        session.handleDisconnect(binh);
+        assertEquals("GAME_RESULT|WIN_FORFEIT", an.next());
+        // Trận kết thúc sớm: không còn pha nào chạy
+        assertNull(an.poll(DISPLAY_MILLIS + 200));
+        assertNull(binh.poll(0));
+        assertNull(chi.poll(0));
+    }
+
+    @Test
+    public void suspendedSeatForfeitsWhenGraceExpires() throws Exception {
+        FakePlayer an = new FakePlayer("an");
+        FakePlayer binh = new FakePlayer("bình");
+        GameSession session = new GameSession(an, binh, 1, DISPLAY_MILLIS, WAIT_MILLIS, server, shard);
+        long expired = GameSession.getExpiredCount();
+        session.start();
+        expectAll("NEW_ROUND|1|" + PHRASE, an, binh);
+
+        session.suspend(binh, 100);
+        assertEquals("GAME_RESULT|WIN_FORFEIT", an.next());
+        assertEquals(expired + 1, GameSession.getExpiredCount());
+        assertNull(an.poll(DISPLAY_MILLIS + 200));
+        assertNull(binh.poll(0));
+    }
+
+    @Test
+    public void resumeRestoresSuspendedSeat() throws Exception {
+        FakePlayer an = new FakePlayer("an");
+        FakePlayer binh = new FakePlayer("bình");
+        GameSession session = new GameSession(an, binh, 1, DISPLAY_MILLIS, WAIT_MILLIS, server, shard);
+        long resumed = GameSession.getResumedCount();
+        session.start();
+        expectAll("NEW_ROUND|1|" + PHRASE, an, binh);
+
+        session.suspend(binh, 10_000);
+        FakePlayer binhAgain = new FakePlayer("bình");
+        session.resume(binhAgain);
+        // round|số round|pha|cụm từ|ms còn lại|đã trả lời|ghế|điểm...
+        String[] state = ClientHandler.splitFields(binhAgain.next());
+        assertEquals("RESUME_STATE", state[0]);
+        assertEquals("1", state[1]);
+        assertEquals("1", state[2]);
+        assertEquals("SHOW", state[3]);
+        assertEquals(PHRASE, state[4]);
+        assertTrue(Integer.parseInt(state[5]) <= DISPLAY_MILLIS);
+        assertEquals("0", state[6]);
+        assertEquals("1", state[7]);
+        assertEquals(10, state.length);
+        assertEquals(1, binhAgain.getSeat());
+        assertEquals(resumed + 1, GameSession.getResumedCount());
+
+        expectAll("HIDE_PHRASE", an, binhAgain);
+        session.setPlayerAnswer(an, "sai");
+        session.setPlayerAnswer(binhAgain, PHRASE);
+        expectAll("UPDATE_SCORE|0|8", an, binhAgain);
+        assertEquals("GAME_RESULT|LOSE", an.next());
+        assertEquals("GAME_RESULT|WIN", binhAgain.next());
+        // Handler cũ đã mất kết nối: không nhận gì thêm và không bị đóng lại
+        assertNull(binh.poll(0));
+        assertFalse(binh.closed);
+    }
+
+    @Test
+    public void resumeTakesOverSeatFromLiveConnection() throws Exception {
+        FakePlayer an = new FakePlayer("an");
+        FakePlayer binh = new FakePlayer("bình");
+        GameSession session = new GameSession(an, binh, 1, DISPLAY_MILLIS, WAIT_MILLIS, server, shard);
+        session.start();
+        expectAll("NEW_ROUND|1|" + PHRASE, an, binh);
+
+        // Server chưa thấy kết nối cũ đứt: RESUME đóng nó và thay vào ghế
+        FakePlayer binhAgain = new FakePlayer("bình");
+        session.resume(binhAgain);
+        assertTrue(binhAgain.next().startsWith("RESUME_STATE|1|1|SHOW|"));
+        assertTrue(binh.closed);
+
+        expectAll("HIDE_PHRASE", an, binhAgain);
+        // Câu trả lời từ kết nối cũ bị bỏ qua
+        session.setPlayerAnswer(binh, PHRASE);
+        session.setPlayerAnswer(an, PHRASE);
+        session.setPlayerAnswer(binhAgain, "sai");
+        expectAll("UPDATE_SCORE|8|0", an, binhAgain);
+        assertEquals("GAME_RESULT|WIN", an.next());
+        assertEquals("GAME_RESULT|LOSE", binhAgain.next());
+        assertNull(binh.poll(0));
+    }
+
+    private static void expectAll(String expected, FakePlayer... players) throws InterruptedException {
+        for (FakePlayer player : players) {
+            assertEquals(expected, player.next());
+        }
+    }
+
+    // Người chơi trong bộ nhớ: giữ tin nhắn nhận được dạng văn bản và thread đã gửi chúng
+    private static final class FakePlayer implements Player {
+        final String username;
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        final Set<String> senderThreads = ConcurrentHashMap.newKeySet();
+        volatile int seat = -1;
+        volatile boolean closed;
+
+        FakePlayer(String username) {
+            this.username = username;
+        }
+
+        String next() throws InterruptedException {
+            String message = poll(5000);
+            assertTrue("no message for " + username, message != null);
+            return message;
+        }
+
+        String poll(long timeoutMillis) throws InterruptedException {
+            return received.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public void sendMessage(Message message) {
+            senderThreads.add(Thread.currentThread().getName());
+            received.add(message.toText());
+        }
+
+        @Override
+        public int getSeat() {
+            return seat;
+        }
+
+        @Override
+        public void setSeat(int seat) {
+            this.seat = seat;
+        }
+
+        @Override
+        public void closeConnection() {
+            closed = true;
+        }
+    }
+}
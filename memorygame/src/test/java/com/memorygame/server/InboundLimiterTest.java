@@ -0,0 +1,180 @@
+package com.memorygame.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class InboundLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private TimingWheel wheel;
+
+    @Before
+    public void startWheel() {
+        wheel = new TimingWheel(5, 64);
+        wheel.start();
+    }
+
+    @Test
+    public void bucketAllowsBurstThenRefills() {
+        InboundLimiter.Rate[] rates = new InboundLimiter.Rate[InboundLimiter.CLASS_NAMES.length];
+        rates[InboundLimiter.ANSWER] = new InboundLimiter.Rate(3, 2);
+        InboundLimiter limiter = limiter(rates, 0, 0);
+        InboundLimiter.Guard guard = limiter.open(new FakeClient("an"), new FakeConnection());
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(guard.allow(InboundLimiter.ANSWER, now));
+        }
+        assertFalse(guard.allow(InboundLimiter.ANSWER, now));
+        assertEquals(1, limiter.getRejectedCount(InboundLimiter.ANSWER));
+
+        // 2 token mỗi giây: sau 250 ms mới có nửa token
+        assertFalse(guard.allow(InboundLimiter.ANSWER, now + SECOND / 4));
+        assertTrue(guard.allow(InboundLimiter.ANSWER, now + SECOND / 2));
+        assertFalse(guard.allow(InboundLimiter.ANSWER, now + SECOND / 2));
+
+        // Nghỉ lâu cũng chỉ nạp tới dung lượng bucket
+        long later = now + 60 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertTrue(guard.allow(InboundLimiter.ANSWER, later));
+        }
+        assertFalse(guard.allow(InboundLimiter.ANSWER, later));
+        assertEquals(4, limiter.getRejectedCount(InboundLimiter.ANSWER));
+
+        // Nhóm không có Rate thì không giới hạn
+        for (int i = 0; i < 100; i++) {
+            assertTrue(guard.allow(InboundLimiter.QUERY, later));
+        }
+        assertEquals(0, limiter.getRejectedCount(InboundLimiter.QUERY));
+    }
+
+    @Test
+    public void mapsCommandsToClasses() {
+        assertEquals(InboundLimiter.LOGIN, InboundLimiter.commandClass(MessageProtocol.RESUME));
+        assertEquals(InboundLimiter.ANSWER, InboundLimiter.commandClass(MessageProtocol.SUBMIT_ANSWER));
+        assertEquals(InboundLimiter.LOBBY, InboundLimiter.commandClass(MessageProtocol.SPECTATE));
+        assertEquals(InboundLimiter.QUERY, InboundLimiter.commandClass("NO_SUCH_COMMAND"));
+        assertEquals(InboundLimiter.LOGIN, InboundLimiter.commandClass(BinaryProtocol.LOGIN));
+        assertEquals(InboundLimiter.ANSWER, InboundLimiter.commandClass(BinaryProtocol.SUBMIT_ANSWER));
+        assertEquals(InboundLimiter.LOBBY, InboundLimiter.commandClass(BinaryProtocol.ROOM_START));
+    }
+
+    @Test
+    public void closesConnectionWithoutLogin() throws Exception {
+        InboundLimiter limiter = limiter(noLimits(), 50, 0);
+        FakeConnection connection = new FakeConnection();
+        limiter.open(new FakeClient(null), connection);
+
+        assertTrue(connection.closed.await(2, TimeUnit.SECONDS));
+        assertEquals(1, limiter.getLoginTimeoutCount());
+        assertEquals(0, limiter.getIdleTimeoutCount());
+    }
+
+    @Test
+    public void closesIdleClientAfterLogin() throws Exception {
+        InboundLimiter limiter = limiter(noLimits(), 50, 200);
+        FakeClient client = new FakeClient(null);
+        FakeConnection connection = new FakeConnection();
+        InboundLimiter.Guard guard = limiter.open(client, connection);
+        client.username = "an";
+        guard.allow(InboundLimiter.LOGIN);
+
+        // Hạn LOGIN đã qua nhưng client đã đăng nhập
+        assertFalse(connection.closed.await(120, TimeUnit.MILLISECONDS));
+        assertTrue(connection.closed.await(2, TimeUnit.SECONDS));
+        assertEquals(0, limiter.getLoginTimeoutCount());
+        assertEquals(1, limiter.getIdleTimeoutCount());
+    }
+
+    @Test
+    public void keepsClientInGame() throws Exception {
+        InboundLimiter limiter = limiter(noLimits(), 0, 50);
+        FakeClient client = new FakeClient("an");
+        client.inGame = true;
+        FakeConnection connection = new FakeConnection();
+        limiter.open(client, connection);
+
+        assertFalse(connection.closed.await(300, TimeUnit.MILLISECONDS));
+        assertEquals(0, limiter.getIdleTimeoutCount());
+
+        // Hết trận (hoặc hết xem) thì lại bị tính idle
+        client.inGame = false;
+        assertTrue(connection.closed.await(2, TimeUnit.SECONDS));
+        assertEquals(1, limiter.getIdleTimeoutCount());
+    }
+
+    @Test
+    public void closedGuardDoesNotEvict() throws Exception {
+        InboundLimiter limiter = limiter(noLimits(), 50, 0);
+        FakeConnection connection = new FakeConnection();
+        InboundLimiter.Guard guard = limiter.open(new FakeClient(null), connection);
+        guard.close();
+
+        assertFalse(connection.closed.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, limiter.getLoginTimeoutCount());
+    }
+
+    private InboundLimiter limiter(InboundLimiter.Rate[] rates, long loginTimeoutMillis, long idleTimeoutMillis) {
+        return new InboundLimiter(rates, 1024, loginTimeoutMillis, idleTimeoutMillis, wheel, Runnable::run);
+    }
+
+    private static InboundLimiter.Rate[] noLimits() {
+        return new InboundLimiter.Rate[InboundLimiter.CLASS_NAMES.length];
+    }
+
+    private static final class FakeClient extends ClientHandler {
+        volatile String username;
+        volatile boolean inGame;
+
+        FakeClient(String username) {
+            super((Socket) null, null);
+            this.username = username;
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        boolean isInGame() {
+            return inGame;
+        }
+    }
+
+    private static final class FakeConnection implements Connection {
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void write(ByteBuffer data, boolean droppable) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public int getQueuedFrames() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+
+        @Override
+        public String getRemoteAddress() {
+            return "test";
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.memorygame.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MatchmakerTest {
+    private static final long INTERVAL_MILLIS = 20;
+
+    private TimingWheel wheel;
+    // Các cặp đã ghép, "người điểm thấp+người điểm cao"
+    private final BlockingQueue<String> matches = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Matchmaker.Ticket> matchedTickets = new LinkedBlockingQueue<>();
+
+    @Before
+    public void startWheel() {
+        wheel = new TimingWheel(5, 64);
+        wheel.start();
+    }
+
+    @Test
+    public void pairsNeighboursGreedilyWithinWindow() throws Exception {
+        Matchmaker matchmaker = matchmaker(100, 0, 100);
+        assertTrue(matchmaker.enqueue(player("an"), 1000, 3, 1000, 5000));
+        assertTrue(matchmaker.enqueue(player("bình"), 1500, 3, 1000, 5000));
+        assertTrue(matchmaker.enqueue(player("chi"), 1050, 3, 1000, 5000));
+        assertTrue(matchmaker.enqueue(player("dũng"), 2000, 3, 1000, 5000));
+        assertTrue(matchmaker.enqueue(player("em"), 1520, 3, 1000, 5000));
+        // Điểm gần nhưng khác thiết lập trận: không bao giờ ghép với người khác
+        assertTrue(matchmaker.enqueue(player("giang"), 1010, 5, 1000, 5000));
+        assertFalse(matchmaker.enqueue(player("an"), 1000, 3, 1000, 5000));
+        assertEquals(6, matchmaker.getWaitingCount());
+        assertEquals(2, matchmaker.getPoolCount());
+        matchmaker.start();
+
+        assertEquals("an+chi", matches.poll(2, TimeUnit.SECONDS));
+        assertEquals("bình+em", matches.poll(2, TimeUnit.SECONDS));
+        assertNull(matches.poll(10 * INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(2, matchmaker.getMatchedCount());
+        assertEquals(2, matchmaker.getWaitingCount());
+        assertTrue(matchmaker.isWaiting("dũng"));
+        assertTrue(matchmaker.isWaiting("giang"));
+        assertFalse(matchmaker.isWaiting("an"));
+    }
+
+    @Test
+    public void windowWidensWithWaitTime() {
+        Matchmaker matchmaker = matchmaker(50, 100, 400);
+        Matchmaker.Ticket ticket = new Matchmaker.Ticket(player("an"), 1000,
+                new Matchmaker.Settings(3, 1000, 5000));
+        long enqueuedAt = ticket.enqueuedAt;
+
+        assertEquals(50, matchmaker.windowFor(ticket, enqueuedAt));
+        assertEquals(50, matchmaker.windowFor(ticket, enqueuedAt + 999));
+        assertEquals(250, matchmaker.windowFor(ticket, enqueuedAt + 2000));
+        assertEquals(400, matchmaker.windowFor(ticket, enqueuedAt + 60_000));
+    }
+
+    @Test
+    public void distantRatingsMatchOnceWindowsWiden() throws Exception {
+        Matchmaker matchmaker = matchmaker(50, 1000, 1000);
+        matchmaker.enqueue(player("an"), 1000, 3, 1000, 5000);
+        matchmaker.enqueue(player("bình"), 1400, 3, 1000, 5000);
+        matchmaker.start();
+
+        // Chênh 400 điểm: chưa ghép được trong giây đầu
+        assertNull(matches.poll(500, TimeUnit.MILLISECONDS));
+        assertEquals("an+bình", matches.poll(3, TimeUnit.SECONDS));
+        assertEquals(2, matchmaker.getWaitTime().getCount());
+    }
+
+    @Test
+    public void cancelledTicketIsSkipped() throws Exception {
+        Matchmaker matchmaker = matchmaker(100, 0, 100);
+        matchmaker.enqueue(player("an"), 1000, 3, 1000, 5000);
+        matchmaker.enqueue(player("bình"), 1010, 3, 1000, 5000);
+        matchmaker.enqueue(player("chi"), 1090, 3, 1000, 5000);
+        assertTrue(matchmaker.cancel("bình"));
+        assertFalse(matchmaker.cancel("bình"));
+        matchmaker.start();
+
+        assertEquals("an+chi", matches.poll(2, TimeUnit.SECONDS));
+        assertEquals(0, matchmaker.getWaitingCount());
+    }
+
+    @Test
+    public void requeuedTicketMatchesAgain() throws Exception {
+        Matchmaker matchmaker = matchmaker(100, 0, 100);
+        matchmaker.enqueue(player("an"), 1000, 3, 1000, 5000);
+        matchmaker.enqueue(player("bình"), 1010, 3, 1000, 5000);
+        matchmaker.start();
+        assertEquals("an+bình", matches.poll(2, TimeUnit.SECONDS));
+        Matchmaker.Ticket first = matchedTickets.poll(2, TimeUnit.SECONDS);
+        assertEquals("an", first.getPlayer().getUsername());
+
+        // bình đã bận: an quay lại hàng đợi với ticket cũ
+        assertTrue(matchmaker.requeue(first));
+        assertFalse(matchmaker.requeue(first));
+        assertTrue(matchmaker.isWaiting("an"));
+        assertEquals(1, matchmaker.getWaitingCount());
+
+        matchmaker.enqueue(player("chi"), 1020, 3, 1000, 5000);
+        assertEquals("an+chi", matches.poll(2, TimeUnit.SECONDS));
+        assertEquals(0, matchmaker.getWaitingCount());
+    }
+
+    private Matchmaker matchmaker(int baseWindow, int growthPerSecond, int maxWindow) {
+        return new Matchmaker(wheel, (first, second, waitedMillis) -> {
+            matchedTickets.add(first);
+            matchedTickets.add(second);
+            matches.add(first.getPlayer().getUsername() + "+" + second.getPlayer().getUsername());
+        }, INTERVAL_MILLIS, baseWindow, growthPerSecond, maxWindow);
+    }
+
+    private static ClientHandler player(String username) {
+        return new ClientHandler((Socket) null, null) {
+            @Override
+            public String getUsername() {
+                return username;
+            }
+        };
+    }
+}
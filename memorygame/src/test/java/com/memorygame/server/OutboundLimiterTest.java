@@ -0,0 +1,83 @@
+package com.memorygame.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class OutboundLimiterTest {
+    private static final ByteBuffer FRAME = ByteBuffer.wrap("HIDE_PHRASE\n".getBytes());
+
+    @Test
+    public void dropPolicyDropsDroppableFramesOnly() {
+        OutboundLimiter limiter = new OutboundLimiter(3, ServerConfig.Overflow.DROP, Runnable::run);
+        assertEquals(OutboundLimiter.ACCEPT, limiter.admit(0, false));
+        assertEquals(OutboundLimiter.ACCEPT, limiter.admit(2, true));
+        assertEquals(3, limiter.getHighWaterMark());
+
+        assertEquals(OutboundLimiter.DROP, limiter.admit(3, true));
+        assertEquals(OutboundLimiter.EVICT, limiter.admit(3, false));
+        assertEquals(1, limiter.getDroppedCount());
+        assertEquals(3, limiter.getHighWaterMark());
+    }
+
+    @Test
+    public void disconnectPolicyEvictsEvenDroppableFrames() {
+        OutboundLimiter limiter = new OutboundLimiter(3, ServerConfig.Overflow.DISCONNECT, Runnable::run);
+        assertEquals(OutboundLimiter.EVICT, limiter.admit(3, true));
+        assertEquals(0, limiter.getDroppedCount());
+    }
+
+    @Test
+    public void fullQueueDropsThenEvictsSocketConnection() throws Exception {
+        OutboundLimiter limiter = new OutboundLimiter(3, ServerConfig.Overflow.DROP, Runnable::run);
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("127.0.0.1", 0));
+            try (SocketChannel client = SocketChannel.open(server.getLocalAddress());
+                    SocketChannel accepted = server.accept()) {
+                Socket socket = accepted.socket();
+                // Writer không bao giờ chạy: frame nằm lại trong hàng đợi như với client không đọc
+                List<Runnable> pendingWrites = new ArrayList<>();
+                SocketConnection connection = connectionOffReaderThread(socket, pendingWrites, limiter);
+
+                for (int i = 0; i < 3; i++) {
+                    connection.write(FRAME.duplicate(), false);
+                }
+                assertEquals(3, connection.getQueuedFrames());
+                assertEquals(1, pendingWrites.size());
+
+                connection.write(FRAME.duplicate(), true);
+                assertEquals(3, connection.getQueuedFrames());
+                assertEquals(1, limiter.getDroppedCount());
+                assertFalse(socket.isClosed());
+
+                connection.write(FRAME.duplicate(), false);
+                assertTrue(socket.isClosed());
+                assertEquals(1, limiter.getEvictedCount());
+                // Đã ngắt: các frame sau bị bỏ, không ngắt lần nữa
+                connection.write(FRAME.duplicate(), false);
+                assertEquals(1, limiter.getEvictedCount());
+            }
+        }
+    }
+
+    // Tạo trên thread khác để thread test không được coi là thread đọc (ghi tại chỗ)
+    private static SocketConnection connectionOffReaderThread(Socket socket, List<Runnable> pendingWrites,
+            OutboundLimiter limiter) throws InterruptedException {
+        AtomicReference<SocketConnection> connection = new AtomicReference<>();
+        Thread reader = new Thread(() -> connection.set(new SocketConnection(socket, pendingWrites::add, limiter)));
+        reader.start();
+        reader.join();
+        return connection.get();
+    }
+}
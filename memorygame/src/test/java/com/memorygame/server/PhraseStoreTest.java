@@ -0,0 +1,117 @@
+package com.memorygame.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PhraseStoreTest {
+    // Header: MAGIC, VERSION, số bucket; mỗi bucket 16 byte
+    private static final int BUCKETS_AT = 8;
+    private static final int FIRST_BUCKET_AT = 12;
+
+    private Path directory;
+    private Path store;
+
+    @Before
+    public void compileStore() throws IOException {
+        directory = Files.createTempDirectory("phrases");
+        Path text = directory.resolve("phrases.txt");
+        Files.write(text, Arrays.asList("mèo", "con chó", "trời xanh mây", "bánh mì", "", "a|b", "đường"),
+                StandardCharsets.UTF_8);
+        store = directory.resolve("phrases.bin");
+        PhraseStore.compile(text, store);
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void readsCompiledPhrases() throws IOException {
+        PhraseStore phrases = PhraseStore.open(store);
+        // Dòng trống và dòng chứa SEPARATOR bị bỏ
+        assertEquals(5, phrases.size());
+        Set<String> all = new HashSet<>();
+        for (int i = 0; i < phrases.size(); i++) {
+            all.add(phrases.phraseAt(i));
+        }
+        assertEquals(new HashSet<>(Arrays.asList("mèo", "con chó", "trời xanh mây", "bánh mì", "đường")), all);
+
+        String sampled = phrases.sample(0, new PhraseSelector(3));
+        assertNotNull(sampled);
+        assertTrue(all.contains(sampled));
+    }
+
+    @Test
+    public void rejectsTruncatedData() throws IOException {
+        byte[] bytes = Files.readAllBytes(store);
+        Files.write(store, Arrays.copyOf(bytes, bytes.length - 3));
+        assertRejected("offset");
+    }
+
+    @Test
+    public void rejectsTruncatedHeader() throws IOException {
+        byte[] bytes = Files.readAllBytes(store);
+        Files.write(store, Arrays.copyOf(bytes, FIRST_BUCKET_AT + 10));
+        assertRejected("truncated");
+        Files.write(store, Arrays.copyOf(bytes, 6));
+        assertRejected("Not a phrase store");
+    }
+
+    @Test
+    public void rejectsBucketPastTotal() throws IOException {
+        byte[] bytes = Files.readAllBytes(store);
+        // Số cụm từ của bucket đầu tiên
+        ByteBuffer.wrap(bytes).putInt(FIRST_BUCKET_AT + 8, 1000);
+        Files.write(store, bytes);
+        assertRejected("bucket 0");
+    }
+
+    @Test
+    public void rejectsBucketCountPastFile() throws IOException {
+        byte[] bytes = Files.readAllBytes(store);
+        ByteBuffer.wrap(bytes).putInt(BUCKETS_AT, Integer.MAX_VALUE);
+        Files.write(store, bytes);
+        assertRejected("truncated");
+    }
+
+    @Test
+    public void rejectsDecreasingOffset() throws IOException {
+        byte[] bytes = Files.readAllBytes(store);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int buckets = buffer.getInt(BUCKETS_AT);
+        int offsetsStart = FIRST_BUCKET_AT + buckets * 16 + 4;
+        // Offset của cụm từ thứ hai nhỏ hơn của cụm từ đầu
+        buffer.putInt(offsetsStart + 8, buffer.getInt(offsetsStart + 4) - 1);
+        Files.write(store, bytes);
+        assertRejected("offset 2");
+    }
+
+    private void assertRejected(String message) {
+        try {
+            PhraseStore.open(store);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+            return;
+        }
+        throw new AssertionError("Corrupted phrase store was accepted");
+    }
+}
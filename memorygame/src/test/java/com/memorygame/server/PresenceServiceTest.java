@@ -0,0 +1,170 @@
+package com.memorygame.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+import org.junit.Test;
+
+public class PresenceServiceTest {
+    // flush() được gọi trực tiếp, không cần TimingWheel hay executor
+    private PresenceService presence(int pageSize) {
+        return new PresenceService(null, Runnable::run, 100, pageSize);
+    }
+
+    @Test
+    public void snapshotIsPagedOnJoin() {
+        PresenceService presence = presence(2);
+        FakeClient an = new FakeClient("an");
+        FakeClient binh = new FakeClient("bình");
+        FakeClient chi = new FakeClient("chi");
+        presence.join(an);
+        presence.join(binh);
+        presence.join(chi);
+        presence.flush();
+
+        // Ba thay đổi, hai cặp mỗi trang: hai delta (0->1, 1->2), snapshot ở version 2 gồm 2 trang
+        assertEquals(2, presence.getVersion());
+        assertEquals(3, presence.getSubscriberCount());
+        for (FakeClient client : new FakeClient[] {an, binh, chi}) {
+            Map<String, String> listed = new HashMap<>();
+            String[] first = client.nextFields();
+            String[] second = client.nextFields();
+            assertEquals("ONLINE_LIST|2|0|2", String.join("|", first[0], first[1], first[2], first[3]));
+            assertEquals("ONLINE_LIST|2|1|2", String.join("|", second[0], second[1], second[2], second[3]));
+            addPairs(listed, first, 4);
+            addPairs(listed, second, 4);
+            assertEquals(3, listed.size());
+            assertEquals(MessageProtocol.STATUS_IDLE, listed.get("bình"));
+            // Người nhận snapshot không nhận thêm delta của cùng lượt
+            assertNull(client.received.poll());
+        }
+        assertEquals(3, presence.getSnapshotCount());
+        assertEquals(2, presence.getDeltaCount());
+    }
+
+    @Test
+    public void deltasChainVersionsAndCoalesce() {
+        PresenceService presence = presence(50);
+        FakeClient an = new FakeClient("an");
+        presence.join(an);
+        presence.flush();
+        assertEquals("ONLINE_LIST|1|0|1|an|IDLE", an.next());
+
+        FakeClient binh = new FakeClient("bình");
+        presence.join(binh);
+        presence.flush();
+        assertEquals("ONLINE_DELTA|1|2|bình|IDLE", an.next());
+        assertTrue(binh.next().startsWith("ONLINE_LIST|2|0|1|"));
+
+        // Vào rồi ra trận trong cùng cửa sổ: không có gì để gửi, version giữ nguyên
+        presence.setInGame("an", true);
+        presence.setInGame("an", false);
+        presence.flush();
+        assertEquals(2, presence.getVersion());
+        assertNull(an.received.poll());
+        assertNull(binh.received.poll());
+
+        // Nhiều thay đổi trong một cửa sổ gộp vào một delta
+        presence.setInGame("an", true);
+        presence.setInGame("bình", true);
+        presence.flush();
+        assertEquals("ONLINE_DELTA|2|3|an|IN_GAME|bình|IN_GAME", an.next());
+        assertEquals("ONLINE_DELTA|2|3|an|IN_GAME|bình|IN_GAME", binh.next());
+
+        presence.leave(binh);
+        presence.flush();
+        assertEquals("ONLINE_DELTA|3|4|bình|OFFLINE", an.next());
+        assertNull(binh.received.poll());
+        assertEquals(1, presence.getSubscriberCount());
+    }
+
+    @Test
+    public void resyncSendsSnapshotAtCurrentVersion() {
+        PresenceService presence = presence(50);
+        FakeClient an = new FakeClient("an");
+        FakeClient binh = new FakeClient("bình");
+        presence.join(an);
+        presence.join(binh);
+        presence.flush();
+        an.received.clear();
+        binh.received.clear();
+
+        presence.setInGame("bình", true);
+        presence.requestSnapshot(an);
+        presence.flush();
+        // an nhận snapshot đã gồm thay đổi thay cho delta
+        String[] snapshot = an.nextFields();
+        assertEquals("ONLINE_LIST", snapshot[0]);
+        assertEquals("2", snapshot[1]);
+        Map<String, String> listed = new HashMap<>();
+        addPairs(listed, snapshot, 4);
+        assertEquals(MessageProtocol.STATUS_IN_GAME, listed.get("bình"));
+        assertNull(an.received.poll());
+        assertEquals("ONLINE_DELTA|1|2|bình|IN_GAME", binh.next());
+        assertEquals(1, presence.getResyncCount());
+    }
+
+    @Test
+    public void leaveOfReplacedHandlerIsIgnored() {
+        PresenceService presence = presence(50);
+        FakeClient an = new FakeClient("an");
+        FakeClient watcher = new FakeClient("bình");
+        presence.join(an);
+        presence.join(watcher);
+        presence.flush();
+        watcher.received.clear();
+
+        // an đăng nhập lại ở kết nối mới trước khi kết nối cũ báo rời
+        FakeClient anAgain = new FakeClient("an");
+        presence.join(anAgain);
+        presence.leave(an);
+        presence.flush();
+        assertNull(watcher.received.poll());
+        assertTrue(anAgain.next().startsWith("ONLINE_LIST|"));
+        assertEquals(2, presence.getSubscriberCount());
+    }
+
+    private static void addPairs(Map<String, String> target, String[] fields, int start) {
+        for (int i = start; i + 1 < fields.length; i += 2) {
+            target.put(fields[i], fields[i + 1]);
+        }
+    }
+
+    // Client trong bộ nhớ: giữ các tin nhắn nhận được dạng văn bản
+    private static final class FakeClient extends ClientHandler {
+        final String username;
+        final Queue<String> received = new ArrayDeque<>();
+
+        FakeClient(String username) {
+            super((Socket) null, null);
+            this.username = username;
+        }
+
+        String next() {
+            String message = received.poll();
+            assertTrue("no message for " + username, message != null);
+            return message;
+        }
+
+        String[] nextFields() {
+            return splitFields(next());
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public void sendMessage(Message message) {
+            received.add(message.toText());
+        }
+    }
+}
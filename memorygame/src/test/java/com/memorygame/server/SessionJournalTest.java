@@ -0,0 +1,115 @@
+package com.memorygame.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SessionJournalTest {
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void readsBackRecordsInOrder() throws Exception {
+        SessionJournal journal = new SessionJournal(directory, 1 << 20, 4, 1024);
+        journal.start();
+        long session = journal.nextSessionId();
+        journal.append(new JournalRecord(JournalRecord.START, session, 1000, 0, 0, 3, 5000, "FUZZY:60"));
+        journal.append(new JournalRecord(JournalRecord.ROUND, session, 1100, 0, 1, 0, 0, "con mèo đen"));
+        journal.append(new JournalRecord(JournalRecord.ANSWER, session, 1200, 1, 1, 0, 0, "con meo đen"));
+        journal.append(new JournalRecord(JournalRecord.END, session, 1300, 0, 1, 0, 0, null));
+        awaitWritten(journal, 4);
+
+        List<JournalRecord> records = read();
+        assertEquals(4, records.size());
+        JournalRecord answer = records.get(2);
+        assertEquals(JournalRecord.ANSWER, answer.getType());
+        assertEquals(session, answer.getSessionId());
+        assertEquals(1200, answer.getTimestamp());
+        assertEquals(1, answer.getSeat());
+        assertEquals(1, answer.getRound());
+        assertEquals("con meo đen", answer.getText());
+        assertEquals(5000, records.get(0).getAux());
+        assertEquals("", records.get(3).getText());
+    }
+
+    @Test
+    public void rollsSegmentsAndKeepsOnlyTheNewest() throws Exception {
+        // Segment nhỏ nhất có thể: vài bản ghi 10 KB là đầy
+        SessionJournal journal = new SessionJournal(directory, 0, 2, 1024);
+        journal.start();
+        String text = "x".repeat(10 * 1024);
+        int count = 40;
+        for (int i = 0; i < count; i++) {
+            journal.append(new JournalRecord(JournalRecord.ANSWER, 7, i, 0, i, i, 0, text));
+        }
+        awaitWritten(journal, count);
+
+        assertEquals(2, segmentCount());
+        assertTrue(journal.getDeletedSegments() > 0);
+        List<JournalRecord> records = read();
+        assertTrue(records.size() > 0 && records.size() < count);
+        // Còn lại đúng phần đuôi liên tục của chuỗi bản ghi
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(count - records.size() + i, records.get(i).getValue());
+            assertEquals(text, records.get(i).getText());
+        }
+    }
+
+    @Test
+    public void truncatesTextOnCharacterBoundary() {
+        // "đ" chiếm 2 byte và vắt qua giới hạn
+        byte[] text = ("a".repeat(SessionJournal.MAX_TEXT_BYTES - 1) + "đ").getBytes(StandardCharsets.UTF_8);
+        assertEquals(SessionJournal.MAX_TEXT_BYTES - 1, SessionJournal.truncatedLength(text, SessionJournal.MAX_TEXT_BYTES));
+
+        byte[] fits = ("a".repeat(SessionJournal.MAX_TEXT_BYTES - 2) + "đ").getBytes(StandardCharsets.UTF_8);
+        assertEquals(fits.length, SessionJournal.truncatedLength(fits, SessionJournal.MAX_TEXT_BYTES));
+
+        // "ằ" chiếm 3 byte: không giữ lại phần đầu của ký tự
+        byte[] three = ("ab" + "ằ").getBytes(StandardCharsets.UTF_8);
+        assertEquals(2, SessionJournal.truncatedLength(three, 3));
+        assertEquals(2, SessionJournal.truncatedLength(three, 4));
+    }
+
+    private List<JournalRecord> read() throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        SessionJournal.read(directory, records::add);
+        return records;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static void awaitWritten(SessionJournal journal, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (journal.getWrittenCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, journal.getWrittenCount());
+    }
+}
@@ -0,0 +1,163 @@
+package com.memorygame.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import org.junit.Test;
+
+public class SpectatorFeedTest {
+    // Pump chỉ chạy khi test gọi runPump(), nên có thể để khán giả tụt lại tùy ý
+    private final Queue<Runnable> pumpTasks = new ArrayDeque<>();
+
+    @Test
+    public void newSpectatorStartsAtCurrentRound() {
+        SpectatorFeed feed = feed(16, 100);
+        feed.publish(round(1));
+        feed.publish(event(1));
+        feed.publish(round(2));
+        feed.publish(event(2));
+
+        FakeClient client = new FakeClient("chi");
+        SpectatorFeed.Spectator spectator = feed.subscribe(client);
+        assertEquals(List.of("SPECTATE_START|an|bình"), client.received);
+        runPump();
+        assertEquals(List.of("SPECTATE_START|an|bình", "NEW_ROUND|2|test", "UPDATE_SCORE|2"), client.received);
+
+        feed.publish(event(3));
+        feed.close();
+        runPump();
+        assertEquals("UPDATE_SCORE|3", client.received.get(3));
+        assertEquals("SPECTATE_END", client.received.get(4));
+        assertFalse(spectator.isActive());
+        assertEquals(0, feed.getSpectatorCount());
+        assertNull(feed.subscribe(new FakeClient("dũng")));
+    }
+
+    @Test
+    public void ringOverwriteSkipsToRoundStart() {
+        SpectatorFeed feed = feed(8, 100);
+        FakeClient client = new FakeClient("chi");
+        feed.subscribe(client);
+        runPump();
+        long skipped = SpectatorFeed.getSkippedCount();
+
+        // 10 sự kiện ở round 1 và 3 ở round 2 trong ring 8 ô: khán giả mất các sự kiện của round 1
+        feed.publish(round(1));
+        for (int i = 1; i < 10; i++) {
+            feed.publish(event(i));
+        }
+        feed.publish(round(2));
+        feed.publish(event(10));
+        feed.publish(event(11));
+        runPump();
+
+        assertEquals(List.of("SPECTATE_START|an|bình", "NEW_ROUND|2|test", "UPDATE_SCORE|10", "UPDATE_SCORE|11"),
+                client.received);
+        assertEquals(skipped + 10, SpectatorFeed.getSkippedCount());
+    }
+
+    @Test
+    public void slowSpectatorSkipsAheadWithoutSlowingOthers() {
+        SpectatorFeed feed = feed(64, 4);
+        FakeClient slow = new FakeClient("chi");
+        FakeClient fast = new FakeClient("dũng");
+        feed.subscribe(slow);
+        feed.subscribe(fast);
+        runPump();
+        slow.queuedFrames = 10;
+
+        feed.publish(round(1));
+        feed.publish(event(1));
+        feed.publish(event(2));
+        feed.publish(round(2));
+        feed.publish(event(3));
+        runPump();
+
+        assertEquals(List.of("NEW_ROUND|2|test", "UPDATE_SCORE|3"), slow.received.subList(1, slow.received.size()));
+        assertEquals(6, fast.received.size());
+
+        // Đã ở round hiện tại mà vẫn chậm: chỉ nhận sự kiện mới nhất
+        feed.publish(event(4));
+        feed.publish(event(5));
+        runPump();
+        assertEquals("UPDATE_SCORE|5", slow.received.get(slow.received.size() - 1));
+        assertEquals(4, slow.received.size());
+        assertEquals(8, fast.received.size());
+    }
+
+    @Test
+    public void cancelledSpectatorIsRemoved() {
+        SpectatorFeed feed = feed(16, 100);
+        FakeClient client = new FakeClient("chi");
+        SpectatorFeed.Spectator spectator = feed.subscribe(client);
+        runPump();
+        assertTrue(spectator.isActive());
+        assertEquals(1, feed.getSpectatorCount());
+
+        spectator.cancel();
+        feed.publish(round(1));
+        runPump();
+        assertFalse(spectator.isActive());
+        assertEquals(0, feed.getSpectatorCount());
+        assertEquals(1, client.received.size());
+    }
+
+    private SpectatorFeed feed(int capacity, int maxQueued) {
+        return new SpectatorFeed(capacity, pumpTasks::add, maxQueued, new String[] {"an", "bình"});
+    }
+
+    private void runPump() {
+        Runnable task;
+        while ((task = pumpTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static Message round(int round) {
+        return Message.of(MessageProtocol.NEW_ROUND, round, "test");
+    }
+
+    private static Message event(int value) {
+        return Message.of(MessageProtocol.UPDATE_SCORE, value);
+    }
+
+    // Khán giả trong bộ nhớ; queuedFrames giả lập hàng đợi gửi của kết nối
+    private static final class FakeClient extends ClientHandler {
+        final String username;
+        final List<String> received = new ArrayList<>();
+        volatile int queuedFrames;
+
+        FakeClient(String username) {
+            super((Socket) null, null);
+            this.username = username;
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public void sendMessage(Message message) {
+            received.add(message.toText());
+        }
+
+        @Override
+        void sendDroppable(Message message) {
+            received.add(message.toText());
+        }
+
+        @Override
+        public int getOutboundQueueDepth() {
+            return queuedFrames;
+        }
+    }
+}
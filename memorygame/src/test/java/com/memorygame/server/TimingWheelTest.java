@@ -0,0 +1,122 @@
+package com.memorygame.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimingWheelTest {
+    // 8 ô, mỗi tick 5 ms: một vòng wheel chỉ 40 ms
+    private static final long TICK_MILLIS = 5;
+    private static final int WHEEL_SIZE = 8;
+
+    private TimingWheel wheel;
+
+    @Before
+    public void startWheel() {
+        wheel = new TimingWheel(TICK_MILLIS, WHEEL_SIZE);
+        wheel.start();
+    }
+
+    @Test
+    public void runsTaskAfterDelay() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicLong firedAt = new AtomicLong();
+        long scheduledAt = System.nanoTime();
+        TimingWheel.Timeout timeout = wheel.schedule(() -> {
+            firedAt.set(System.nanoTime());
+            fired.countDown();
+        }, 20);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(firedAt.get() - scheduledAt) >= 20);
+        // Đã chạy thì không hủy được nữa
+        assertFalse(timeout.cancel());
+        assertFalse(timeout.isCancelled());
+        assertEquals(1, wheel.getFiredCount());
+    }
+
+    @Test
+    public void cancelBeforeFirstTick() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        TimingWheel.Timeout timeout = wheel.schedule(runs::incrementAndGet, 10);
+        // Vẫn còn trong hàng đợi pendingAdds, chưa vào ô nào
+        assertTrue(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.cancel());
+
+        Thread.sleep(100);
+        assertEquals(0, runs.get());
+        assertEquals(0, wheel.getFiredCount());
+    }
+
+    @Test
+    public void cancelAfterTaskIsInBucket() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        TimingWheel.Timeout timeout = wheel.schedule(runs::incrementAndGet, 100);
+        // Vài tick đã qua: tác vụ đã được chuyển vào ô của nó
+        Thread.sleep(30);
+        assertTrue(timeout.cancel());
+
+        Thread.sleep(150);
+        assertEquals(0, runs.get());
+        assertEquals(0, wheel.getFiredCount());
+    }
+
+    @Test
+    public void delayLongerThanOneRevolutionWaitsForRemainingRounds() throws Exception {
+        long delay = 3 * TICK_MILLIS * WHEEL_SIZE + 2 * TICK_MILLIS;
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicLong firedAt = new AtomicLong();
+        long scheduledAt = System.nanoTime();
+        wheel.schedule(() -> {
+            firedAt.set(System.nanoTime());
+            fired.countDown();
+        }, delay);
+
+        // Ô của tác vụ đã quay qua ba lần trước đó mà không bắn
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(firedAt.get() - scheduledAt) >= delay);
+        assertEquals(1, wheel.getFiredCount());
+    }
+
+    @Test
+    public void taskCanRescheduleItself() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                if (runs.incrementAndGet() < 5) {
+                    wheel.schedule(this, TICK_MILLIS);
+                } else {
+                    done.countDown();
+                }
+            }
+        };
+        wheel.schedule(task, TICK_MILLIS);
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(5, runs.get());
+        assertEquals(5, wheel.getFiredCount());
+    }
+
+    @Test
+    public void failingTaskDoesNotStopWheel() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        wheel.schedule(() -> {
+            throw new IllegalStateException("test");
+        }, 5);
+        wheel.schedule(fired::countDown, 20);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+    }
+}